@@ -13,23 +13,38 @@ import it.unisa.se.project.datiAndStrutture.*;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javafx.beans.property.SimpleStringProperty;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import javafx.geometry.Side;
 import javafx.scene.control.Button;
+import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.SelectionMode;
 import javafx.stage.FileChooser;
+import javafx.util.Duration;
 /**
  * @}
  */
@@ -78,6 +93,14 @@ public class RubricaController implements Initializable{
     @FXML
     private Button annullaBtn;
     @FXML
+    private ProgressBar avanzamentoProgress;
+    @FXML
+    private Button annullaOperazioneBtn;
+    @FXML
+    private Button annullaModificaBtn;
+    @FXML
+    private Button ripetiModificaBtn;
+    @FXML
     private TableView<Contatto> contattoTable;
     @FXML
     private TableColumn<Contatto, String> nameClm;
@@ -97,11 +120,64 @@ public class RubricaController implements Initializable{
     private TableColumn<Contatto, String> mail3Clm;
     /**
      * @private contacts come lista osservabile della collezione
-     * @private rubrica come nuova rubrica
+     * @private rubrica come nuova rubrica, concorrente perché le ricerche la
+     * leggono da esecutoreRicerca mentre il thread JavaFX la modifica
      */
     
     private final ObservableList<Contatto> contacts = FXCollections.observableArrayList();
-    private final Rubrica rubrica = new Rubrica();    
+    private RubricaConcorrente rubrica = new RubricaConcorrente();    
+    /**
+     * @private tabellaCompleta true se contacts mostra tutta la rubrica, false se mostra i risultati di una ricerca
+     * @private ascoltatoreTabella riporta su contacts le modifiche alla rubrica
+     */
+    private boolean tabellaCompleta = true;
+    private final AscoltatoreRubrica ascoltatoreTabella = new AscoltatoreTabella();
+    /**
+     * @private caricamento caricamento in background in corso, null se non ce n'è uno
+     * @private salvataggio salvataggio in background in corso, null se non ce n'è uno
+     */
+    private CaricamentoRubrica caricamento;
+    private Task<Void> salvataggio;
+    /**
+     * @private MAX_SUGGERIMENTI numero massimo di completamenti mostrati sotto searchField
+     * @private suggerimenti menu dei completamenti di searchField
+     */
+    private static final int MAX_SUGGERIMENTI = 8;
+    private final ContextMenu suggerimenti = new ContextMenu();
+    /**
+     * @private ATTESA_RICERCA pausa nella digitazione dopo la quale parte la ricerca
+     * @private pausaRicerca timer riavviato a ogni tasto premuto in searchField
+     * @private esecutoreRicerca thread su cui girano le ricerche
+     * @private ricercaInCorso ultima ricerca avviata
+     * @private numeroRicerca numero dell'ultima ricerca, solo il suo risultato va in tabella
+     */
+    private static final Duration ATTESA_RICERCA = Duration.millis(150);
+    private final PauseTransition pausaRicerca = new PauseTransition(ATTESA_RICERCA);
+    private final ExecutorService esecutoreRicerca = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ricerca-rubrica");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> ricercaInCorso;
+    private long numeroRicerca;
+    /**
+     * @private CARATTERI_PER_ERRORE caratteri della query per ogni errore ammesso nella ricerca approssimata
+     * @private DISTANZA_MAX errori ammessi al massimo per ogni parola
+     * @private MAX_APPROSSIMATI contatti mostrati dalla ricerca approssimata
+     */
+    private static final int CARATTERI_PER_ERRORE = 4;
+    private static final int DISTANZA_MAX = 2;
+    private static final int MAX_APPROSSIMATI = 50;
+    /**
+     * @private MAX_ANNULLAMENTI modifiche che si possono annullare
+     * @private annullabili versioni della rubrica prima delle ultime modifiche, la più recente in cima
+     * @private ripetibili versioni tolte da annullabili con handleAnnullaModifica, la più recente in cima
+     * Ogni versione condivide con quella attuale i contatti non modificati,
+     * quindi la memoria usata cresce con le modifiche e non con la rubrica.
+     */
+    private static final int MAX_ANNULLAMENTI = 100;
+    private final ArrayDeque<VersioneRubrica> annullabili = new ArrayDeque<>();
+    private final ArrayDeque<VersioneRubrica> ripetibili = new ArrayDeque<>();
     
     /**
      * @name Initialize
@@ -114,7 +190,10 @@ public class RubricaController implements Initializable{
     public void initialize(URL url, ResourceBundle rb) {
         setupTableColumns();
         setupTableSelection();
+        setupRicercaDigitazione();
+        rubrica.aggiungiAscoltatore(ascoltatoreTabella);
         contattoTable.setItems(contacts);
+        aggiornaAnnullamenti();
     }
     /**
      * @}
@@ -123,45 +202,101 @@ public class RubricaController implements Initializable{
      * @name setupTableColumns()
      * @{
      * @brief setupTableColumns per i controlli email e numeri 
+     * Le celle leggono il testo direttamente dal contatto della loro riga, senza
+     * cell value factory: durante lo scorrimento non vengono create proprietà né
+     * copiate le liste di numeri ed email. L'ordinamento per colonna è disattivato
+     * perché la tabella segue l'ordine della rubrica, su cui si basano le
+     * notifiche di AscoltatoreTabella.
      * function private void
      */
     private void setupTableColumns() {
-        nameClm.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getNome()));
-        surnameClm.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getCognome()));
-    /**verifica numero1 della lista di numeri*/   
-        num1Clm.setCellValueFactory(cellData -> {
-            List<NumeroTel> numeri = cellData.getValue().getNumeriTel();
-            return new SimpleStringProperty(!numeri.isEmpty() ? numeri.get(0).toString() : "");
-        });
-    /**verifica numero2 della lista di numeri*/         
-        num2Clm.setCellValueFactory(cellData -> {
-            List<NumeroTel> numeri = cellData.getValue().getNumeriTel();
-            return new SimpleStringProperty(numeri.size() > 1 ? numeri.get(1).toString() : "");
-        });
-     /**verifica numero3 della lista di numeri*/        
-        num3Clm.setCellValueFactory(cellData -> {
-            List<NumeroTel> numeri = cellData.getValue().getNumeriTel();
-            return new SimpleStringProperty(numeri.size() > 2 ? numeri.get(2).toString() : "");
-        });
-    /**verifica email1 della lista di email*/        
-        mail1Clm.setCellValueFactory(cellData -> {
-            List<Email> emails = cellData.getValue().getIndirizziEmail();
-            return new SimpleStringProperty(!emails.isEmpty() ? emails.get(0).toString() : "");
-        });
-    /**verifica email2 della lista di email*/         
-        mail2Clm.setCellValueFactory(cellData -> {
-            List<Email> emails = cellData.getValue().getIndirizziEmail();
-            return new SimpleStringProperty(emails.size() > 1 ? emails.get(1).toString() : "");
-        });
-    /**verifica email3 della lista di email*/       
-        mail3Clm.setCellValueFactory(cellData -> {
-            List<Email> emails = cellData.getValue().getIndirizziEmail();
-            return new SimpleStringProperty(emails.size() > 2 ? emails.get(2).toString() : "");
-        });
+        nameClm.setCellFactory(colonna -> new CellaContatto((c, buffer) -> c.getNome()));
+        surnameClm.setCellFactory(colonna -> new CellaContatto((c, buffer) -> c.getCognome()));
+        num1Clm.setCellFactory(colonna -> new CellaContatto(telefono(0)));
+        num2Clm.setCellFactory(colonna -> new CellaContatto(telefono(1)));
+        num3Clm.setCellFactory(colonna -> new CellaContatto(telefono(2)));
+        mail1Clm.setCellFactory(colonna -> new CellaContatto(email(0)));
+        mail2Clm.setCellFactory(colonna -> new CellaContatto(email(1)));
+        mail3Clm.setCellFactory(colonna -> new CellaContatto(email(2)));
+        for (TableColumn<Contatto, ?> colonna : contattoTable.getColumns()) {
+            colonna.setSortable(false);
+        }
     }
-     /**
+    /**
      * @}
-     */  
+     */
+    /**
+     * @brief Campo di un contatto mostrato da una colonna
+     */
+    private interface Campo {
+        /**
+         * @param contatto il contatto della riga
+         * @param buffer testo vuoto riusato dalla cella, per i campi da ricostruire
+         * @return il testo: una stringa del contatto, oppure buffer dopo averlo riempito
+         */
+        CharSequence testo(Contatto contatto, StringBuilder buffer);
+    }
+
+    private static Campo telefono(int indice) {
+        return (c, buffer) -> {
+            c.scriviTelefono(indice, buffer);
+            return buffer;
+        };
+    }
+
+    private static Campo email(int indice) {
+        return (c, buffer) -> {
+            c.scriviEmail(indice, buffer);
+            return buffer;
+        };
+    }
+    /**
+     * @brief Cella che mostra un campo del contatto della sua riga
+     * Il testo viene ricalcolato a ogni cambio di indice, che la TableView esegue
+     * anche quando il contatto in quella posizione viene sostituito. Numeri ed
+     * email vengono ricostruiti dai campi compressi del contatto in un buffer
+     * della cella, senza creare oggetti NumeroTel o Email; una nuova stringa
+     * serve solo se il testo è diverso da quello già mostrato. Lo scorrimento
+     * ripete updateIndex sullo stesso contatto, che non costa nulla: i contatti
+     * in rubrica non cambiano dopo l'inserimento.
+     */
+    private static final class CellaContatto extends TableCell<Contatto, String> {
+        private final Campo campo;
+        private final StringBuilder buffer = new StringBuilder();
+        private Contatto mostrato;
+
+        CellaContatto(Campo campo) {
+            this.campo = campo;
+        }
+
+        @Override
+        public void updateIndex(int indice) {
+            super.updateIndex(indice);
+            List<Contatto> righe = getTableView() == null ? null : getTableView().getItems();
+            Contatto contatto = righe == null || indice < 0 || indice >= righe.size() ? null : righe.get(indice);
+            if (contatto == mostrato && (contatto != null || getText() == null)) {
+                return;
+            }
+            mostrato = contatto;
+            if (contatto == null) {
+                setText(null);
+                return;
+            }
+            buffer.setLength(0);
+            CharSequence testo = campo.testo(contatto, buffer);
+            if (testo instanceof String) {
+                setText((String) testo);
+            } else if (testo.length() == 0) {
+                setText("");
+            } else if (!uguale(getText(), testo)) {
+                setText(testo.toString());
+            }
+        }
+
+        private static boolean uguale(String attuale, CharSequence testo) {
+            return attuale != null && attuale.contentEquals(testo);
+        }
+    }
      /**
      * @name setupTableSelection()
      * @{
@@ -179,6 +314,58 @@ public class RubricaController implements Initializable{
      /**
      * @}
      */  
+    /**
+     * @name setupRicercaDigitazione()
+     * @{
+     * @brief aggiorna suggerimenti e risultati di ricerca mentre si digita in searchField
+     * I suggerimenti vengono dall'indice per prefisso e si aggiornano subito; la
+     * ricerca parte quando la digitazione si ferma per ATTESA_RICERCA.
+     * function private void
+     */
+    private void setupRicercaDigitazione() {
+        pausaRicerca.setOnFinished(e -> avviaRicerca(searchField.getText()));
+        searchField.textProperty().addListener((obs, vecchioTesto, nuovoTesto) -> {
+            mostraSuggerimenti(nuovoTesto);
+            pausaRicerca.playFromStart();
+        });
+        searchField.focusedProperty().addListener((obs, aveva, ha) -> {
+            if (!ha) {
+                suggerimenti.hide();
+            }
+        });
+    }
+    /**
+     * @}
+     */
+    /**
+     * @name mostraSuggerimenti()
+     * @{
+     * @brief mostra sotto searchField i completamenti del testo digitato
+     * @param testo testo attuale di searchField
+     * function private void
+     */
+    private void mostraSuggerimenti(String testo) {
+        List<String> completamenti = rubrica.completamenti(testo, MAX_SUGGERIMENTI);
+        if (completamenti.isEmpty() || !searchField.isFocused()) {
+            suggerimenti.hide();
+            return;
+        }
+        suggerimenti.getItems().clear();
+        for (String completamento : completamenti) {
+            MenuItem voce = new MenuItem(completamento);
+            voce.setOnAction(e -> {
+                searchField.setText(completamento);
+                searchField.positionCaret(completamento.length());
+            });
+            suggerimenti.getItems().add(voce);
+        }
+        if (!suggerimenti.isShowing()) {
+            suggerimenti.show(searchField, Side.BOTTOM, 0, 0);
+        }
+    }
+    /**
+     * @}
+     */
     /**
      * @name handleAggiungiContatto()
      * @{
@@ -188,25 +375,20 @@ public class RubricaController implements Initializable{
      */
     @FXML
     public void handleAggiungiContatto() {
+        if (caricamento != null) {
+            return;
+        }
         if (!validateInputs()) {
             mostraErrore("Errore", "Nome o cognome non possono essere vuoti");
             return;
         }
     /**uso try*/    
         try {
-            Contatto nuovoContatto = new Contatto(
-                nameField.getText().trim(),
-                surnameField.getText().trim(),
-                new NumeroTel(num1Field.getText().trim()),
-                new NumeroTel(num2Field.getText().trim()),
-                new NumeroTel(num3Field.getText().trim()),
-                new Email(mail1Field.getText().trim()),
-                new Email(mail2Field.getText().trim()),
-                new Email(mail3Field.getText().trim())
-            );
+            Contatto nuovoContatto = contattoDaiCampi();
             
+            VersioneRubrica prima = rubrica.versione();
             rubrica.aggiungiContatto(nuovoContatto);
-            aggiornaTabella();
+            ricordaVersione(prima);
             svuotaCampi();
     /**catch illegalArgumentException e*/        
         } catch (IllegalArgumentException e) {
@@ -224,6 +406,10 @@ public class RubricaController implements Initializable{
      */
     @FXML
     public void handleModificaContatto() {
+        if (caricamento != null) {
+            //la tabella mostra i contatti in arrivo, non quelli della rubrica
+            return;
+        }
         Contatto selected = contattoTable.getSelectionModel().getSelectedItem();
     
         if (selected == null) {
@@ -237,8 +423,10 @@ public class RubricaController implements Initializable{
         }
     
         try {
-            rubrica.rimuoviContatto(selected);
-            handleAggiungiContatto();
+            VersioneRubrica prima = rubrica.versione();
+            rubrica.modificaContatto(selected, contattoDaiCampi());
+            ricordaVersione(prima);
+            svuotaCampi();
         } catch (IllegalArgumentException e) {
             mostraErrore("Errore", "Formato non valido per uno dei campi: " + e.getMessage());
         }
@@ -255,15 +443,16 @@ public class RubricaController implements Initializable{
     @FXML
     public void handleRimuoviContatto() {
         final Contatto selected = contattoTable.getSelectionModel().getSelectedItem();
-        if (selected != null) {
+        if (selected != null && caricamento == null) {
             Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
             alert.setTitle("Conferma eliminazione");
             alert.setContentText("Sei sicuro di voler eliminare questo contatto?");
             
             alert.showAndWait().ifPresent(response -> {
                 if (response == ButtonType.OK) {
+                    VersioneRubrica prima = rubrica.versione();
                     rubrica.rimuoviContatto(selected);
-                    aggiornaTabella();
+                    ricordaVersione(prima);
                     svuotaCampi();
                 }
             });
@@ -272,6 +461,64 @@ public class RubricaController implements Initializable{
     /**
      * @}
      */
+    /**
+     * @name handleAnnullaModifica()
+     * @{
+     * @brief Annulla l'ultima aggiunta, modifica o eliminazione di un contatto
+     * La rubrica torna alla versione precedente applicando solo le differenze,
+     * e la tabella si aggiorna tramite l'ascoltatore come per ogni modifica.
+     * function public void
+     */
+    @FXML
+    public void handleAnnullaModifica() {
+        if (annullabili.isEmpty() || caricamento != null) {
+            return;
+        }
+        ripetibili.push(rubrica.versione());
+        rubrica.ripristina(annullabili.pop());
+        svuotaCampi();
+        aggiornaAnnullamenti();
+    }
+    /**
+     * @}
+     */
+    /**
+     * @name handleRipetiModifica()
+     * @{
+     * @brief Ripete l'ultima modifica annullata con handleAnnullaModifica
+     * function public void
+     */
+    @FXML
+    public void handleRipetiModifica() {
+        if (ripetibili.isEmpty() || caricamento != null) {
+            return;
+        }
+        annullabili.push(rubrica.versione());
+        rubrica.ripristina(ripetibili.pop());
+        svuotaCampi();
+        aggiornaAnnullamenti();
+    }
+    /**
+     * @}
+     */
+    /**
+     * @brief Ricorda la versione precedente a una modifica appena fatta
+     * Una nuova modifica rende impossibile ripetere quelle annullate.
+     * @param prima la versione restituita da rubrica.versione() prima della modifica
+     */
+    private void ricordaVersione(VersioneRubrica prima) {
+        annullabili.push(prima);
+        if (annullabili.size() > MAX_ANNULLAMENTI) {
+            annullabili.removeLast();
+        }
+        ripetibili.clear();
+        aggiornaAnnullamenti();
+    }
+
+    private void aggiornaAnnullamenti() {
+        annullaModificaBtn.setDisable(annullabili.isEmpty() || caricamento != null);
+        ripetiModificaBtn.setDisable(ripetibili.isEmpty() || caricamento != null);
+    }
     /**
      * @name handleRicerca()
      * @{
@@ -280,8 +527,69 @@ public class RubricaController implements Initializable{
      */
     @FXML
     public void handleRicerca() {
-        String query = searchField.getText();
-        contacts.setAll(rubrica.cercaContatto(query));
+        pausaRicerca.stop();
+        avviaRicerca(searchField.getText());
+    }
+    /**
+     * @}
+     */
+    /**
+     * @name avviaRicerca()
+     * @{
+     * @brief Esegue cercaContatto in background e mette il risultato in tabella
+     * Se la ricerca esatta non trova nulla, ad esempio per un errore di
+     * battitura, in tabella vanno i risultati di cercaPerSuono o, se anche
+     * questa non trova nulla, quelli di cercaApprossimata.
+     * Una ricerca più recente interrompe quella in corso, e un risultato arriva in
+     * tabella solo se nel frattempo non ne è stata avviata un'altra. Ogni
+     * ricerca prende il lock di lettura della rubrica solo per il tempo della
+     * ricerca stessa: una modifica dal thread JavaFX attende al più quella.
+     * Se la rubrica è cambiata dall'avvio della ricerca, il risultato potrebbe
+     * non contenere la modifica, già riportata in tabella dall'ascoltatore:
+     * invece di mostrarlo la ricerca viene ripetuta.
+     * @param query testo da cercare
+     * function private void
+     */
+    private void avviaRicerca(String query) {
+        if (ricercaInCorso != null) {
+            ricercaInCorso.cancel(true);
+        }
+        if (query.trim().isEmpty()) {
+            aggiornaTabella();
+            return;
+        }
+        final long numero = ++numeroRicerca;
+        final Rubrica daCercare = rubrica;
+        //la rubrica si modifica solo dal thread JavaFX: è la versione su cui la ricerca parte
+        final VersioneRubrica versione = rubrica.versione();
+        ricercaInCorso = esecutoreRicerca.submit(() -> {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            List<Contatto> risultati = daCercare.cercaContatto(query);
+            //nessun risultato esatto: prima i nomi che suonano uguali, poi quelli più simili
+            if (risultati.isEmpty() && !Thread.currentThread().isInterrupted()) {
+                risultati = daCercare.cercaPerSuono(query);
+            }
+            int distanza = Math.min(DISTANZA_MAX, query.trim().length() / CARATTERI_PER_ERRORE);
+            if (risultati.isEmpty() && distanza > 0 && !Thread.currentThread().isInterrupted()) {
+                risultati = daCercare.cercaApprossimata(query, distanza, MAX_APPROSSIMATI);
+            }
+            final List<Contatto> trovati = risultati;
+            if (!Thread.currentThread().isInterrupted()) {
+                Platform.runLater(() -> {
+                    if (numero != numeroRicerca || daCercare != rubrica) {
+                        return;
+                    }
+                    if (rubrica.versione() != versione) {
+                        avviaRicerca(query);
+                    } else {
+                        tabellaCompleta = false;
+                        contacts.setAll(trovati);
+                    }
+                });
+            }
+        });
     }
     /**
      * @}
@@ -290,10 +598,16 @@ public class RubricaController implements Initializable{
      * @name handleSalvataggio
      * @{
      * @brief Gestisce il salvataggio della rubrica
+     * Viene salvata la versione dei contatti presa al momento della richiesta, che
+     * costa O(1) sul thread JavaFX, su un thread in background: si può continuare a modificare la rubrica, e le
+     * modifiche fatte nel frattempo finiranno nel salvataggio successivo.
      * function public void
      */
     @FXML
     public void handleSalvataggio() {
+        if (caricamento != null || salvataggio != null) {
+            return;
+        }
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Salva Rubrica");
         fileChooser.getExtensionFilters().add(
@@ -301,29 +615,56 @@ public class RubricaController implements Initializable{
         
         File file = fileChooser.showSaveDialog(contattoTable.getScene().getWindow());
         if (file != null) {
-            /**try*/
-            try {
-                rubrica.salvaFile(file.getAbsolutePath());
+            final VersioneRubrica fotografia = rubrica.versione();
+            final String percorso = file.getAbsolutePath();
+            salvataggio = new Task<Void>() {
+                @Override
+                protected Void call() throws Exception {
+                    Rubrica.salvaFotografia(fotografia, percorso, (scritti, totali) -> updateProgress(scritti, totali));
+                    return null;
+                }
+            };
+            salvataggio.setOnSucceeded(e -> {
+                fineSalvataggio();
                 mostraInfo("Successo", "Rubrica salvata correttamente");
-            /**catch IOException e*/
-            } catch (IOException e) {
-                mostraErrore("Errore", "Errore durante il salvataggio del file: " + e.getMessage());
+            });
+            salvataggio.setOnCancelled(e -> fineSalvataggio());
+            salvataggio.setOnFailed(e -> {
+                Throwable errore = salvataggio.getException();
+                fineSalvataggio();
+                mostraErrore("Errore", "Errore durante il salvataggio del file: " + errore.getMessage());
                 Logger.getLogger(RubricaController.class.getName())
-                      .log(Level.SEVERE, "Errore salvataggio file", e);
-            }
+                      .log(Level.SEVERE, "Errore salvataggio file", errore);
+            });
+            avanzamentoProgress.progressProperty().bind(salvataggio.progressProperty());
+            mostraAvanzamento(true);
+            Thread thread = new Thread(salvataggio, "salvataggio-rubrica");
+            thread.setDaemon(true);
+            thread.start();
         }
     }
     /**
      * @}
      */
+    private void fineSalvataggio() {
+        avanzamentoProgress.progressProperty().unbind();
+        salvataggio = null;
+        mostraAvanzamento(false);
+    }
     /**
      * @name handleCaricamento
      * @{
      * @brief Gestisce il caricamento della rubrica
+     * Il file viene letto in una rubrica nuova su un thread in background: la
+     * barra mostra i byte letti, i contatti compaiono in tabella a lotti e la
+     * rubrica attuale viene sostituita solo a caricamento riuscito.
      * function public void
      */
     @FXML
     public void handleCaricamento() {
+        if (caricamento != null || salvataggio != null) {
+            return;
+        }
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Carica Rubrica");
         fileChooser.getExtensionFilters().add(
@@ -331,32 +672,215 @@ public class RubricaController implements Initializable{
         
         File file = fileChooser.showOpenDialog(contattoTable.getScene().getWindow());
         if (file != null) {
-            /**try*/
-            try {
-                rubrica.caricaFile(file.getAbsolutePath());
-                aggiornaTabella();
+            caricamento = new CaricamentoRubrica(file.getAbsolutePath());
+            caricamento.setOnSucceeded(e -> {
+                rubrica = caricamento.getValue();
+                //le versioni della rubrica precedente non riguardano quella caricata
+                annullabili.clear();
+                ripetibili.clear();
+                aggiornaAnnullamenti();
+                fineCaricamento();
                 mostraInfo("Successo", "Rubrica caricata correttamente");
-            /**catch IOException e*/
-            } catch (IOException e) {
-                mostraErrore("Errore", "Errore durante il caricamento del file: " + e.getMessage());
+            });
+            caricamento.setOnCancelled(e -> fineCaricamento());
+            caricamento.setOnFailed(e -> {
+                Throwable errore = caricamento.getException();
+                fineCaricamento();
+                mostraErrore("Errore", "Errore durante il caricamento del file: " + errore.getMessage());
                 Logger.getLogger(RubricaController.class.getName())
-                      .log(Level.SEVERE, "Errore caricamento file", e);
-            }
+                      .log(Level.SEVERE, "Errore caricamento file", errore);
+            });
+            //durante il caricamento la tabella mostra i contatti letti, non la rubrica attuale
+            rubrica.rimuoviAscoltatore(ascoltatoreTabella);
+            contacts.clear();
+            avanzamentoProgress.progressProperty().bind(caricamento.progressProperty());
+            mostraCaricamento(true);
+            Thread thread = new Thread(caricamento, "caricamento-rubrica");
+            thread.setDaemon(true);
+            thread.start();
         }
     }
     /**
      * @}
      */
+    /**
+     * @name handleAnnullaOperazione
+     * @{
+     * @brief Interrompe il caricamento o il salvataggio in corso
+     * La rubrica e il file di destinazione restano com'erano.
+     * function public void
+     */
+    @FXML
+    public void handleAnnullaOperazione() {
+        if (caricamento != null) {
+            caricamento.cancel();
+        }
+        if (salvataggio != null) {
+            salvataggio.cancel();
+        }
+    }
+    /**
+     * @}
+     */
+    /**
+     * @name fineCaricamento()
+     * @{
+     * @brief Riporta l'interfaccia allo stato normale e mostra la rubrica attuale
+     * function private void
+     */
+    private void fineCaricamento() {
+        avanzamentoProgress.progressProperty().unbind();
+        caricamento = null;
+        mostraCaricamento(false);
+        rubrica.aggiungiAscoltatore(ascoltatoreTabella);
+        aggiornaTabella();
+    }
+    /**
+     * @}
+     */
+    /**
+     * @brief Blocca tutto ciò che modifica la rubrica finché il caricamento è in corso
+     * La tabella mostra i contatti letti dal file: modificarli o eliminarli
+     * agirebbe per id sulla rubrica precedente, che verrà comunque sostituita.
+     */
+    private void mostraCaricamento(boolean inCorso) {
+        mostraAvanzamento(inCorso);
+        saveBtn.setDisable(inCorso);
+        ModificaBtnContatto.setDisable(inCorso);
+        EliminaBtnContatto.setDisable(inCorso);
+        searchField.setDisable(inCorso);
+        cercaBtnRubrica.setDisable(inCorso);
+        aggiornaAnnullamenti();
+    }
+    /**
+     * @brief Mostra barra e pulsante di annullamento e blocca un nuovo caricamento o salvataggio
+     */
+    private void mostraAvanzamento(boolean inCorso) {
+        avanzamentoProgress.setVisible(inCorso);
+        annullaOperazioneBtn.setVisible(inCorso);
+        caricamentoBtnRubrica.setDisable(inCorso);
+        salvataggioBtnRubrica.setDisable(inCorso);
+    }
+    /**
+     * @brief Task che carica un file in una rubrica nuova e pubblica i contatti a lotti
+     * I lotti arrivano dal thread del caricamento e vengono accodati: il thread
+     * JavaFX li aggiunge alla tabella tutti insieme, con al più un runLater in
+     * attesa alla volta, così da non sommergerlo quando la lettura è più veloce.
+     */
+    private final class CaricamentoRubrica extends Task<RubricaConcorrente> {
+        private final String percorso;
+        private final ConcurrentLinkedQueue<List<Contatto>> lotti = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean pubblicazionePrevista = new AtomicBoolean();
+
+        CaricamentoRubrica(String percorso) {
+            this.percorso = percorso;
+        }
+
+        @Override
+        protected RubricaConcorrente call() throws Exception {
+            RubricaConcorrente nuova = new RubricaConcorrente();
+            nuova.caricaFile(percorso, (lotto, byteLetti, byteTotali) -> {
+                updateProgress(byteLetti, byteTotali);
+                lotti.add(lotto);
+                if (pubblicazionePrevista.compareAndSet(false, true)) {
+                    Platform.runLater(this::pubblicaLotti);
+                }
+            });
+            return nuova;
+        }
+
+        private void pubblicaLotti() {
+            pubblicazionePrevista.set(false);
+            if (caricamento != this) {
+                //caricamento annullato o già concluso
+                return;
+            }
+            List<Contatto> nuovi = new ArrayList<>();
+            for (List<Contatto> lotto = lotti.poll(); lotto != null; lotto = lotti.poll()) {
+                nuovi.addAll(lotto);
+            }
+            contacts.addAll(nuovi);
+        }
+    }
+    /**
+     * @brief Riporta su contacts le modifiche alla rubrica
+     * Se la tabella mostra tutta la rubrica ogni modifica tocca solo la riga
+     * coinvolta, e la TableView ridisegna solo quella; se mostra i risultati di
+     * una ricerca, la ricerca viene ripetuta.
+     */
+    private final class AscoltatoreTabella implements AscoltatoreRubrica {
+        @Override
+        public void inserito(int posizione, Contatto contatto) {
+            if (tabellaCompleta) {
+                contacts.add(posizione, contatto);
+            } else {
+                avviaRicerca(searchField.getText());
+            }
+        }
+
+        @Override
+        public void rimosso(int posizione, Contatto contatto) {
+            if (tabellaCompleta) {
+                contacts.remove(posizione);
+            } else {
+                avviaRicerca(searchField.getText());
+            }
+        }
+
+        @Override
+        public void aggiornato(int posizione, Contatto contatto) {
+            if (tabellaCompleta) {
+                contacts.set(posizione, contatto);
+            } else {
+                avviaRicerca(searchField.getText());
+            }
+        }
+
+        @Override
+        public void ricaricato() {
+            if (tabellaCompleta) {
+                aggiornaTabella();
+            } else {
+                avviaRicerca(searchField.getText());
+            }
+        }
+    }
     /**
      * @name aggiornaTabella()
      * @{
-     * @brief aggiornaTabella
-     * @post contacts settato con i dati del contatto
+     * @brief Mostra in tabella tutta la rubrica
+     * Da qui in poi le modifiche arrivano a contacts tramite ascoltatoreTabella.
+     * @post contacts contiene tutti i contatti della rubrica, in ordine
      * function private void
      */            
     private void aggiornaTabella() {
+        //un risultato di ricerca ancora in arrivo non deve sovrascrivere la tabella
+        numeroRicerca++;
+        tabellaCompleta = true;
         contacts.setAll(rubrica.getContatti());
     }
+    /**
+     * @}
+     */
+    /**
+     * @name contattoDaiCampi()
+     * @{
+     * @brief contattoDaiCampi costruisce un contatto con i valori dei field di testo
+     * @return il nuovo contatto
+     * function private Contatto
+     */
+    private Contatto contattoDaiCampi() {
+        return new Contatto(
+            nameField.getText().trim(),
+            surnameField.getText().trim(),
+            new NumeroTel(num1Field.getText().trim()),
+            new NumeroTel(num2Field.getText().trim()),
+            new NumeroTel(num3Field.getText().trim()),
+            new Email(mail1Field.getText().trim()),
+            new Email(mail2Field.getText().trim()),
+            new Email(mail3Field.getText().trim())
+        );
+    }
     /**
      * @}
      */
@@ -0,0 +1,43 @@
+/**
+ * @file AscoltatoreRubrica.java
+ * @brief Riceve le modifiche all'elenco ordinato dei contatti di una Rubrica
+ * @package it.unisa.se.project.datiAndStrutture
+ * Le posizioni si riferiscono all'elenco restituito da Rubrica.getContatti e
+ * sono già valide nel momento della chiamata: chi tiene una copia dell'elenco
+ * la mantiene uguale applicando le notifiche nell'ordine in cui arrivano.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+/**
+ * @brief interfaccia AscoltatoreRubrica
+ */
+public interface AscoltatoreRubrica {
+    /**
+     * @brief Un contatto è stato inserito
+     * @param posizione posizione del nuovo contatto
+     * @param contatto il contatto inserito
+     */
+    void inserito(int posizione, Contatto contatto);
+
+    /**
+     * @brief Un contatto è stato rimosso
+     * @param posizione posizione che il contatto occupava
+     * @param contatto il contatto rimosso
+     */
+    void rimosso(int posizione, Contatto contatto);
+
+    /**
+     * @brief Un contatto è stato modificato senza cambiare posizione
+     * Se la modifica sposta il contatto arrivano invece rimosso e inserito.
+     * @param posizione posizione del contatto
+     * @param contatto il contatto aggiornato, che sostituisce il precedente
+     */
+    void aggiornato(int posizione, Contatto contatto);
+
+    /**
+     * @brief L'elenco è cambiato troppo per descriverlo contatto per contatto
+     * Succede con i caricamenti da file e con gli inserimenti di lotti grandi:
+     * l'elenco va riletto per intero.
+     */
+    void ricaricato();
+}
@@ -0,0 +1,28 @@
+/**
+ * @file AvanzamentoCaricamento.java
+ * @brief Riceve i contatti man mano che Rubrica.caricaFile li legge
+ * @package it.unisa.se.project.datiAndStrutture
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of AvanzamentoCaricamento.java
+ * @{
+ */
+import java.util.List;
+/**
+ * @}
+ */
+
+/**
+ * @brief interfaccia AvanzamentoCaricamento
+ */
+public interface AvanzamentoCaricamento {
+    /**
+     * @brief Chiamato sul thread del caricamento dopo ogni lotto di righe
+     * @param lotto contatti letti dall'ultima chiamata, nell'ordine del file;
+     *        la lista appartiene a chi la riceve
+     * @param byteLetti byte del file letti finora
+     * @param byteTotali dimensione del file
+     */
+    void righeLette(List<Contatto> lotto, long byteLetti, long byteTotali);
+}
@@ -0,0 +1,18 @@
+/**
+ * @file AvanzamentoSalvataggio.java
+ * @brief Riceve l'avanzamento di Rubrica.salvaFotografia
+ * @package it.unisa.se.project.datiAndStrutture
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+/**
+ * @brief interfaccia AvanzamentoSalvataggio
+ */
+public interface AvanzamentoSalvataggio {
+    /**
+     * @brief Chiamato sul thread del salvataggio dopo ogni lotto di contatti scritti
+     * @param scritti contatti scritti finora
+     * @param totali contatti da scrivere
+     */
+    void contattiScritti(int scritti, int totali);
+}
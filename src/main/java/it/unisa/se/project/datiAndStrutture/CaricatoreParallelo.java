@@ -0,0 +1,224 @@
+/**
+ * @file CaricatoreParallelo.java
+ * @brief Lettura parallela di un file CSV mappato in memoria
+ * @package it.unisa.se.project.datiAndStrutture
+ * Il file viene diviso in pezzi che iniziano subito dopo un '\n'. Ogni pezzo
+ * viene mappato con FileChannel.map e letto da un LettoreCsv su un thread del
+ * pool fork-join; i contatti di ciascun pezzo vengono poi ordinati sullo stesso
+ * thread. Se un campo tra virgolette contiene un a capo proprio al confine di un
+ * pezzo il lettore se ne accorge e la lettura parallela viene abbandonata, così
+ * il risultato è sempre identico a quello del caricamento sequenziale.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of CaricatoreParallelo.java
+ * @{
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe CaricatoreParallelo usata da Rubrica.caricaFileParallelo
+ */
+final class CaricatoreParallelo {
+    /**
+     * @public DIMENSIONE_MINIMA sotto questa dimensione il file si legge in modo sequenziale
+     * @private PEZZO_MASSIMO dimensione massima di un pezzo, entro il limite di FileChannel.map
+     * @private PEZZI_PER_THREAD pezzi per thread, per bilanciare righe di lunghezza diversa
+     */
+    static final long DIMENSIONE_MINIMA = 1L << 22;
+    private static final long PEZZO_MASSIMO = 1L << 30;
+    private static final int PEZZI_PER_THREAD = 4;
+
+    private CaricatoreParallelo() {
+    }
+
+    /**
+     * @brief Contatti letti da un pezzo di file
+     */
+    static final class Pezzo {
+        /**
+         * @private righe contatti nell'ordine del file
+         * @private ordinati gli stessi contatti ordinati secondo VersioneRubrica.confronta
+         * @private senzaId posizioni in righe dei contatti senza id nel file: l'id
+         * ricevuto alla costruzione dipende dal thread, la rubrica li rinumera
+         * nell'ordine del file
+         */
+        final List<Contatto> righe;
+        final List<Contatto> ordinati;
+        final BitSet senzaId;
+
+        Pezzo(List<Contatto> righe, List<Contatto> ordinati, BitSet senzaId) {
+            this.righe = righe;
+            this.ordinati = ordinati;
+            this.senzaId = senzaId;
+        }
+    }
+
+    /**
+     * @name leggi()
+     * @{
+     * @brief Legge in parallelo tutte le righe del file dopo l'intestazione
+     * @param canale canale aperto in lettura sul file
+     * @param pool pool su cui leggere i pezzi
+     * @return i pezzi in ordine di file, oppure null se i confini dei pezzi
+     *         cadono dentro un campo tra virgolette
+     * @throws IOException in caso di errori di I/O
+     */
+    static List<Pezzo> leggi(FileChannel canale, ForkJoinPool pool) throws IOException {
+        long dimensione = canale.size();
+        int numeroPezzi = (int) Math.max((long) pool.getParallelism() * PEZZI_PER_THREAD,
+                (dimensione + PEZZO_MASSIMO - 1) / PEZZO_MASSIMO);
+        long[] confini = new long[numeroPezzi + 1];
+        confini[numeroPezzi] = dimensione;
+        for (int i = 1; i < numeroPezzi; i++) {
+            long nominale = Math.max(dimensione / numeroPezzi * i, confini[i - 1]);
+            confini[i] = inizioRiga(canale, nominale);
+        }
+
+        List<Callable<Pezzo>> compiti = new ArrayList<>(numeroPezzi);
+        for (int i = 0; i < numeroPezzi; i++) {
+            final long inizio = confini[i];
+            final long fine = confini[i + 1];
+            final boolean primo = i == 0;
+            if (fine - inizio > PEZZO_MASSIMO) {
+                //una sola riga più lunga di un pezzo: meglio la lettura sequenziale
+                return null;
+            }
+            compiti.add(() -> leggiPezzo(canale, inizio, fine, primo));
+        }
+
+        List<Pezzo> pezzi = new ArrayList<>(numeroPezzi);
+        try {
+            for (Future<Pezzo> futuro : pool.invokeAll(compiti)) {
+                Pezzo pezzo = futuro.get();
+                if (pezzo == null) {
+                    return null;
+                }
+                pezzi.add(pezzo);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Caricamento interrotto", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        return pezzi;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @name fondi()
+     * @{
+     * @brief Fonde le sequenze ordinate dei pezzi in un'unica lista ordinata
+     * A parità di ordinamento viene prima il contatto del pezzo precedente, quindi
+     * il risultato coincide con un ordinamento stabile dell'intero file.
+     * @param pezzi i pezzi in ordine di file
+     * @return tutti i contatti ordinati
+     */
+    static List<Contatto> fondi(List<Pezzo> pezzi) {
+        int totale = 0;
+        for (Pezzo pezzo : pezzi) {
+            totale += pezzo.ordinati.size();
+        }
+        List<Contatto> fusi = new ArrayList<>(totale);
+        //testa di ogni sequenza: {indice del pezzo, posizione nel pezzo}
+        PriorityQueue<int[]> teste = new PriorityQueue<>(Math.max(1, pezzi.size()), (a, b) -> {
+            int confronto = VersioneRubrica.confronta(pezzi.get(a[0]).ordinati.get(a[1]), pezzi.get(b[0]).ordinati.get(b[1]));
+            return confronto != 0 ? confronto : Integer.compare(a[0], b[0]);
+        });
+        for (int i = 0; i < pezzi.size(); i++) {
+            if (!pezzi.get(i).ordinati.isEmpty()) {
+                teste.add(new int[]{i, 0});
+            }
+        }
+        while (!teste.isEmpty()) {
+            int[] testa = teste.poll();
+            List<Contatto> sequenza = pezzi.get(testa[0]).ordinati;
+            fusi.add(sequenza.get(testa[1]));
+            if (++testa[1] < sequenza.size()) {
+                teste.add(testa);
+            }
+        }
+        return fusi;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Legge e ordina un pezzo di file
+     * @return il pezzo, oppure null se termina dentro un campo tra virgolette
+     */
+    private static Pezzo leggiPezzo(FileChannel canale, long inizio, long fine, boolean primo) throws IOException {
+        List<Contatto> righe = new ArrayList<>();
+        BitSet senzaId = new BitSet();
+        if (fine > inizio) {
+            LettoreCsv lettore = new LettoreCsv(canale.map(FileChannel.MapMode.READ_ONLY, inizio, fine - inizio), primo);
+            if (primo) {
+                //salta l'intestazione
+                lettore.prossimaRiga();
+            }
+            while (lettore.prossimaRiga()) {
+                Contatto nuovoContatto = Rubrica.contattoDaRiga(lettore);
+                if (nuovoContatto != null) {
+                    if (Rubrica.leggiId(lettore.campo(8)) == 0) {
+                        senzaId.set(righe.size());
+                    }
+                    righe.add(nuovoContatto);
+                } else {
+                    System.err.println("Contatto ignorato: tutti i campi sono vuoti.");
+                }
+            }
+            if (lettore.virgoletteAperte()) {
+                return null;
+            }
+        }
+        List<Contatto> ordinati = new ArrayList<>(righe);
+        ordinati.sort(VersioneRubrica::confronta);
+        return new Pezzo(righe, ordinati, senzaId);
+    }
+
+    /**
+     * @brief Prima posizione, a partire da quella data, che segue un '\n'
+     */
+    private static long inizioRiga(FileChannel canale, long da) throws IOException {
+        if (da == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 13);
+        long posizione = da - 1;
+        long dimensione = canale.size();
+        while (posizione < dimensione) {
+            buffer.clear();
+            int letti = canale.read(buffer, posizione);
+            if (letti <= 0) {
+                break;
+            }
+            for (int i = 0; i < letti; i++) {
+                if (buffer.get(i) == '\n') {
+                    return posizione + i + 1;
+                }
+            }
+            posizione += letti;
+        }
+        return dimensione;
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * @file ChiaveOrdinamento.java
+ * @brief Chiavi di ordinamento dei contatti, calcolate una volta sola
+ * @package it.unisa.se.project.datiAndStrutture
+ * La chiave di un contatto contiene cognome e nome ripiegati secondo le regole
+ * usate negli elenchi italiani: maiuscole e minuscole non contano e le lettere
+ * accentate stanno accanto a quelle senza accento ("Nicolò" subito dopo
+ * "Nicolo" e non dopo la "z"). Viene calcolata quando il contatto nasce o
+ * cambia nome, così ogni confronto durante ordinamenti e ricerche binarie è un
+ * confronto di byte, e quasi sempre di un solo long (vedi prefisso).
+ *
+ * Struttura della chiave di un testo, come in un Collator a due livelli:
+ * - un byte per carattere con la lettera base in minuscolo ("ò" diventa "o");
+ *   i caratteri senza lettera base ASCII usano ESTESO seguito dai due byte
+ *   del carattere in minuscolo, e vengono dopo tutti gli altri;
+ * - solo se il testo contiene accenti, SEPARATORE e un byte per carattere con
+ *   l'accento, che decide tra testi uguali a meno degli accenti.
+ * La chiave del contatto è quella del cognome, FINE e quella del nome. FINE e
+ * SEPARATORE sono minori di ogni altro byte, quindi un cognome viene sempre
+ * prima dei cognomi che lo estendono, qualunque sia il nome.
+ * Un Collator di java.text darebbe lo stesso ordine per i nomi italiani, ma
+ * costa diversi microsecondi per contatto e produce chiavi quattro volte più lunghe.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of ChiaveOrdinamento.java
+ * @{
+ */
+import java.text.Normalizer;
+import java.util.Arrays;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe ChiaveOrdinamento usata internamente da Contatto
+ */
+final class ChiaveOrdinamento {
+    /**
+     * @private FINE byte tra la chiave del cognome e quella del nome
+     * @private SEPARATORE byte tra le lettere base e gli accenti di un testo
+     * @private SENZA_ACCENTO secondo livello dei caratteri senza accento
+     * @private ESTESO primo byte dei caratteri senza lettera base ASCII
+     */
+    private static final byte FINE = 0;
+    private static final byte SEPARATORE = 1;
+    private static final byte SENZA_ACCENTO = 2;
+    private static final int ESTESO = 0xFF;
+    /**
+     * @private LATINI ultimo carattere, dei blocchi latini, con base e accento precalcolati
+     * @private basi lettera base in minuscolo di ogni carattere fino a LATINI, 0 se non ASCII
+     * @private accenti secondo livello di ogni carattere fino a LATINI
+     */
+    private static final int LATINI = 0x24F;
+    private static final byte[] basi = new byte[LATINI + 1];
+    private static final byte[] accenti = new byte[LATINI + 1];
+
+    static {
+        for (char c = 0; c <= LATINI; c++) {
+            String scomposto = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            char base = Character.toLowerCase(scomposto.charAt(0));
+            //i caratteri di controllo non contano, come in un Collator
+            basi[c] = base < ' ' ? 0 : base < 0x7F ? (byte) base : 0;
+            accenti[c] = SENZA_ACCENTO;
+            if (scomposto.length() > 1 && scomposto.charAt(1) >= 0x300 && scomposto.charAt(1) <= 0x36F) {
+                //i segni diacritici combinanti vanno da U+0300 a U+036F
+                accenti[c] = (byte) (SENZA_ACCENTO + 1 + scomposto.charAt(1) - 0x300);
+            }
+        }
+    }
+
+    private ChiaveOrdinamento() {
+    }
+
+    /**
+     * @name calcola()
+     * @{
+     * @brief Calcola la chiave di un contatto
+     * @param cognome il cognome, confrontato per primo
+     * @param nome il nome
+     * @return la chiave, da confrontare con confronta
+     * @pre cognome != null && nome != null
+     */
+    static byte[] calcola(String cognome, String nome) {
+        //caso peggiore: ESTESO e due byte per carattere, più separatori e accenti
+        byte[] chiave = new byte[4 * (cognome.length() + nome.length()) + 3];
+        int n = codifica(cognome, chiave, 0);
+        chiave[n++] = FINE;
+        n = codifica(nome, chiave, n);
+        return Arrays.copyOf(chiave, n);
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Primi otto byte di una chiave in un long, completati con zeri
+     * Confrontati con Long.compareUnsigned danno lo stesso ordine delle chiavi,
+     * tranne quando sono uguali: allora decide confronta.
+     */
+    static long prefisso(byte[] chiave) {
+        long prefisso = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            prefisso = prefisso << 8 | (i < chiave.length ? chiave[i] & 0xFF : 0);
+        }
+        return prefisso;
+    }
+
+    /**
+     * @name confronta()
+     * @{
+     * @brief Confronta due chiavi byte per byte, senza segno
+     * @return negativo, zero o positivo come compareTo
+     */
+    static int confronta(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            if (a[i] != b[i]) {
+                return (a[i] & 0xFF) - (b[i] & 0xFF);
+            }
+        }
+        return a.length - b.length;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Scrive la chiave di un testo
+     * @return la posizione dopo l'ultimo byte scritto
+     */
+    private static int codifica(String testo, byte[] chiave, int posizione) {
+        boolean accentato = false;
+        for (int i = 0; i < testo.length(); i++) {
+            char c = testo.charAt(i);
+            byte base = c <= LATINI ? basi[c] : 0;
+            if (base != 0) {
+                chiave[posizione++] = base;
+                accentato |= accenti[c] != SENZA_ACCENTO;
+            } else if (c >= ' ') {
+                char minuscolo = Character.toLowerCase(c);
+                chiave[posizione++] = (byte) ESTESO;
+                chiave[posizione++] = (byte) (minuscolo >>> 8);
+                chiave[posizione++] = (byte) minuscolo;
+            }
+        }
+        if (accentato) {
+            chiave[posizione++] = SEPARATORE;
+            for (int i = 0; i < testo.length(); i++) {
+                char c = testo.charAt(i);
+                if (c >= ' ') {
+                    chiave[posizione++] = c <= LATINI ? accenti[c] : SENZA_ACCENTO;
+                }
+            }
+        }
+        return posizione;
+    }
+}
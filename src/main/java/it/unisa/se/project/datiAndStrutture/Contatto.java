@@ -4,9 +4,13 @@
  * @package it.unisa.se.project.datiAndStrutture
  * Ogni contatto ha un nome, un cognome e può avere fino a tre numeri di telefono
  * e tre indirizzi email.
+ * Numeri ed email non sono tenuti in liste di oggetti NumeroTel ed Email ma in
+ * campi del contatto: i numeri fatti solo di cifre, '+', spazi e '-' occupano un
+ * long ciascuno (vedi NumeroTel.comprimi), le email la parte locale e il numero
+ * del dominio nel DizionarioDomini, e gli slot vuoti la stringa vuota
+ * condivisa. Gli oggetti NumeroTel ed Email vengono creati solo quando
+ * qualcuno li chiede.
  * 
- * @invariant numeriTel.size() <= TELEFONI_MAX
- * @invariant indirizziEmail.size() <= EMAIL_MAX
  * @invariant nome != null && cognome != null
  */
 package it.unisa.se.project.datiAndStrutture;
@@ -15,8 +19,7 @@ package it.unisa.se.project.datiAndStrutture;
  * @{
  */
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
  /**
  * @}
  */
@@ -28,22 +31,48 @@ import java.util.ArrayList;
  * @implements Comparable<Contatto>
  */
 public class Contatto implements Comparable<Contatto>{
+    /**
+     * @private prossimoId contatore degli id assegnati ai nuovi contatti
+     */
+    private static final AtomicInteger prossimoId = new AtomicInteger(1);
+    /**
+     * @private id identificativo stabile del contatto, assegnato alla costruzione
+     */
+    private int id;
     /**
      * @private nome stringa del contatto
      * @private cognome stringa del contatto
-     * @private numeriTel arraylist del numero di telefono
-     * @private indirizziEmail arraylist indirizzo email
+     * @private tel1, tel2, tel3 numeri di telefono compressi da NumeroTel.comprimi
+     * @private telNonCompressi testo dei numeri che valgono NON_COMPRESSO, null se non ce ne sono
+     * @private locale1, locale2, locale3 parti locali delle email, "" se vuote
+     * @private domini numeri dei domini delle email nel DizionarioDomini, BIT_DOMINIO bit ciascuno
+     * @private dominiEsterni testo dei domini che valgono DizionarioDomini.ESTERNO, null se non ce ne sono
+     * @private chiaveOrdine chiave di ChiaveOrdinamento per cognome e nome, usata da compareTo
+     * @private prefissoOrdine primi otto byte di chiaveOrdine, confrontati per primi
      */
     private String nome;
     private String cognome;
-    private ArrayList<NumeroTel> numeriTel;
-    private ArrayList<Email> indirizziEmail;
+    private long tel1;
+    private long tel2;
+    private long tel3;
+    private String[] telNonCompressi;
+    private String locale1;
+    private String locale2;
+    private String locale3;
+    private long domini;
+    private String[] dominiEsterni;
+    private byte[] chiaveOrdine;
+    private long prefissoOrdine;
     /**
      * @public Telefoni_max numero massimo di telefoni
      * @public email_max numero massimo di email
      */
     public static final int TELEFONI_MAX = 3;
     public static final int EMAIL_MAX = 3;
+    /**
+     * @private BIT_DOMINIO bit usati da ogni numero di dominio dentro domini
+     */
+    private static final int BIT_DOMINIO = 21;
     
     /**
      * @name Contatto()
@@ -58,27 +87,105 @@ public class Contatto implements Comparable<Contatto>{
      * @param mail2 Il secondo indirizzo e-mail
      * @param mail3 Il terzo indirizzo e-mail
      * @pre nome != null && cognome != null
-     * @post getNumeriTel().size() <= TELEFONI_MAX
-     * @post getIndirizziEmail().size() <= EMAIL_MAX
+     * @post getNumeriTel().size() == TELEFONI_MAX
+     * @post getIndirizziEmail().size() == EMAIL_MAX
      *
      */
     public Contatto(String nome, String cognome, NumeroTel num1, NumeroTel num2, NumeroTel num3, Email mail1, Email mail2, Email mail3){
-        this.nome = nome;
-        this.cognome = cognome;
-        numeriTel = new ArrayList<>(TELEFONI_MAX);
-        indirizziEmail = new ArrayList<>(EMAIL_MAX);
-        
-        numeriTel.add(num1);
-        numeriTel.add(num2);
-        numeriTel.add(num3);
-        
-        indirizziEmail.add(mail1);
-        indirizziEmail.add(mail2);
-        indirizziEmail.add(mail3);
+        this(prossimoId.getAndIncrement(), nome, cognome, num1, num2, num3, mail1, mail2, mail3);
+    }
+    /**
+     * @}
+     */
+    /**
+     * @name Contatto() con id
+     * @{
+     * @brief Costruisce un contatto con un id già noto, ad esempio letto da file
+     * Nome e cognome passano per PoolStringhe.condiviso(), così che i valori
+     * ripetuti, frequenti nei file caricati, occupino memoria una volta sola.
+     * @param id L'id del contatto, 0 se il file non ne ha uno: ne riceve subito uno nuovo
+     * @pre id >= 0
+     * @post getId() != 0
+     */
+    Contatto(int id, String nome, String cognome, NumeroTel num1, NumeroTel num2, NumeroTel num3, Email mail1, Email mail2, Email mail3){
+        this.id = id != 0 ? id : prossimoId.getAndIncrement();
+        this.nome = PoolStringhe.condiviso().canonica(nome);
+        this.cognome = PoolStringhe.condiviso().canonica(cognome);
+        aggiornaChiaveOrdine();
+        tel1 = comprimi(0, num1);
+        tel2 = comprimi(1, num2);
+        tel3 = comprimi(2, num3);
+        locale1 = locale(mail1);
+        locale2 = locale(mail2);
+        locale3 = locale(mail3);
+        domini = dominio(0, mail1) | (long) dominio(1, mail2) << BIT_DOMINIO | (long) dominio(2, mail3) << (2 * BIT_DOMINIO);
     }
     /**
      * @}
      */   
+    /**
+     * @name Contatto() copia
+     * @{
+     * @brief Costruisce una copia di un contatto con un altro id
+     * Le stringhe sono condivise perché immutabili.
+     * @param origine Il contatto da copiare
+     * @param id L'id della copia
+     */
+    Contatto(Contatto origine, int id) {
+        this.id = id;
+        this.nome = origine.nome;
+        this.cognome = origine.cognome;
+        this.chiaveOrdine = origine.chiaveOrdine;
+        this.prefissoOrdine = origine.prefissoOrdine;
+        this.tel1 = origine.tel1;
+        this.tel2 = origine.tel2;
+        this.tel3 = origine.tel3;
+        this.telNonCompressi = origine.telNonCompressi == null ? null : origine.telNonCompressi.clone();
+        this.locale1 = origine.locale1;
+        this.locale2 = origine.locale2;
+        this.locale3 = origine.locale3;
+        this.domini = origine.domini;
+        this.dominiEsterni = origine.dominiEsterni == null ? null : origine.dominiEsterni.clone();
+    }
+    /**
+     * @}
+     */
+    /**
+     * @name getId()
+     * @{
+     * @brief Restituisce l'id stabile del contatto
+     * L'id non cambia con le modifiche fatte tramite Rubrica.modificaContatto
+     * e viene conservato nei salvataggi su file.
+     * @return L'id del contatto
+     */
+    public int getId() {
+        return id;
+    }
+    /**
+     * @}
+     */
+    /**
+     * @brief Imposta l'id, usato dalla rubrica per i contatti letti da file con un id già in uso
+     * @param id Il nuovo id
+     * @pre il contatto non è ancora in nessuna rubrica né in nessuna collezione basata su hash
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+    /**
+     * @brief Genera un id non ancora usato da nessun contatto
+     * @return il nuovo id
+     */
+    static int nuovoId() {
+        return prossimoId.getAndIncrement();
+    }
+    /**
+     * @brief Evita che un id letto da file venga riassegnato a nuovi contatti
+     * @param id id già in uso
+     */
+    static void riservaId(int id) {
+        prossimoId.accumulateAndGet(id + 1, Math::max);
+    }
     /**
      * @nome getNome()
      * @{
@@ -110,9 +217,13 @@ public class Contatto implements Comparable<Contatto>{
      * @brief Imposta il nome del contatto
      * @param nome Nuovo nome
      * @throws IllegalArgumentException se il nuovo nome è vuoto e il cognome è vuoto
+     * @pre il contatto non è memorizzato in nessuna Rubrica: gli indici della
+     * rubrica resterebbero quelli del vecchio nome. Per i contatti in rubrica
+     * si usa Rubrica.modificaContatto.
      */
     public void setNome(String nome) {
-        this.nome=nome;
+        this.nome=PoolStringhe.condiviso().canonica(nome);
+        aggiornaChiaveOrdine();
     }
     /**
      * @}
@@ -123,9 +234,13 @@ public class Contatto implements Comparable<Contatto>{
      * @brief Imposta il cognome del contatto
      * @param cognome Nuovo cognome
      * @throws IllegalArgumentException se il nuovo cognome è vuoto e il nome è vuoto
+     * @pre il contatto non è memorizzato in nessuna Rubrica: gli indici della
+     * rubrica resterebbero quelli del vecchio cognome. Per i contatti in rubrica
+     * si usa Rubrica.modificaContatto.
      */
     public void setCognome(String cognome) {
-        this.cognome=cognome;
+        this.cognome=PoolStringhe.condiviso().canonica(cognome);
+        aggiornaChiaveOrdine();
     }
     /**
      * @}
@@ -138,7 +253,11 @@ public class Contatto implements Comparable<Contatto>{
      * @post result.size() <= TELEFONI_MAX
      */
     public ArrayList<NumeroTel> getNumeriTel() {
-        return new ArrayList<>(numeriTel);
+        ArrayList<NumeroTel> numeri = new ArrayList<>(TELEFONI_MAX);
+        for (int i = 0; i < TELEFONI_MAX; i++) {
+            numeri.add(getNumeroTel(i));
+        }
+        return numeri;
     }
     /**
      * @}
@@ -151,11 +270,262 @@ public class Contatto implements Comparable<Contatto>{
      * @post result.size() <= EMAIL_MAX
      */
     public ArrayList<Email> getIndirizziEmail() {
-        return new ArrayList<>(indirizziEmail);
+        ArrayList<Email> indirizzi = new ArrayList<>(EMAIL_MAX);
+        for (int i = 0; i < EMAIL_MAX; i++) {
+            indirizzi.add(getEmail(i));
+        }
+        return indirizzi;
     }
     /**
      * @}
      */    
+    /**
+     * @name getNumeroTel()
+     * @{
+     * @brief Restituisce un numero di telefono senza creare la lista
+     * @param indice posizione del numero
+     * @return il numero, NumeroTel.VUOTO se lo slot è vuoto
+     * @pre 0 <= indice < TELEFONI_MAX
+     */
+    public NumeroTel getNumeroTel(int indice) {
+        String numero = testoTelefono(indice);
+        return numero.isEmpty() ? NumeroTel.VUOTO : new NumeroTel(numero);
+    }
+    /**
+     * @}
+     */
+    /**
+     * @name getEmail()
+     * @{
+     * @brief Restituisce un indirizzo email senza creare la lista
+     * @param indice posizione dell'indirizzo
+     * @return l'indirizzo, Email.VUOTO se lo slot è vuoto
+     * @pre 0 <= indice < EMAIL_MAX
+     */
+    public Email getEmail(int indice) {
+        String locale = localeEmail(indice);
+        int dominio = dominioEmail(indice);
+        return locale.isEmpty() && dominio == DizionarioDomini.NESSUNO ? Email.VUOTO : new Email(locale, dominio, testoDominio(indice));
+    }
+    /**
+     * @}
+     */
+    /**
+     * @name scriviTelefono()
+     * @{
+     * @brief Aggiunge un numero di telefono in fondo a un testo
+     * Il numero viene ricostruito dai campi del contatto senza creare un
+     * NumeroTel né una stringa: chi mostra molti contatti, come le celle di una
+     * tabella, può riusare sempre lo stesso StringBuilder.
+     * @param indice posizione del numero
+     * @param destinazione il testo a cui aggiungere il numero; niente se lo slot è vuoto
+     * @pre 0 <= indice < TELEFONI_MAX
+     */
+    public void scriviTelefono(int indice, StringBuilder destinazione) {
+        long compresso = telefonoCompresso(indice);
+        if (compresso == NumeroTel.NON_COMPRESSO) {
+            destinazione.append(telNonCompressi[indice]);
+        } else {
+            NumeroTel.espandi(compresso, destinazione);
+        }
+    }
+    /**
+     * @}
+     */
+    /**
+     * @name scriviEmail()
+     * @{
+     * @brief Aggiunge un indirizzo email in fondo a un testo
+     * Come scriviTelefono: parte locale e dominio vengono copiati dalle stringhe
+     * già in memoria, senza creare un'Email.
+     * @param indice posizione dell'indirizzo
+     * @param destinazione il testo a cui aggiungere l'indirizzo; niente se lo slot è vuoto
+     * @pre 0 <= indice < EMAIL_MAX
+     */
+    public void scriviEmail(int indice, StringBuilder destinazione) {
+        destinazione.append(localeEmail(indice));
+        String dominio = testoDominio(indice);
+        if (dominio != null) {
+            destinazione.append('@').append(dominio);
+        }
+    }
+    /**
+     * @}
+     */
+    /**
+     * @brief Testo di un numero di telefono, senza creare un NumeroTel
+     * @param indice posizione del numero
+     * @return il numero, "" se lo slot è vuoto
+     */
+    String testoTelefono(int indice) {
+        long compresso = telefonoCompresso(indice);
+        return compresso == NumeroTel.NON_COMPRESSO ? telNonCompressi[indice] : NumeroTel.espandi(compresso);
+    }
+
+    /**
+     * @brief Indica se nome, cognome, un numero o un indirizzo email contengono un testo
+     * Confronta i caratteri uno a uno con Character.toLowerCase e legge numeri
+     * ed email dai campi compressi, senza creare stringhe: si può chiamare su
+     * centinaia di migliaia di candidati di una ricerca.
+     * @param query testo già in minuscolo
+     */
+    boolean contiene(String query) {
+        //prima le email: i domini sono condivisi e già in cache, e una query come
+        //"gmail" trova il contatto senza leggerne le stringhe
+        for (int i = 0; i < EMAIL_MAX; i++) {
+            if (emailContiene(i, query)) {
+                return true;
+            }
+        }
+        if (contieneMinuscolo(nome, query) || contieneMinuscolo(cognome, query)) {
+            return true;
+        }
+        for (int i = 0; i < TELEFONI_MAX; i++) {
+            long compresso = telefonoCompresso(i);
+            if (compresso == NumeroTel.NON_COMPRESSO
+                    ? contieneMinuscolo(telNonCompressi[i], query) : NumeroTel.contiene(compresso, query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean emailContiene(int indice, String query) {
+        String dominio = testoDominio(indice);
+        if (dominio != null && contieneMinuscolo(dominio, query)) {
+            return true;
+        }
+        String locale = localeEmail(indice);
+        if (contieneMinuscolo(locale, query)) {
+            return true;
+        }
+        if (dominio == null) {
+            return false;
+        }
+        //query a cavallo della '@': la fine della parte locale, la '@' e l'inizio del dominio
+        for (int k = query.indexOf('@'); k >= 0; k = query.indexOf('@', k + 1)) {
+            int resto = query.length() - k - 1;
+            if (k <= locale.length() && resto <= dominio.length()
+                    && ugualiMinuscolo(locale, locale.length() - k, query, 0, k)
+                    && ugualiMinuscolo(dominio, 0, query, k + 1, resto)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contieneMinuscolo(String testo, String query) {
+        int ultimo = testo.length() - query.length();
+        for (int i = 0; i <= ultimo; i++) {
+            if (ugualiMinuscolo(testo, i, query, 0, query.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean ugualiMinuscolo(String testo, int da, String query, int daQuery, int lunghezza) {
+        for (int j = 0; j < lunghezza; j++) {
+            if (Character.toLowerCase(testo.charAt(da + j)) != query.charAt(daQuery + j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long telefonoCompresso(int indice) {
+        switch (indice) {
+            case 0:
+                return tel1;
+            case 1:
+                return tel2;
+            case 2:
+                return tel3;
+            default:
+                throw new IndexOutOfBoundsException("Indice del numero: " + indice);
+        }
+    }
+    /**
+     * @brief Testo di un indirizzo email, senza creare un'Email
+     * @param indice posizione dell'indirizzo
+     * @return l'indirizzo, "" se lo slot è vuoto
+     */
+    String testoEmail(int indice) {
+        String locale = localeEmail(indice);
+        String dominio = testoDominio(indice);
+        return dominio == null ? locale : locale + '@' + dominio;
+    }
+    /**
+     * @brief Parte locale di un indirizzo email
+     * @param indice posizione dell'indirizzo
+     * @return la parte prima della '@', tutto l'indirizzo se non la contiene
+     */
+    String localeEmail(int indice) {
+        switch (indice) {
+            case 0:
+                return locale1;
+            case 1:
+                return locale2;
+            case 2:
+                return locale3;
+            default:
+                throw new IndexOutOfBoundsException("Indice dell'email: " + indice);
+        }
+    }
+    /**
+     * @brief Numero del dominio di un indirizzo email
+     * @param indice posizione dell'indirizzo
+     * @return il numero nel DizionarioDomini, NESSUNO se l'indirizzo non contiene '@'
+     */
+    int dominioEmail(int indice) {
+        if (indice < 0 || indice >= EMAIL_MAX) {
+            throw new IndexOutOfBoundsException("Indice dell'email: " + indice);
+        }
+        return (int) (domini >>> (indice * BIT_DOMINIO)) & DizionarioDomini.NUMERO_MASSIMO;
+    }
+    /**
+     * @brief Dominio di un indirizzo email, dal DizionarioDomini o dal contatto
+     * @param indice posizione dell'indirizzo
+     * @return il dominio, null se l'indirizzo non contiene '@'
+     */
+    String testoDominio(int indice) {
+        int dominio = dominioEmail(indice);
+        if (dominio == DizionarioDomini.NESSUNO) {
+            return null;
+        }
+        return dominio == DizionarioDomini.ESTERNO ? dominiEsterni[indice] : DizionarioDomini.dominio(dominio);
+    }
+    private void aggiornaChiaveOrdine() {
+        chiaveOrdine = ChiaveOrdinamento.calcola(cognome, nome);
+        prefissoOrdine = ChiaveOrdinamento.prefisso(chiaveOrdine);
+    }
+    private long comprimi(int indice, NumeroTel numero) {
+        String testo = numero == null ? "" : numero.toString();
+        long compresso = NumeroTel.comprimi(testo);
+        if (compresso == NumeroTel.NON_COMPRESSO) {
+            if (telNonCompressi == null) {
+                telNonCompressi = new String[TELEFONI_MAX];
+            }
+            telNonCompressi[indice] = testo;
+        }
+        return compresso;
+    }
+    private static String locale(Email email) {
+        //le parti locali vuote condividono la stringa di Email.VUOTO
+        return email == null || email.getParteLocale().isEmpty() ? Email.VUOTO.getParteLocale() : email.getParteLocale();
+    }
+    private int dominio(int indice, Email email) {
+        if (email == null) {
+            return DizionarioDomini.NESSUNO;
+        }
+        if (email.numeroDominio() == DizionarioDomini.ESTERNO) {
+            if (dominiEsterni == null) {
+                dominiEsterni = new String[EMAIL_MAX];
+            }
+            dominiEsterni[indice] = email.dominioEsterno();
+        }
+        return email.numeroDominio();
+    }
     /**
      * @name toString()
      * @{
@@ -164,15 +534,53 @@ public class Contatto implements Comparable<Contatto>{
      */
     @Override
     public String toString() {
-        return ("Nome: " + nome + "\nCognome: " + cognome + "\nNumeri di telefono: " + numeriTel.toString() + "\nIndirizzi e-mail: " + indirizziEmail.toString());
+        return ("Nome: " + nome + "\nCognome: " + cognome + "\nNumeri di telefono: " + getNumeriTel().toString() + "\nIndirizzi e-mail: " + getIndirizziEmail().toString());
     }
     /**
      * @}
      */    
+    /**
+     * @name equals()
+     * @{
+     * @brief Due contatti sono uguali se hanno lo stesso id
+     * Una versione modificata di un contatto resta uguale all'originale.
+     * @param o L'oggetto da confrontare
+     * @return true se o è un contatto con lo stesso id
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Contatto)) {
+            return false;
+        }
+        return id == ((Contatto) o).id;
+    }
+    /**
+     * @}
+     */
+    /**
+     * @name hashCode()
+     * @{
+     * @brief Hash coerente con equals
+     * Non cambia mai: l'id viene assegnato alla costruzione.
+     * @return hash dell'id
+     */
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(id);
+    }
+    /**
+     * @}
+     */
     /**
      * @name compareTo()
      * @{
      * @brief Confronta due contatti per l'ordinamento
+     * Ordina per cognome e poi per nome secondo le regole italiane, senza
+     * distinguere maiuscole e minuscole, confrontando le chiavi calcolate
+     * alla creazione (vedi ChiaveOrdinamento).
      * @param c Il contatto da confrontare
      * @return negativo se this < c, 0 se uguali, positivo se this > other
      * @pre c != null
@@ -180,13 +588,8 @@ public class Contatto implements Comparable<Contatto>{
      */
     @Override
     public int compareTo(Contatto c) {
-        // Prima confronta per cognome
-        int cognomeCompare = this.cognome.compareToIgnoreCase(c.cognome);
-        if (cognomeCompare != 0) {
-            return cognomeCompare;
-        }
-        // Se i cognomi sono uguali, confronta per nome
-        return this.nome.compareToIgnoreCase(c.nome);
+        int confronto = Long.compareUnsigned(prefissoOrdine, c.prefissoOrdine);
+        return confronto != 0 ? confronto : ChiaveOrdinamento.confronta(chiaveOrdine, c.chiaveOrdine);
     }
     /**
      * @}
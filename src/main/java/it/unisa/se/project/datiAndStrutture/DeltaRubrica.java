@@ -0,0 +1,76 @@
+/**
+ * @file DeltaRubrica.java
+ * @brief Modifiche alla rubrica successive a un checkpoint
+ * @package it.unisa.se.project.datiAndStrutture
+ * Restituito da Rubrica.modificheDa: contiene i contatti inseriti o modificati,
+ * nella loro versione attuale, e gli id dei contatti rimossi. Ogni contatto
+ * compare al più una volta, con il suo ultimo stato.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of DeltaRubrica.java
+ * @{
+ */
+import java.util.Collections;
+import java.util.List;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe DeltaRubrica
+ */
+public class DeltaRubrica {
+    /**
+     * @private checkpoint checkpoint da passare alla prossima richiesta di modifiche
+     * @private completo true se il delta contiene l'intera rubrica
+     * @private aggiornati contatti inseriti o modificati
+     * @private rimossi id dei contatti rimossi
+     */
+    private final long checkpoint;
+    private final boolean completo;
+    private final List<Contatto> aggiornati;
+    private final List<Integer> rimossi;
+
+    DeltaRubrica(long checkpoint, boolean completo, List<Contatto> aggiornati, List<Integer> rimossi) {
+        this.checkpoint = checkpoint;
+        this.completo = completo;
+        this.aggiornati = Collections.unmodifiableList(aggiornati);
+        this.rimossi = Collections.unmodifiableList(rimossi);
+    }
+
+    /**
+     * @brief Checkpoint a cui si riferisce lo stato descritto dal delta
+     * @return il valore da passare alla prossima chiamata di Rubrica.modificheDa
+     */
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * @brief Indica se il delta sostituisce l'intera rubrica
+     * Succede quando il checkpoint richiesto precede l'ultimo caricamento completo
+     * o le modifiche dimenticate: chi lo riceve deve eliminare i contatti che non
+     * compaiono tra gli aggiornati.
+     * @return true se il delta contiene tutti i contatti
+     */
+    public boolean isCompleto() {
+        return completo;
+    }
+
+    /**
+     * @brief Contatti inseriti o modificati dopo il checkpoint
+     * @return i contatti nel loro stato attuale
+     */
+    public List<Contatto> getAggiornati() {
+        return aggiornati;
+    }
+
+    /**
+     * @brief Id dei contatti rimossi dopo il checkpoint
+     * @return gli id, vuoto se il delta è completo
+     */
+    public List<Integer> getRimossi() {
+        return rimossi;
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * @file DizionarioDomini.java
+ * @brief Dizionario dei domini email, condiviso da tutti i contatti
+ * @package it.unisa.se.project.datiAndStrutture
+ * Ogni dominio distinto riceve un numero, e contatti ed email conservano quello
+ * invece della stringa: un dominio usato da migliaia di indirizzi occupa memoria
+ * una volta sola. Il numero 0 indica un indirizzo senza '@'.
+ * Per ogni dominio il dizionario registra anche la versione in minuscolo, che
+ * fa da chiave per l'indice dei domini: "Unisa.IT" e "unisa.it" sono lo stesso
+ * dominio per la ricerca, ma ciascuno viene restituito come era stato scritto.
+ * Il dizionario è unico per la JVM e non si svuota mai: i domini distinti sono
+ * pochi rispetto agli indirizzi. Per non crescere senza limite, dopo
+ * NUMERO_MASSIMO - 1 domini smette di registrarne: i domini nuovi ricevono
+ * ESTERNO, e Email e Contatto ne conservano la stringa come prima del
+ * dizionario. Registrazioni e letture possono avvenire da thread diversi.
+ * Le chiavi in minuscolo usano Locale.ROOT, come tutti gli indici di Rubrica.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of DizionarioDomini.java
+ * @{
+ */
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe DizionarioDomini usata internamente da Contatto, Email e Rubrica
+ */
+final class DizionarioDomini {
+    /**
+     * @public NESSUNO numero degli indirizzi senza dominio
+     */
+    static final int NESSUNO = 0;
+    /**
+     * @public NUMERO_MASSIMO numero più alto assegnabile: Contatto ne conserva tre in un long
+     */
+    static final int NUMERO_MASSIMO = (1 << 21) - 1;
+    /**
+     * @public ESTERNO numero dei domini arrivati a dizionario pieno, che restano stringhe
+     */
+    static final int ESTERNO = NUMERO_MASSIMO;
+    /**
+     * @private numeri dominio -> numero
+     * @private tabella domini e chiavi in minuscolo per numero, sostituita intera quando cresce
+     * @private registrati numero dell'ultimo dominio registrato
+     * @private pieno true quando registrati ha raggiunto ESTERNO - 1
+     */
+    private static final ConcurrentHashMap<String, Integer> numeri = new ConcurrentHashMap<>();
+    private static volatile Tabella tabella = new Tabella(new String[64], new int[64]);
+    private static int registrati;
+    private static volatile boolean pieno;
+
+    private DizionarioDomini() {
+    }
+
+    /**
+     * @name numero()
+     * @{
+     * @brief Restituisce il numero di un dominio, registrandolo se è nuovo
+     * @param dominio il dominio, senza '@'
+     * @return il numero del dominio, maggiore di NESSUNO; ESTERNO se il
+     * dominio è nuovo e il dizionario è pieno
+     */
+    static int numero(String dominio) {
+        Integer numero = numeri.get(dominio);
+        if (numero != null) {
+            return numero;
+        }
+        return pieno ? ESTERNO : registra(dominio);
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Restituisce il numero di un dominio senza registrarlo
+     * @return il numero, oppure NESSUNO se il dominio non è mai stato usato
+     */
+    static int cerca(String dominio) {
+        Integer numero = numeri.get(dominio);
+        return numero != null ? numero : NESSUNO;
+    }
+
+    /**
+     * @brief Restituisce il dominio con il numero dato
+     * @pre numero > NESSUNO, numero != ESTERNO e restituito da numero()
+     */
+    static String dominio(int numero) {
+        return tabella.domini[numero];
+    }
+
+    /**
+     * @brief Restituisce il numero della versione in minuscolo di un dominio
+     * @pre numero > NESSUNO, numero != ESTERNO e restituito da numero()
+     */
+    static int chiave(int numero) {
+        return tabella.chiavi[numero];
+    }
+
+    private static synchronized int registra(String dominio) {
+        Integer presente = numeri.get(dominio);
+        if (presente != null) {
+            return presente;
+        }
+        String minuscolo = dominio.toLowerCase(Locale.ROOT);
+        int chiave = minuscolo.equals(dominio) ? registrati + 1 : numero(minuscolo);
+        if (chiave == ESTERNO || registrati == ESTERNO - 1) {
+            pieno = true;
+            return ESTERNO;
+        }
+        int nuovo = ++registrati;
+        Tabella attuale = tabella;
+        if (nuovo == attuale.domini.length) {
+            attuale = new Tabella(Arrays.copyOf(attuale.domini, nuovo * 2), Arrays.copyOf(attuale.chiavi, nuovo * 2));
+        }
+        attuale.domini[nuovo] = dominio;
+        attuale.chiavi[nuovo] = chiave;
+        //la scrittura volatile pubblica la tabella prima che il numero diventi visibile
+        tabella = attuale;
+        numeri.put(dominio, nuovo);
+        return nuovo;
+    }
+
+    /**
+     * @brief Array dei domini e delle chiavi, pubblicati insieme
+     */
+    private static final class Tabella {
+        private final String[] domini;
+        private final int[] chiavi;
+
+        Tabella(String[] domini, int[] chiavi) {
+            this.domini = domini;
+            this.chiavi = chiavi;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/**
+ * @file ElencoContatti.java
+ * @brief Lista di contatti mantenuta sempre ordinata
+ * @package it.unisa.se.project.datiAndStrutture
+ * I contatti sono conservati in un gap buffer: un array con un "buco" che viene
+ * spostato nel punto di inserimento o rimozione. La posizione viene trovata con
+ * una ricerca binaria secondo VersioneRubrica.confronta, quindi inserimenti e
+ * rimozioni vicini tra loro spostano pochi elementi e non serve mai riordinare
+ * la lista.
+ *
+ * @invariant 0 <= inizioGap <= fineGap <= elementi.length
+ * @invariant gli elementi sono ordinati secondo Contatto.compareTo e, a parità, per id
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of ElencoContatti.java
+ * @{
+ */
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe ElencoContatti, lista ordinata usata internamente da Rubrica
+ * @extends AbstractList<Contatto>
+ */
+class ElencoContatti extends AbstractList<Contatto> implements RandomAccess {
+    /**
+     * @private CAPACITA_INIZIALE dimensione iniziale dell'array
+     */
+    private static final int CAPACITA_INIZIALE = 16;
+    /**
+     * @private elementi array che contiene i contatti e il gap
+     * @private inizioGap primo slot libero del gap
+     * @private fineGap primo slot occupato dopo il gap
+     */
+    private Contatto[] elementi;
+    private int inizioGap;
+    private int fineGap;
+
+    /**
+     * @brief Costruisce un elenco vuoto
+     */
+    ElencoContatti() {
+        elementi = new Contatto[CAPACITA_INIZIALE];
+        inizioGap = 0;
+        fineGap = elementi.length;
+    }
+
+    /**
+     * @name size()
+     * @{
+     * @brief Restituisce il numero di contatti nell'elenco
+     * @return numero di contatti
+     */
+    @Override
+    public int size() {
+        return elementi.length - (fineGap - inizioGap);
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @name get()
+     * @{
+     * @brief Restituisce il contatto in posizione indice
+     * @param indice posizione nell'ordinamento
+     * @return il contatto
+     * @pre 0 <= indice < size()
+     */
+    @Override
+    public Contatto get(int indice) {
+        controllaIndice(indice);
+        return elementi[slot(indice)];
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @name set()
+     * @{
+     * @brief Sostituisce il contatto in posizione indice senza spostare il gap
+     * @param indice posizione nell'ordinamento
+     * @param contatto nuovo contatto
+     * @return il contatto sostituito
+     * @pre il nuovo contatto mantiene l'ordinamento rispetto ai vicini
+     */
+    @Override
+    public Contatto set(int indice, Contatto contatto) {
+        controllaIndice(indice);
+        int s = slot(indice);
+        Contatto vecchio = elementi[s];
+        elementi[s] = contatto;
+        return vecchio;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @name inserisci()
+     * @{
+     * @brief Inserisce un contatto nella posizione che mantiene l'ordinamento
+     * Tra contatti con lo stesso nome decide l'id, come in VersioneRubrica.
+     * @param contatto il contatto da inserire
+     * @return la posizione in cui è stato inserito
+     * @pre contatto != null
+     */
+    int inserisci(Contatto contatto) {
+        int posizione = limiteSuperiore(contatto);
+        garantisciSpazio();
+        spostaGap(posizione);
+        elementi[inizioGap++] = contatto;
+        modCount++;
+        return posizione;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @name remove()
+     * @{
+     * @brief Rimuove il contatto in posizione indice
+     * @param indice posizione da rimuovere
+     * @return il contatto rimosso
+     */
+    @Override
+    public Contatto remove(int indice) {
+        controllaIndice(indice);
+        spostaGap(indice);
+        Contatto rimosso = elementi[fineGap];
+        elementi[fineGap++] = null;
+        modCount++;
+        return rimosso;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @name indiceDi()
+     * @{
+     * @brief Trova la posizione di un contatto con ricerca binaria
+     * Con l'ordine per nome e id ogni contatto ha una sola posizione possibile,
+     * quindi non serve scorrere i contatti con lo stesso nome.
+     * @param contatto il contatto da cercare
+     * @return la posizione, oppure -1 se non presente
+     * @pre contatto non è stato modificato sul posto dopo l'inserimento
+     */
+    int indiceDi(Contatto contatto) {
+        int posizione = limiteInferiore(contatto);
+        return posizione < size() && get(posizione) == contatto ? posizione : -1;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @name unisci()
+     * @{
+     * @brief Unisce in un solo passaggio un lotto già ordinato
+     * Tra contatti con lo stesso nome decide l'id, come in VersioneRubrica.
+     * @param lotto contatti ordinati secondo VersioneRubrica.confronta
+     * @pre lotto ordinato e senza elementi null
+     */
+    void unisci(List<Contatto> lotto) {
+        if (lotto.isEmpty()) {
+            return;
+        }
+        int n = size();
+        int m = lotto.size();
+        Contatto[] nuovi = new Contatto[Math.max(CAPACITA_INIZIALE, (n + m) + ((n + m) >> 1))];
+        int i = 0, j = 0, k = 0;
+        while (i < n && j < m) {
+            Contatto a = get(i);
+            Contatto b = lotto.get(j);
+            if (VersioneRubrica.confronta(b, a) < 0) {
+                nuovi[k++] = b;
+                j++;
+            } else {
+                nuovi[k++] = a;
+                i++;
+            }
+        }
+        while (i < n) {
+            nuovi[k++] = get(i++);
+        }
+        while (j < m) {
+            nuovi[k++] = lotto.get(j++);
+        }
+        elementi = nuovi;
+        inizioGap = k;
+        fineGap = nuovi.length;
+        modCount++;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @name ricostruisci()
+     * @{
+     * @brief Sostituisce tutto il contenuto con una lista già ordinata
+     * @param ordinati contatti ordinati secondo VersioneRubrica.confronta
+     */
+    void ricostruisci(List<Contatto> ordinati) {
+        int m = ordinati.size();
+        Contatto[] nuovi = new Contatto[Math.max(CAPACITA_INIZIALE, m + (m >> 1))];
+        for (int k = 0; k < m; k++) {
+            nuovi[k] = ordinati.get(k);
+        }
+        elementi = nuovi;
+        inizioGap = m;
+        fineGap = nuovi.length;
+        modCount++;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Svuota l'elenco
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(elementi, null);
+        inizioGap = 0;
+        fineGap = elementi.length;
+        modCount++;
+    }
+
+    /**
+     * @brief Copia i contatti in un array, in ordine, con due sole copie di blocco
+     * @return array dei contatti
+     */
+    @Override
+    public Object[] toArray() {
+        Object[] copia = new Object[size()];
+        System.arraycopy(elementi, 0, copia, 0, inizioGap);
+        System.arraycopy(elementi, fineGap, copia, inizioGap, elementi.length - fineGap);
+        return copia;
+    }
+
+    /**
+     * @brief Prima posizione il cui contatto non precede quello dato
+     */
+    private int limiteInferiore(Contatto contatto) {
+        int basso = 0, alto = size();
+        while (basso < alto) {
+            int medio = (basso + alto) >>> 1;
+            if (VersioneRubrica.confronta(get(medio), contatto) < 0) {
+                basso = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return basso;
+    }
+
+    /**
+     * @brief Prima posizione il cui contatto segue strettamente quello dato
+     */
+    private int limiteSuperiore(Contatto contatto) {
+        int basso = 0, alto = size();
+        while (basso < alto) {
+            int medio = (basso + alto) >>> 1;
+            if (VersioneRubrica.confronta(get(medio), contatto) <= 0) {
+                basso = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return basso;
+    }
+
+    /**
+     * @brief Sposta il gap in modo che inizi in posizione indice
+     */
+    private void spostaGap(int indice) {
+        if (indice < inizioGap) {
+            int quanti = inizioGap - indice;
+            System.arraycopy(elementi, indice, elementi, fineGap - quanti, quanti);
+            Arrays.fill(elementi, indice, Math.min(inizioGap, fineGap - quanti), null);
+            inizioGap -= quanti;
+            fineGap -= quanti;
+        } else if (indice > inizioGap) {
+            int quanti = indice - inizioGap;
+            System.arraycopy(elementi, fineGap, elementi, inizioGap, quanti);
+            Arrays.fill(elementi, Math.max(fineGap, inizioGap + quanti), fineGap + quanti, null);
+            inizioGap += quanti;
+            fineGap += quanti;
+        }
+    }
+
+    /**
+     * @brief Raddoppia l'array se il gap è vuoto
+     */
+    private void garantisciSpazio() {
+        if (inizioGap < fineGap) {
+            return;
+        }
+        int coda = elementi.length - fineGap;
+        Contatto[] nuovi = new Contatto[elementi.length * 2];
+        System.arraycopy(elementi, 0, nuovi, 0, inizioGap);
+        System.arraycopy(elementi, fineGap, nuovi, nuovi.length - coda, coda);
+        fineGap = nuovi.length - coda;
+        elementi = nuovi;
+    }
+
+    private int slot(int indice) {
+        return indice < inizioGap ? indice : indice + (fineGap - inizioGap);
+    }
+
+    private void controllaIndice(int indice) {
+        if (indice < 0 || indice >= size()) {
+            throw new IndexOutOfBoundsException("Indice: " + indice + ", dimensione: " + size());
+        }
+    }
+}
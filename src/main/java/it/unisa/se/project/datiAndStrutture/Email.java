@@ -3,24 +3,64 @@
  * @brief Rappresenta un indirizzo email
  * @package it.unisa.se.project.datiAndStrutture
  * Gestisce la validazione e formattazione degli indirizzi email
+ * L'indirizzo è diviso in parte locale e dominio, conservato come numero del
+ * DizionarioDomini: ogni dominio è in memoria una volta sola. Solo i domini
+ * arrivati a dizionario pieno, con numero ESTERNO, restano stringhe.
  */
 package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of Email.java
+ * @{
+ */
+import java.util.Objects;
+/**
+ * @}
+ */
 
 /**
  * @brief classe Email
  */
 public class Email {
     /**
-     * @private Stringa indirizzo email
+     * @public VUOTO indirizzo vuoto condiviso, usato per gli slot non compilati
      */
-    private String indirizzo;
+    public static final Email VUOTO = new Email("");
+    /**
+     * @private locale parte dell'indirizzo prima dell'ultima '@', o tutto l'indirizzo se manca
+     * @private dominio numero del dominio, DizionarioDomini.NESSUNO se manca la '@'
+     * @private esterno il dominio se il numero è DizionarioDomini.ESTERNO, altrimenti null
+     */
+    private final String locale;
+    private final int dominio;
+    private final String esterno;
 
     /**
      * @brief Costruisce un nuovo indirizzo email
      * @param indirizzo L'indirizzo email
      */
     public Email(String indirizzo) {
-        this.indirizzo = indirizzo;
+        int chiocciola = indirizzo.lastIndexOf('@');
+        if (chiocciola < 0) {
+            this.locale = indirizzo;
+            this.dominio = DizionarioDomini.NESSUNO;
+            this.esterno = null;
+        } else {
+            String testoDominio = indirizzo.substring(chiocciola + 1);
+            this.locale = indirizzo.substring(0, chiocciola);
+            this.dominio = DizionarioDomini.numero(testoDominio);
+            this.esterno = dominio == DizionarioDomini.ESTERNO ? testoDominio : null;
+        }
+    }
+    /**
+     * @brief Costruisce un indirizzo già diviso, usato da Contatto
+     * @param locale parte locale
+     * @param dominio numero del dominio nel DizionarioDomini
+     * @param esterno il dominio, conservato solo se dominio è DizionarioDomini.ESTERNO
+     */
+    Email(String locale, int dominio, String esterno) {
+        this.locale = locale;
+        this.dominio = dominio;
+        this.esterno = dominio == DizionarioDomini.ESTERNO ? esterno : null;
     }
     /**
      * @brief toString email
@@ -28,6 +68,59 @@ public class Email {
      */
     @Override
     public String toString() {
-        return indirizzo;
+        return dominio == DizionarioDomini.NESSUNO ? locale : locale + '@' + getDominio();
+    }
+    /**
+     * @brief Restituisce la parte dell'indirizzo prima della '@'
+     * @return la parte locale, tutto l'indirizzo se non contiene '@'
+     */
+    public String getParteLocale() {
+        return locale;
+    }
+    /**
+     * @brief Restituisce il dominio dell'indirizzo, dopo la '@'
+     * @return il dominio, null se l'indirizzo non contiene '@'
+     */
+    public String getDominio() {
+        if (dominio == DizionarioDomini.NESSUNO) {
+            return null;
+        }
+        return dominio == DizionarioDomini.ESTERNO ? esterno : DizionarioDomini.dominio(dominio);
+    }
+    /**
+     * @brief Numero del dominio nel DizionarioDomini
+     */
+    int numeroDominio() {
+        return dominio;
+    }
+    /**
+     * @brief Dominio conservato come stringa, se il numero è DizionarioDomini.ESTERNO
+     * @return il dominio, null per i domini nel dizionario
+     */
+    String dominioEsterno() {
+        return esterno;
+    }
+
+    /**
+     * @brief Due email sono uguali se hanno lo stesso indirizzo
+     * @param o L'oggetto da confrontare
+     * @return true se o è un'email con lo stesso indirizzo
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Email)) {
+            return false;
+        }
+        Email altra = (Email) o;
+        //un dominio ha un solo numero: confrontare i numeri basta, tranne per ESTERNO
+        return dominio == altra.dominio && locale.equals(altra.locale) && Objects.equals(esterno, altra.esterno);
+    }
+
+    /**
+     * @brief Hash coerente con equals
+     */
+    @Override
+    public int hashCode() {
+        return 31 * locale.hashCode() + dominio;
     }
 }
@@ -0,0 +1,163 @@
+/**
+ * @file FoneticaItaliana.java
+ * @brief Codice fonetico di nomi e cognomi secondo l'ortografia italiana
+ * @package it.unisa.se.project.datiAndStrutture
+ * Due nomi hanno lo stesso codice se si pronunciano allo stesso modo, anche se
+ * si scrivono in modo diverso: "Gallo" e "Galo", "Ciccone" e "Cicone",
+ * "De Luca" e "Deluca", "Acquaviva" e "Aquaviva" hanno lo stesso codice.
+ * Regole, applicate dopo aver tolto accenti, spazi, apostrofi e lettere doppie:
+ * - c e g davanti a e, i sono dolci (C, J), altrimenti dure (K, G); h dopo c
+ *   e g le rende dure e non si scrive; una i tra la c o la g dolce e un'altra
+ *   vocale serve solo alla pronuncia e non conta ("Ciampi", "Giorgio");
+ * - sc davanti a e, i diventa X, con la stessa regola per la i;
+ * - gn diventa N e gli davanti a vocale diventa L ("Battaglia");
+ * - q, k e cq diventano K; x diventa KS; j e y diventano I; w diventa V;
+ *   ph diventa F; h negli altri casi non si pronuncia;
+ * - le vocali restano: in italiano si sentono chiaramente.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of FoneticaItaliana.java
+ * @{
+ */
+import java.text.Normalizer;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe FoneticaItaliana usata internamente da Rubrica
+ */
+final class FoneticaItaliana {
+
+    private FoneticaItaliana() {
+    }
+
+    /**
+     * @name codifica()
+     * @{
+     * @brief Calcola il codice fonetico di un testo
+     * @param testo nome o cognome, in qualsiasi combinazione di maiuscole
+     * @return il codice, in maiuscolo; vuoto se il testo non contiene lettere
+     * @pre testo != null
+     */
+    static String codifica(String testo) {
+        String lettere = lettere(testo);
+        StringBuilder codice = new StringBuilder(lettere.length() + 1);
+        int n = lettere.length();
+        for (int i = 0; i < n; i++) {
+            char c = lettere.charAt(i);
+            char dopo = i + 1 < n ? lettere.charAt(i + 1) : 0;
+            switch (c) {
+                case 'c':
+                    if (dopo == 'h') {
+                        aggiungi(codice, 'K');
+                        i++;
+                    } else if (dopo == 'e' || dopo == 'i') {
+                        aggiungi(codice, 'C');
+                        i = saltaIMuta(lettere, i);
+                    } else if (dopo != 'q') {
+                        //in cq si sente solo la q
+                        aggiungi(codice, 'K');
+                    }
+                    break;
+                case 'g':
+                    if (dopo == 'h') {
+                        aggiungi(codice, 'G');
+                        i++;
+                    } else if (dopo == 'n') {
+                        aggiungi(codice, 'N');
+                        i++;
+                    } else if (dopo == 'l' && i + 2 < n && lettere.charAt(i + 2) == 'i' && vocale(lettere, i + 3)) {
+                        aggiungi(codice, 'L');
+                        i += 2;
+                    } else if (dopo == 'e' || dopo == 'i') {
+                        aggiungi(codice, 'J');
+                        i = saltaIMuta(lettere, i);
+                    } else {
+                        aggiungi(codice, 'G');
+                    }
+                    break;
+                case 's':
+                    if (dopo == 'c' && i + 2 < n && (lettere.charAt(i + 2) == 'e' || lettere.charAt(i + 2) == 'i')) {
+                        aggiungi(codice, 'X');
+                        i = saltaIMuta(lettere, i + 1);
+                    } else {
+                        aggiungi(codice, 'S');
+                    }
+                    break;
+                case 'p':
+                    if (dopo == 'h') {
+                        aggiungi(codice, 'F');
+                        i++;
+                    } else {
+                        aggiungi(codice, 'P');
+                    }
+                    break;
+                case 'q':
+                case 'k':
+                    aggiungi(codice, 'K');
+                    break;
+                case 'x':
+                    aggiungi(codice, 'K');
+                    aggiungi(codice, 'S');
+                    break;
+                case 'j':
+                case 'y':
+                    aggiungi(codice, 'I');
+                    break;
+                case 'w':
+                    aggiungi(codice, 'V');
+                    break;
+                case 'h':
+                    break;
+                default:
+                    aggiungi(codice, Character.toUpperCase(c));
+            }
+        }
+        return codice.toString();
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Lettere del testo in minuscolo, senza accenti e senza lettere doppie
+     */
+    private static String lettere(String testo) {
+        StringBuilder lettere = new StringBuilder(testo.length());
+        for (int i = 0; i < testo.length(); i++) {
+            char c = Character.toLowerCase(testo.charAt(i));
+            if (c > 0x7F) {
+                //"ò" diventa "o": si tiene la lettera base della forma scomposta
+                c = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+            }
+            if (c >= 'a' && c <= 'z' && (lettere.length() == 0 || lettere.charAt(lettere.length() - 1) != c)) {
+                lettere.append(c);
+            }
+        }
+        return lettere.toString();
+    }
+
+    /**
+     * @brief Salta la i dopo una c o g dolce in posizione i se è seguita da un'altra vocale
+     * @return l'ultima posizione consumata
+     */
+    private static int saltaIMuta(String lettere, int i) {
+        return lettere.charAt(i + 1) == 'i' && vocale(lettere, i + 2) ? i + 1 : i;
+    }
+
+    private static boolean vocale(String lettere, int i) {
+        return i < lettere.length() && "aeiou".indexOf(lettere.charAt(i)) >= 0;
+    }
+
+    /**
+     * @brief Aggiunge un simbolo al codice, se non ripete l'ultimo
+     * Le doppie tolte prima non bastano: "ck" e "cq" danno due K di seguito.
+     */
+    private static void aggiungi(StringBuilder codice, char simbolo) {
+        if (codice.length() == 0 || codice.charAt(codice.length() - 1) != simbolo) {
+            codice.append(simbolo);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * @file Giornale.java
+ * @brief Giornale delle modifiche alla rubrica, scritto solo in coda
+ * @package it.unisa.se.project.datiAndStrutture
+ * Ogni modifica diventa un record aggiunto in fondo al file:
+ *
+ *   lunghezza (int), tipo (byte), dati, CRC32 di tipo e dati (int)
+ *
+ * Inserimenti e modifiche salvano il contatto completo con il suo id, le
+ * rimozioni solo l'id: rieseguire due volte lo stesso record non cambia il
+ * risultato. Un record incompleto o con checksum errato, come quello lasciato
+ * da un'interruzione durante la scrittura, chiude il giornale e viene scartato.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of Giornale.java
+ * @{
+ */
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe Giornale usata internamente da Rubrica
+ */
+final class Giornale implements Closeable {
+    /**
+     * @private CONTATTO record con un contatto inserito o modificato
+     * @private RIMOZIONE record con l'id di un contatto rimosso
+     * @private LUNGHEZZA_MASSIMA lunghezza oltre la quale un record è certamente danneggiato
+     */
+    private static final byte CONTATTO = 1;
+    private static final byte RIMOZIONE = 2;
+    private static final int LUNGHEZZA_MASSIMA = 1 << 24;
+
+    /**
+     * @private percorso file del giornale
+     * @private canale canale aperto in scrittura in coda al file
+     * @private record buffer riusato per comporre un record
+     */
+    private final Path percorso;
+    private FileChannel canale;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+    private final DataOutputStream uscita = new DataOutputStream(record);
+
+    /**
+     * @brief Costruisce un giornale senza file, usato solo per comporre record
+     */
+    private Giornale() {
+        this.percorso = null;
+    }
+
+    /**
+     * @brief Apre il giornale in scrittura
+     * @param percorso file del giornale, creato se non esiste
+     * @param lunghezzaValida byte validi restituiti da riproduci, quelli successivi vengono scartati
+     * @throws IOException in caso di errori di I/O
+     */
+    Giornale(Path percorso, long lunghezzaValida) throws IOException {
+        this.percorso = percorso;
+        apri();
+        if (canale.size() > lunghezzaValida) {
+            canale.truncate(lunghezzaValida);
+        }
+    }
+
+    /**
+     * @brief Annota l'inserimento o la modifica di un contatto
+     * @param contatto il contatto con i dati aggiornati e il suo id
+     * @throws IOException in caso di errori di I/O
+     */
+    void annotaContatto(Contatto contatto) throws IOException {
+        componiContatto(contatto);
+        scrivi(canale);
+        canale.force(false);
+    }
+
+    /**
+     * @brief Annota la rimozione di un contatto
+     * @param id l'id del contatto rimosso
+     * @throws IOException in caso di errori di I/O
+     */
+    void annotaRimozione(int id) throws IOException {
+        componiRimozione(id);
+        scrivi(canale);
+        canale.force(false);
+    }
+
+    /**
+     * @name scriviDelta()
+     * @{
+     * @brief Scrive un delta come sequenza di record del giornale
+     * I record non vengono forzati su disco uno per uno: il file risultante si
+     * rilegge con riproduci.
+     * @param delta le modifiche da scrivere
+     * @param destinazione canale aperto in scrittura
+     * @throws IOException in caso di errori di I/O
+     */
+    static void scriviDelta(DeltaRubrica delta, WritableByteChannel destinazione) throws IOException {
+        Giornale compositore = new Giornale();
+        for (Contatto c : delta.getAggiornati()) {
+            compositore.componiContatto(c);
+            compositore.scrivi(destinazione);
+        }
+        for (int id : delta.getRimossi()) {
+            compositore.componiRimozione(id);
+            compositore.scrivi(destinazione);
+        }
+    }
+    /**
+     * @}
+     */
+
+    private void componiContatto(Contatto contatto) throws IOException {
+        inizia(CONTATTO);
+        uscita.writeInt(contatto.getId());
+        stringa(contatto.getNome());
+        stringa(contatto.getCognome());
+        for (int i = 0; i < Contatto.TELEFONI_MAX; i++) {
+            stringa(contatto.testoTelefono(i));
+        }
+        for (int i = 0; i < Contatto.EMAIL_MAX; i++) {
+            stringa(contatto.testoEmail(i));
+        }
+    }
+
+    private void componiRimozione(int id) throws IOException {
+        inizia(RIMOZIONE);
+        uscita.writeInt(id);
+    }
+
+    /**
+     * @brief Dimensione attuale del file in byte
+     */
+    long dimensione() throws IOException {
+        return canale.size();
+    }
+
+    /**
+     * @name ruota()
+     * @{
+     * @brief Sposta i record scritti finora nel file dato e riparte da un giornale vuoto
+     * Se il file esiste già, perché una compattazione precedente non è terminata,
+     * i record vengono aggiunti in coda ai suoi.
+     * @param vecchio file che riceve i record
+     * @throws IOException in caso di errori di I/O
+     */
+    void ruota(Path vecchio) throws IOException {
+        canale.close();
+        if (Files.exists(vecchio)) {
+            try (FileChannel destinazione = FileChannel.open(vecchio, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                    FileChannel sorgente = FileChannel.open(percorso, StandardOpenOption.READ)) {
+                long copiati = 0;
+                while (copiati < sorgente.size()) {
+                    copiati += sorgente.transferTo(copiati, sorgente.size() - copiati, destinazione);
+                }
+                destinazione.force(true);
+            }
+            Files.delete(percorso);
+        } else {
+            Files.move(percorso, vecchio);
+        }
+        apri();
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @name riproduci()
+     * @{
+     * @brief Riesegue i record di un giornale
+     * @param percorso file del giornale
+     * @param contatto riceve i contatti inseriti o modificati
+     * @param rimozione riceve gli id dei contatti rimossi
+     * @return i byte occupati dai record validi
+     * @throws IOException in caso di errori di I/O
+     */
+    static long riproduci(Path percorso, Consumer<Contatto> contatto, IntConsumer rimozione) throws IOException {
+        long validi = 0;
+        try (InputStream file = Files.newInputStream(percorso);
+                DataInputStream ingresso = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] dati;
+                int crcLetto;
+                try {
+                    int lunghezza = ingresso.readInt();
+                    if (lunghezza <= 0 || lunghezza > LUNGHEZZA_MASSIMA) {
+                        break;
+                    }
+                    dati = new byte[lunghezza];
+                    ingresso.readFully(dati);
+                    crcLetto = ingresso.readInt();
+                } catch (EOFException e) {
+                    //record troncato da un'interruzione
+                    break;
+                }
+                crc.reset();
+                crc.update(dati, 0, dati.length);
+                if ((int) crc.getValue() != crcLetto) {
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.wrap(dati);
+                byte tipo = record.get();
+                if (tipo == CONTATTO) {
+                    contatto.accept(new Contatto(record.getInt(), stringa(record), stringa(record),
+                            Rubrica.numeroDaCampo(stringa(record)), Rubrica.numeroDaCampo(stringa(record)), Rubrica.numeroDaCampo(stringa(record)),
+                            Rubrica.emailDaCampo(stringa(record)), Rubrica.emailDaCampo(stringa(record)), Rubrica.emailDaCampo(stringa(record))));
+                } else if (tipo == RIMOZIONE) {
+                    rimozione.accept(record.getInt());
+                } else {
+                    break;
+                }
+                validi += 4 + dati.length + 4;
+            }
+        }
+        return validi;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Chiude il giornale
+     */
+    @Override
+    public void close() throws IOException {
+        canale.close();
+    }
+
+    private void apri() throws IOException {
+        canale = FileChannel.open(percorso, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void inizia(byte tipo) throws IOException {
+        record.reset();
+        //posto per la lunghezza, scritta alla fine
+        uscita.writeInt(0);
+        uscita.writeByte(tipo);
+    }
+
+    private void stringa(String testo) throws IOException {
+        byte[] utf8 = testo.getBytes(StandardCharsets.UTF_8);
+        uscita.writeInt(utf8.length);
+        uscita.write(utf8);
+    }
+
+    private static String stringa(ByteBuffer record) {
+        int lunghezza = record.getInt();
+        String testo = new String(record.array(), record.position(), lunghezza, StandardCharsets.UTF_8);
+        record.position(record.position() + lunghezza);
+        return testo;
+    }
+
+    /**
+     * @brief Completa il record con lunghezza e checksum e lo scrive sul canale
+     */
+    private void scrivi(WritableByteChannel destinazione) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] byteRecord = record.toByteArray();
+        int lunghezza = byteRecord.length - 4;
+        crc.update(byteRecord, 4, lunghezza);
+        ByteBuffer buffer = ByteBuffer.allocate(byteRecord.length + 4);
+        buffer.put(byteRecord).putInt((int) crc.getValue());
+        buffer.putInt(0, lunghezza);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            destinazione.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * @file GruppoContatti.java
+ * @brief Contatti che condividono una chiave di un indice
+ * @package it.unisa.se.project.datiAndStrutture
+ * Quasi tutte le chiavi hanno uno o due contatti, ma un nome comune come
+ * "Mario" può averne centinaia di migliaia: finché sono pochi i contatti stanno
+ * in un array da scorrere, oltre LIMITE_ARRAY in una tabella a indirizzamento
+ * aperto come quella di IndiceNumeri, col posto calcolato dall'id, così
+ * togliere un contatto non richiede di scorrere tutti gli altri.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of GruppoContatti.java
+ * @{
+ */
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe GruppoContatti usata internamente dagli indici di Rubrica
+ */
+final class GruppoContatti implements Iterable<Contatto> {
+    /**
+     * @private LIMITE_ARRAY numero di contatti oltre il quale si passa alla tabella
+     */
+    static final int LIMITE_ARRAY = 32;
+
+    /**
+     * @private array nella forma ad array i contatti in [0, dimensione), in
+     * ordine qualsiasi; nella tabella i posti, null quelli vuoti
+     * @private dimensione numero di contatti
+     * @private tabella true dopo il passaggio alla tabella, che è occupata al più per metà
+     */
+    private Contatto[] array = new Contatto[1];
+    private int dimensione;
+    private boolean tabella;
+
+    /**
+     * @brief Aggiunge un contatto
+     * Un contatto aggiunto due volte, ad esempio con nome e cognome uguali, va
+     * anche tolto due volte.
+     */
+    void aggiungi(Contatto contatto) {
+        if (tabella) {
+            inserisci(array, contatto);
+            if (++dimensione * 2 > array.length) {
+                raddoppia(array.length * 2);
+            }
+            return;
+        }
+        if (dimensione == LIMITE_ARRAY) {
+            tabella = true;
+            raddoppia(4 * LIMITE_ARRAY);
+            aggiungi(contatto);
+            return;
+        }
+        if (dimensione == array.length) {
+            array = Arrays.copyOf(array, Math.min(LIMITE_ARRAY, dimensione * 2));
+        }
+        array[dimensione++] = contatto;
+    }
+
+    /**
+     * @brief Toglie un contatto, confrontando le istanze
+     */
+    void rimuovi(Contatto contatto) {
+        if (tabella) {
+            rimuoviDallaTabella(contatto);
+            return;
+        }
+        for (int i = 0; i < dimensione; i++) {
+            if (array[i] == contatto) {
+                //l'ordine non conta: l'ultimo prende il posto del tolto
+                array[i] = array[--dimensione];
+                array[dimensione] = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @brief Indica se il gruppo non ha più contatti
+     */
+    boolean vuoto() {
+        return dimensione == 0;
+    }
+
+    /**
+     * @brief Scorre i contatti in ordine qualsiasi; il gruppo non va modificato durante la visita
+     */
+    @Override
+    public Iterator<Contatto> iterator() {
+        if (!tabella) {
+            return Arrays.asList(array).subList(0, dimensione).iterator();
+        }
+        return new Iterator<Contatto>() {
+            private int posto = prossimo(0);
+
+            private int prossimo(int da) {
+                while (da < array.length && array[da] == null) {
+                    da++;
+                }
+                return da;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return posto < array.length;
+            }
+
+            @Override
+            public Contatto next() {
+                if (posto >= array.length) {
+                    throw new NoSuchElementException();
+                }
+                Contatto c = array[posto];
+                posto = prossimo(posto + 1);
+                return c;
+            }
+        };
+    }
+
+    /**
+     * @brief Rimuove dalla tabella spostando indietro i contatti successivi della sequenza
+     * Senza lapidi, come in IndiceNumeri.
+     */
+    private void rimuoviDallaTabella(Contatto contatto) {
+        int maschera = array.length - 1;
+        int buco = posto(contatto, maschera);
+        while (array[buco] != null && array[buco] != contatto) {
+            buco = (buco + 1) & maschera;
+        }
+        if (array[buco] == null) {
+            return;
+        }
+        for (int j = (buco + 1) & maschera; array[j] != null; j = (j + 1) & maschera) {
+            int ideale = posto(array[j], maschera);
+            boolean resta = buco <= j ? (buco < ideale && ideale <= j) : (buco < ideale || ideale <= j);
+            if (!resta) {
+                array[buco] = array[j];
+                buco = j;
+            }
+        }
+        array[buco] = null;
+        dimensione--;
+    }
+
+    private void raddoppia(int capacita) {
+        Contatto[] vecchi = array;
+        array = new Contatto[capacita];
+        for (Contatto c : vecchi) {
+            if (c != null) {
+                inserisci(array, c);
+            }
+        }
+    }
+
+    private static void inserisci(Contatto[] posti, Contatto contatto) {
+        int maschera = posti.length - 1;
+        int posto = posto(contatto, maschera);
+        while (posti[posto] != null) {
+            posto = (posto + 1) & maschera;
+        }
+        posti[posto] = contatto;
+    }
+
+    /**
+     * @brief Posto ideale di un contatto, dall'id con i bit mescolati
+     */
+    private static int posto(Contatto contatto, int maschera) {
+        int h = contatto.getId() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & maschera;
+    }
+}
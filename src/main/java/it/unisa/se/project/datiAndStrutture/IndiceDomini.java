@@ -0,0 +1,113 @@
+/**
+ * @file IndiceDomini.java
+ * @brief Indice dei contatti per dominio email
+ * @package it.unisa.se.project.datiAndStrutture
+ * Per ogni dominio, senza distinguere maiuscole e minuscole, conserva gli id
+ * dei contatti che hanno almeno un indirizzo in quel dominio. Le chiavi sono i
+ * numeri del DizionarioDomini, quindi l'indice non contiene stringhe, tranne
+ * per i domini arrivati a dizionario pieno: questi usano come chiave la
+ * stringa in minuscolo.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of IndiceDomini.java
+ * @{
+ */
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe IndiceDomini usata internamente da Rubrica
+ */
+class IndiceDomini {
+    private static final int[] NESSUNO = new int[0];
+    /**
+     * @private liste chiave del dominio -> id ordinati dei contatti; la chiave è
+     * un Integer per i domini del DizionarioDomini, altrimenti una String
+     */
+    private final Map<Object, ListaId> liste = new HashMap<>();
+
+    /**
+     * @brief Indicizza i domini delle email di un contatto
+     * @param contatto il contatto da indicizzare
+     */
+    void aggiungi(Contatto contatto) {
+        for (int i = 0; i < Contatto.EMAIL_MAX; i++) {
+            Object chiave = chiave(contatto, i);
+            if (chiave != null) {
+                ListaId lista = liste.get(chiave);
+                if (lista == null) {
+                    lista = new ListaId();
+                    liste.put(chiave, lista);
+                }
+                //due indirizzi nello stesso dominio: ListaId ignora il secondo
+                lista.aggiungi(contatto.getId());
+            }
+        }
+    }
+
+    /**
+     * @brief Rimuove un contatto dall'indice
+     * @param contatto il contatto da rimuovere, con gli stessi dati che aveva all'inserimento
+     */
+    void rimuovi(Contatto contatto) {
+        for (int i = 0; i < Contatto.EMAIL_MAX; i++) {
+            Object chiave = chiave(contatto, i);
+            if (chiave != null) {
+                ListaId lista = liste.get(chiave);
+                if (lista != null && lista.rimuovi(contatto.getId()) && lista.dimensione() == 0) {
+                    liste.remove(chiave);
+                }
+            }
+        }
+    }
+
+    /**
+     * @brief Svuota l'indice
+     */
+    void svuota() {
+        liste.clear();
+    }
+
+    /**
+     * @name contatti()
+     * @{
+     * @brief Restituisce gli id dei contatti con un indirizzo nel dominio dato
+     * @param dominio il dominio, senza '@', in qualsiasi combinazione di maiuscole
+     * @return gli id in ordine crescente
+     */
+    int[] contatti(String dominio) {
+        ListaId lista = liste.get(chiave(dominio));
+        return lista == null ? NESSUNO : lista.comeArray();
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Chiave del dominio di un indirizzo, null se l'indirizzo non ha '@'
+     */
+    private static Object chiave(Contatto contatto, int indice) {
+        int dominio = contatto.dominioEmail(indice);
+        if (dominio == DizionarioDomini.NESSUNO) {
+            return null;
+        }
+        return dominio == DizionarioDomini.ESTERNO ? chiave(contatto.testoDominio(indice)) : DizionarioDomini.chiave(dominio);
+    }
+
+    /**
+     * @brief Chiave di un dominio scritto per esteso
+     * Il numero della versione in minuscolo, se è nel dizionario; altrimenti la
+     * stringa in minuscolo. Il dizionario pieno non cambia più, quindi un
+     * dominio ha sempre la stessa chiave.
+     */
+    private static Object chiave(String dominio) {
+        String minuscolo = dominio.toLowerCase(Locale.ROOT);
+        int numero = DizionarioDomini.cerca(minuscolo);
+        return numero == DizionarioDomini.NESSUNO ? minuscolo : (Object) numero;
+    }
+}
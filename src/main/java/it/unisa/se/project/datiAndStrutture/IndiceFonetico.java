@@ -0,0 +1,111 @@
+/**
+ * @file IndiceFonetico.java
+ * @brief Indice dei contatti per codice fonetico di nome e cognome
+ * @package it.unisa.se.project.datiAndStrutture
+ * Mappa hash codice -> contatti, con i codici calcolati da FoneticaItaliana:
+ * trovare i contatti che suonano come un nome costa il calcolo di un codice e
+ * una ricerca nella mappa, indipendentemente dalla dimensione della rubrica.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of IndiceFonetico.java
+ * @{
+ */
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe IndiceFonetico usata internamente da Rubrica
+ */
+class IndiceFonetico {
+    /**
+     * @private contatti codice fonetico -> contatti con un nome o un cognome che ha quel codice
+     */
+    private final Map<String, GruppoContatti> contatti = new HashMap<>();
+
+    /**
+     * @name aggiungi()
+     * @{
+     * @brief Indicizza nome e cognome di un contatto
+     * @param contatto il contatto da indicizzare
+     */
+    void aggiungi(Contatto contatto) {
+        String cognome = FoneticaItaliana.codifica(contatto.getCognome());
+        String nome = FoneticaItaliana.codifica(contatto.getNome());
+        aggiungi(cognome, contatto);
+        if (!nome.equals(cognome)) {
+            aggiungi(nome, contatto);
+        }
+    }
+    /**
+     * @}
+     */
+
+    private void aggiungi(String codice, Contatto contatto) {
+        if (!codice.isEmpty()) {
+            contatti.computeIfAbsent(codice, k -> new GruppoContatti()).aggiungi(contatto);
+        }
+    }
+
+    /**
+     * @name rimuovi()
+     * @{
+     * @brief Rimuove un contatto dall'indice
+     * @param contatto il contatto da rimuovere, la stessa istanza passata ad aggiungi
+     */
+    void rimuovi(Contatto contatto) {
+        String cognome = FoneticaItaliana.codifica(contatto.getCognome());
+        String nome = FoneticaItaliana.codifica(contatto.getNome());
+        rimuovi(cognome, contatto);
+        if (!nome.equals(cognome)) {
+            rimuovi(nome, contatto);
+        }
+    }
+    /**
+     * @}
+     */
+
+    private void rimuovi(String codice, Contatto contatto) {
+        GruppoContatti gruppo = contatti.get(codice);
+        if (gruppo == null) {
+            return;
+        }
+        gruppo.rimuovi(contatto);
+        if (gruppo.vuoto()) {
+            contatti.remove(codice);
+        }
+    }
+
+    /**
+     * @brief Svuota l'indice
+     */
+    void svuota() {
+        contatti.clear();
+    }
+
+    /**
+     * @name cerca()
+     * @{
+     * @brief Restituisce i contatti con nome o cognome che ha il codice dato
+     * @param codice codice calcolato da FoneticaItaliana.codifica
+     * @return i contatti, in ordine qualsiasi, in una lista nuova
+     */
+    List<Contatto> cerca(String codice) {
+        GruppoContatti gruppo = contatti.get(codice);
+        List<Contatto> trovati = new ArrayList<>();
+        if (gruppo != null) {
+            for (Contatto c : gruppo) {
+                trovati.add(c);
+            }
+        }
+        return trovati;
+    }
+    /**
+     * @}
+     */
+}
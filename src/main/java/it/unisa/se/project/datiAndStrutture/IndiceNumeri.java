@@ -0,0 +1,183 @@
+/**
+ * @file IndiceNumeri.java
+ * @brief Indice dei contatti per numero di telefono normalizzato
+ * @package it.unisa.se.project.datiAndStrutture
+ * Tabella hash a indirizzamento aperto con chiavi long, quelle di
+ * NumeroTel.chiave, e valori Contatto, senza oggetti per le voci né boxing
+ * delle chiavi: una ricerca esatta costa tempo costante e non crea oggetti.
+ * Più contatti possono avere lo stesso numero, ad esempio il centralino di
+ * un'azienda: ogni coppia numero-contatto occupa un posto, e le coppie con la
+ * stessa chiave sono nella stessa sequenza di posti occupati.
+ *
+ * @invariant ogni coppia si trova tra il suo posto ideale e il primo posto vuoto successivo
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of IndiceNumeri.java
+ * @{
+ */
+import java.util.ArrayList;
+import java.util.List;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe IndiceNumeri usata internamente da Rubrica
+ */
+class IndiceNumeri {
+    /**
+     * @private CAPACITA_INIZIALE posti della tabella vuota, sempre una potenza di due
+     */
+    private static final int CAPACITA_INIZIALE = 64;
+    /**
+     * @private chiavi chiavi dei posti occupati
+     * @private contatti contatti dei posti, null nei posti vuoti
+     * @private coppie posti occupati, al più metà della tabella
+     */
+    private long[] chiavi = new long[CAPACITA_INIZIALE];
+    private Contatto[] contatti = new Contatto[CAPACITA_INIZIALE];
+    private int coppie;
+
+    /**
+     * @brief Indicizza i numeri di telefono di un contatto
+     * @param contatto il contatto da indicizzare
+     */
+    void aggiungi(Contatto contatto) {
+        for (int i = 0; i < Contatto.TELEFONI_MAX; i++) {
+            long chiave = NumeroTel.chiave(contatto.testoTelefono(i));
+            if (chiave != NumeroTel.NESSUNA_CHIAVE) {
+                aggiungi(chiave, contatto);
+            }
+        }
+    }
+
+    /**
+     * @brief Rimuove un contatto dall'indice
+     * @param contatto il contatto da rimuovere, la stessa istanza passata ad aggiungi
+     */
+    void rimuovi(Contatto contatto) {
+        for (int i = 0; i < Contatto.TELEFONI_MAX; i++) {
+            long chiave = NumeroTel.chiave(contatto.testoTelefono(i));
+            if (chiave != NumeroTel.NESSUNA_CHIAVE) {
+                rimuovi(chiave, contatto);
+            }
+        }
+    }
+
+    /**
+     * @brief Svuota l'indice
+     */
+    void svuota() {
+        chiavi = new long[CAPACITA_INIZIALE];
+        contatti = new Contatto[CAPACITA_INIZIALE];
+        coppie = 0;
+    }
+
+    /**
+     * @name primo()
+     * @{
+     * @brief Restituisce un contatto con la chiave data
+     * @param chiave chiave calcolata da NumeroTel.chiave
+     * @return il primo contatto trovato con quel numero, null se non ce ne sono
+     */
+    Contatto primo(long chiave) {
+        int maschera = chiavi.length - 1;
+        for (int posto = posto(chiave, maschera); contatti[posto] != null; posto = (posto + 1) & maschera) {
+            if (chiavi[posto] == chiave) {
+                return contatti[posto];
+            }
+        }
+        return null;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Restituisce tutti i contatti con la chiave data
+     * @param chiave chiave calcolata da NumeroTel.chiave
+     * @return i contatti, in ordine qualsiasi
+     */
+    List<Contatto> tutti(long chiave) {
+        List<Contatto> trovati = new ArrayList<>(1);
+        int maschera = chiavi.length - 1;
+        for (int posto = posto(chiave, maschera); contatti[posto] != null; posto = (posto + 1) & maschera) {
+            if (chiavi[posto] == chiave) {
+                trovati.add(contatti[posto]);
+            }
+        }
+        return trovati;
+    }
+
+    private void aggiungi(long chiave, Contatto contatto) {
+        int maschera = chiavi.length - 1;
+        int posto = posto(chiave, maschera);
+        for (; contatti[posto] != null; posto = (posto + 1) & maschera) {
+            if (chiavi[posto] == chiave && contatti[posto] == contatto) {
+                //lo stesso numero due volte nello stesso contatto
+                return;
+            }
+        }
+        chiavi[posto] = chiave;
+        contatti[posto] = contatto;
+        if (++coppie * 2 > chiavi.length) {
+            raddoppia();
+        }
+    }
+
+    /**
+     * @brief Rimuove una coppia spostando indietro le coppie successive della sequenza
+     * Senza lapidi: ogni coppia che seguiva quella rimossa e che ha il posto ideale
+     * prima del buco viene spostata nel buco, così le ricerche si fermano ancora
+     * al primo posto vuoto.
+     */
+    private void rimuovi(long chiave, Contatto contatto) {
+        int maschera = chiavi.length - 1;
+        int buco = posto(chiave, maschera);
+        while (contatti[buco] != null && (chiavi[buco] != chiave || contatti[buco] != contatto)) {
+            buco = (buco + 1) & maschera;
+        }
+        if (contatti[buco] == null) {
+            return;
+        }
+        for (int j = (buco + 1) & maschera; contatti[j] != null; j = (j + 1) & maschera) {
+            int ideale = posto(chiavi[j], maschera);
+            boolean resta = buco <= j ? (buco < ideale && ideale <= j) : (buco < ideale || ideale <= j);
+            if (!resta) {
+                chiavi[buco] = chiavi[j];
+                contatti[buco] = contatti[j];
+                buco = j;
+            }
+        }
+        contatti[buco] = null;
+        chiavi[buco] = 0;
+        coppie--;
+    }
+
+    private void raddoppia() {
+        long[] vecchieChiavi = chiavi;
+        Contatto[] vecchiContatti = contatti;
+        chiavi = new long[vecchieChiavi.length * 2];
+        contatti = new Contatto[vecchiContatti.length * 2];
+        int maschera = chiavi.length - 1;
+        for (int i = 0; i < vecchiContatti.length; i++) {
+            if (vecchiContatti[i] != null) {
+                int posto = posto(vecchieChiavi[i], maschera);
+                while (contatti[posto] != null) {
+                    posto = (posto + 1) & maschera;
+                }
+                chiavi[posto] = vecchieChiavi[i];
+                contatti[posto] = vecchiContatti[i];
+            }
+        }
+    }
+
+    /**
+     * @brief Posto ideale di una chiave, dopo aver mescolato i bit
+     */
+    private static int posto(long chiave, int maschera) {
+        long h = chiave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & maschera;
+    }
+}
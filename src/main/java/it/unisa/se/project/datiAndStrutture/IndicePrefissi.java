@@ -0,0 +1,337 @@
+/**
+ * @file IndicePrefissi.java
+ * @brief Indice ordinato per la ricerca per prefisso e il completamento
+ * @package it.unisa.se.project.datiAndStrutture
+ * Conserva in una mappa ordinata i cognomi, i nomi e le parti locali degli
+ * indirizzi email (prima della '@'), in minuscolo. Tutte le chiavi che iniziano
+ * con un prefisso sono contigue nella mappa, quindi si trovano con una sola
+ * ricerca logaritmica seguita da una visita dell'intervallo.
+ * La stessa mappa, vista come un trie implicito, serve alla ricerca
+ * approssimata: le chiavi con un prefisso in comune condividono il calcolo
+ * della distanza su quel prefisso, e un prefisso troppo distante fa saltare in
+ * un passo tutte le chiavi che lo estendono.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of IndicePrefissi.java
+ * @{
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe IndicePrefissi usata internamente da Rubrica
+ */
+class IndicePrefissi {
+    /**
+     * @private voci mappa chiave in minuscolo -> voce con i contatti che la usano
+     */
+    private final TreeMap<String, Voce> voci = new TreeMap<>();
+
+    /**
+     * @name aggiungi()
+     * @{
+     * @brief Indicizza cognome, nome e parti locali delle email di un contatto
+     * @param contatto il contatto da indicizzare
+     */
+    void aggiungi(Contatto contatto) {
+        for (String testo : testiDi(contatto)) {
+            String chiave = testo.toLowerCase(Locale.ROOT);
+            Voce voce = voci.get(chiave);
+            if (voce == null) {
+                voce = new Voce(testo);
+                voci.put(chiave, voce);
+            }
+            voce.contatti.aggiungi(contatto);
+        }
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @name rimuovi()
+     * @{
+     * @brief Rimuove un contatto dall'indice
+     * Se la chiave resta ad altri contatti ma il suo testo era scritto come in
+     * quello rimosso, il testo passa a uno dei contatti rimasti.
+     * @param contatto il contatto da rimuovere, con gli stessi dati che aveva all'inserimento
+     */
+    void rimuovi(Contatto contatto) {
+        for (String testo : testiDi(contatto)) {
+            String chiave = testo.toLowerCase(Locale.ROOT);
+            Voce voce = voci.get(chiave);
+            if (voce == null) {
+                continue;
+            }
+            voce.contatti.rimuovi(contatto);
+            if (voce.contatti.vuoto()) {
+                voci.remove(chiave);
+            } else if (voce.testo.equals(testo)) {
+                voce.testo = testoRimasto(voce, chiave);
+            }
+        }
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Svuota l'indice
+     */
+    void svuota() {
+        voci.clear();
+    }
+
+    /**
+     * @name completamenti()
+     * @{
+     * @brief Restituisce le chiavi che iniziano con il prefisso, in ordine alfabetico
+     * @param prefisso prefisso da completare, in qualsiasi combinazione di maiuscole
+     * @param max numero massimo di completamenti
+     * @return i completamenti, scritti come in uno dei contatti che li usano
+     */
+    List<String> completamenti(String prefisso, int max) {
+        List<String> risultato = new ArrayList<>();
+        for (Voce voce : intervallo(prefisso).values()) {
+            if (risultato.size() >= max) {
+                break;
+            }
+            risultato.add(voce.testo);
+        }
+        return risultato;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @name cerca()
+     * @{
+     * @brief Restituisce i contatti con almeno una chiave che inizia con il prefisso
+     * @param prefisso prefisso da cercare, in qualsiasi combinazione di maiuscole
+     * @return i contatti, senza duplicati e in ordine qualsiasi
+     */
+    Collection<Contatto> cerca(String prefisso) {
+        Map<Contatto, Boolean> trovati = new IdentityHashMap<>();
+        for (Voce voce : intervallo(prefisso).values()) {
+            for (Contatto c : voce.contatti) {
+                trovati.put(c, Boolean.TRUE);
+            }
+        }
+        return trovati.keySet();
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @name vicini()
+     * @{
+     * @brief Trova i contatti con nome o cognome a distanza di Levenshtein limitata da una parola
+     * Le chiavi vengono visitate in ordine tenendo una riga della matrice delle
+     * distanze per ogni carattere della chiave attuale: passando alla chiave
+     * successiva si ricalcolano solo le righe dopo il prefisso in comune. Se
+     * tutte le distanze di una riga superano distanzaMax nessuna chiave con quel
+     * prefisso può andare bene, e la visita riprende dalla prima chiave che non
+     * lo ha. Il costo dipende quindi dalle chiavi vicine alla parola e non da
+     * tutte quelle dell'indice.
+     * I contatti vengono raccolti a partire dalle chiavi più vicine: chi cerca
+     * solo i più simili passa in limite quanti gliene servono, e le chiavi più
+     * distanti non vengono guardate se quelle più vicine bastano già.
+     * @param parola parola cercata, in minuscolo
+     * @param distanzaMax numero massimo di caratteri inseriti, tolti o sostituiti
+     * @param limite contatti oltre i quali non si passa alla distanza successiva
+     * @return contatto -> distanza minima tra la parola e il suo nome o cognome
+     */
+    Map<Contatto, Integer> vicini(String parola, int distanzaMax, int limite) {
+        List<List<Voce>> perDistanza = new ArrayList<>(distanzaMax + 1);
+        for (int d = 0; d <= distanzaMax; d++) {
+            perDistanza.add(new ArrayList<>());
+        }
+        int m = parola.length();
+        //righe[i] contiene le distanze tra i primi i caratteri della chiave e i prefissi della parola
+        int[][] righe = new int[16][];
+        righe[0] = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            righe[0][j] = j;
+        }
+        String precedente = "";
+        int valide = 0;
+        String chiave = voci.isEmpty() ? null : voci.firstKey();
+        while (chiave != null) {
+            int i = Math.min(prefissoComune(precedente, chiave), valide);
+            int scartato = -1;
+            while (i < chiave.length()) {
+                if (i + 1 >= righe.length) {
+                    righe = Arrays.copyOf(righe, righe.length * 2);
+                }
+                if (righe[i + 1] == null) {
+                    righe[i + 1] = new int[m + 1];
+                }
+                if (prossimaRiga(righe[i], righe[i + 1], parola, chiave.charAt(i)) > distanzaMax) {
+                    scartato = i + 1;
+                    break;
+                }
+                i++;
+            }
+            precedente = chiave;
+            if (scartato >= 0) {
+                valide = scartato;
+                chiave = primaDopo(chiave.substring(0, scartato));
+                continue;
+            }
+            valide = chiave.length();
+            int distanza = righe[chiave.length()][m];
+            if (distanza <= distanzaMax) {
+                perDistanza.get(distanza).add(voci.get(chiave));
+            }
+            chiave = voci.higherKey(chiave);
+        }
+        Map<Contatto, Integer> trovati = new IdentityHashMap<>();
+        for (int d = 0; d <= distanzaMax && trovati.size() < limite; d++) {
+            for (Voce voce : perDistanza.get(d)) {
+                for (Contatto c : voce.contatti) {
+                    //le parti locali delle email sono nell'indice ma non contano
+                    if (c.getCognome().equalsIgnoreCase(voce.testo) || c.getNome().equalsIgnoreCase(voce.testo)) {
+                        trovati.putIfAbsent(c, d);
+                    }
+                }
+            }
+        }
+        return trovati;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Distanza di Levenshtein tra una parola e un testo, se non supera distanzaMax
+     * @return la distanza, o distanzaMax + 1 se è maggiore
+     */
+    static int distanza(String parola, String testo, int distanzaMax) {
+        if (Math.abs(parola.length() - testo.length()) > distanzaMax) {
+            return distanzaMax + 1;
+        }
+        int[] riga = new int[parola.length() + 1];
+        int[] nuova = new int[parola.length() + 1];
+        for (int j = 0; j < riga.length; j++) {
+            riga[j] = j;
+        }
+        for (int i = 0; i < testo.length(); i++) {
+            if (prossimaRiga(riga, nuova, parola, testo.charAt(i)) > distanzaMax) {
+                return distanzaMax + 1;
+            }
+            int[] scambio = riga;
+            riga = nuova;
+            nuova = scambio;
+        }
+        return Math.min(riga[parola.length()], distanzaMax + 1);
+    }
+
+    /**
+     * @brief Calcola la riga della matrice di Levenshtein per un carattere in più della chiave
+     * @return la distanza minima della nuova riga
+     */
+    private static int prossimaRiga(int[] riga, int[] nuova, String parola, char c) {
+        nuova[0] = riga[0] + 1;
+        int minimo = nuova[0];
+        for (int j = 1; j < nuova.length; j++) {
+            int sostituzione = riga[j - 1] + (parola.charAt(j - 1) == c ? 0 : 1);
+            nuova[j] = Math.min(sostituzione, Math.min(riga[j], nuova[j - 1]) + 1);
+            minimo = Math.min(minimo, nuova[j]);
+        }
+        return minimo;
+    }
+
+    private static int prefissoComune(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @brief Prima chiave che non inizia con il prefisso e viene dopo di esso, null se non c'è
+     */
+    private String primaDopo(String prefisso) {
+        int fine = prefisso.length();
+        while (fine > 0 && prefisso.charAt(fine - 1) == Character.MAX_VALUE) {
+            fine--;
+        }
+        if (fine == 0) {
+            return null;
+        }
+        String successore = prefisso.substring(0, fine - 1) + (char) (prefisso.charAt(fine - 1) + 1);
+        return voci.ceilingKey(successore);
+    }
+
+    private NavigableMap<String, Voce> intervallo(String prefisso) {
+        String inizio = prefisso.toLowerCase(Locale.ROOT);
+        return voci.subMap(inizio, true, inizio + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * @brief Cognome, nome e parti locali delle email non vuoti di un contatto
+     */
+    private static List<String> testiDi(Contatto contatto) {
+        List<String> testi = new ArrayList<>(2 + Contatto.EMAIL_MAX);
+        aggiungiSeNonVuoto(testi, contatto.getCognome());
+        aggiungiSeNonVuoto(testi, contatto.getNome());
+        for (int i = 0; i < Contatto.EMAIL_MAX; i++) {
+            aggiungiSeNonVuoto(testi, contatto.localeEmail(i));
+        }
+        return testi;
+    }
+
+    /**
+     * @brief Testo di una chiave dopo la rimozione di un contatto che lo usava
+     * Resta lo stesso se un altro contatto lo scrive ancora così, altrimenti
+     * diventa quello del primo contatto rimasto. Di solito il primo contatto
+     * guardato basta.
+     */
+    private static String testoRimasto(Voce voce, String chiave) {
+        String altro = null;
+        for (Contatto c : voce.contatti) {
+            for (String testo : testiDi(c)) {
+                if (testo.equals(voce.testo)) {
+                    return testo;
+                }
+                if (altro == null && testo.toLowerCase(Locale.ROOT).equals(chiave)) {
+                    altro = testo;
+                }
+            }
+        }
+        return altro != null ? altro : voce.testo;
+    }
+
+    private static void aggiungiSeNonVuoto(List<String> testi, String testo) {
+        if (!testo.isEmpty()) {
+            testi.add(testo);
+        }
+    }
+
+    /**
+     * @brief Testo di una chiave, scritto come in uno dei contatti che la usano, e quei contatti
+     */
+    private static final class Voce {
+        private String testo;
+        private final GruppoContatti contatti = new GruppoContatti();
+
+        Voce(String testo) {
+            this.testo = testo;
+        }
+    }
+}
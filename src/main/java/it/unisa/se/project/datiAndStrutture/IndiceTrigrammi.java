@@ -0,0 +1,200 @@
+/**
+ * @file IndiceTrigrammi.java
+ * @brief Indice invertito a trigrammi per la ricerca per sottostringa
+ * @package it.unisa.se.project.datiAndStrutture
+ * Per ogni sequenza di tre caratteri (trigramma) presente nel nome, nel cognome,
+ * nei numeri di telefono o negli indirizzi email di un contatto l'indice conserva
+ * la lista dei contatti che la contengono. Una query di almeno tre caratteri
+ * può essere contenuta solo nei contatti presenti in tutte le liste dei suoi
+ * trigrammi, quindi basta intersecare quelle liste invece di scorrere la rubrica.
+ *
+ * Le liste sono ListaId: inserimento e rimozione non dipendono dalla lunghezza
+ * della lista, e l'intersezione parte dalla lista più corta e tiene gli id
+ * presenti in ciascuna delle altre.
+ *
+ * @invariant ogni lista è ordinata e senza duplicati
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of IndiceTrigrammi.java
+ * @{
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe IndiceTrigrammi usata internamente da Rubrica
+ */
+class IndiceTrigrammi {
+    /**
+     * @public LUNGHEZZA_GRAMMA numero di caratteri di un gramma
+     */
+    static final int LUNGHEZZA_GRAMMA = 3;
+    private static final int[] NESSUNO = new int[0];
+    /**
+     * @private liste mappa trigramma -> id ordinati dei contatti che lo contengono
+     */
+    private final Map<Long, ListaId> liste = new HashMap<>();
+
+    /**
+     * @name aggiungi()
+     * @{
+     * @brief Indicizza un contatto
+     * @param contatto il contatto da indicizzare
+     * @pre contatto non ancora presente nell'indice
+     */
+    void aggiungi(Contatto contatto) {
+        for (long gramma : trigrammiDi(contatto)) {
+            ListaId lista = liste.get(gramma);
+            if (lista == null) {
+                lista = new ListaId();
+                liste.put(gramma, lista);
+            }
+            lista.aggiungi(contatto.getId());
+        }
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @name rimuovi()
+     * @{
+     * @brief Rimuove un contatto dall'indice
+     * @param contatto il contatto da rimuovere, con gli stessi dati che aveva all'inserimento
+     */
+    void rimuovi(Contatto contatto) {
+        for (long gramma : trigrammiDi(contatto)) {
+            ListaId lista = liste.get(gramma);
+            if (lista != null && lista.rimuovi(contatto.getId()) && lista.dimensione() == 0) {
+                liste.remove(gramma);
+            }
+        }
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Svuota l'indice
+     */
+    void svuota() {
+        liste.clear();
+    }
+
+    /**
+     * @name candidati()
+     * @{
+     * @brief Restituisce gli id dei contatti che contengono tutti i trigrammi della query
+     * Il risultato è un sovrainsieme dei contatti che contengono la query:
+     * va verificato dal chiamante.
+     * @param query testo già in minuscolo
+     * @return gli id dei candidati in ordine crescente
+     * @pre query.length() >= LUNGHEZZA_GRAMMA
+     */
+    int[] candidati(String query) {
+        ListaId[] daIntersecare = liste(query);
+        if (daIntersecare == null) {
+            return NESSUNO;
+        }
+        int[] risultato = daIntersecare[0].comeArray();
+        int n = risultato.length;
+        for (int l = 1; l < daIntersecare.length && n > 0; l++) {
+            n = daIntersecare[l].filtra(risultato, n);
+        }
+        return n == risultato.length ? risultato : Arrays.copyOf(risultato, n);
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @name liste()
+     * @{
+     * @brief Restituisce le liste dei trigrammi della query, dalla più corta
+     * Serve a chi deve scorrere comunque la rubrica in ordine: un contatto è
+     * candidato se il suo id è in tutte le liste.
+     * @param query testo già in minuscolo
+     * @return le liste, oppure null se un trigramma non compare in nessun contatto
+     * @pre query.length() >= LUNGHEZZA_GRAMMA
+     */
+    ListaId[] liste(String query) {
+        long[] grammi = trigrammi(query);
+        ListaId[] trovate = new ListaId[grammi.length];
+        for (int i = 0; i < grammi.length; i++) {
+            trovate[i] = liste.get(grammi[i]);
+            if (trovate[i] == null) {
+                return null;
+            }
+        }
+        Arrays.sort(trovate, (a, b) -> Integer.compare(a.dimensione(), b.dimensione()));
+        return trovate;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Trigrammi distinti di tutti i campi di un contatto
+     */
+    private static long[] trigrammiDi(Contatto contatto) {
+        long[] grammi = new long[0];
+        int n = 0;
+        List<String> testi = new ArrayList<>(8);
+        testi.add(contatto.getNome().toLowerCase(Locale.ROOT));
+        testi.add(contatto.getCognome().toLowerCase(Locale.ROOT));
+        for (int i = 0; i < Contatto.TELEFONI_MAX; i++) {
+            testi.add(contatto.testoTelefono(i).toLowerCase(Locale.ROOT));
+        }
+        for (int i = 0; i < Contatto.EMAIL_MAX; i++) {
+            testi.add(contatto.testoEmail(i).toLowerCase(Locale.ROOT));
+        }
+        for (String testo : testi) {
+            long[] daTesto = trigrammi(testo);
+            if (n + daTesto.length > grammi.length) {
+                grammi = Arrays.copyOf(grammi, n + daTesto.length);
+            }
+            System.arraycopy(daTesto, 0, grammi, n, daTesto.length);
+            n += daTesto.length;
+        }
+        return distinti(grammi, n);
+    }
+
+    /**
+     * @brief Trigrammi distinti di un testo, ciascuno codificato in un long
+     * I tre caratteri occupano 48 bit; il prodotto per una costante dispari
+     * resta diverso per trigrammi diversi e ne mescola i bit, altrimenti
+     * Long.hashCode confonderebbe il primo carattere con l'ultimo e i trigrammi
+     * delle cifre finirebbero in pochi bucket della mappa.
+     */
+    static long[] trigrammi(String testo) {
+        int n = testo.length() - LUNGHEZZA_GRAMMA + 1;
+        if (n <= 0) {
+            return new long[0];
+        }
+        long[] grammi = new long[n];
+        for (int i = 0; i < n; i++) {
+            long caratteri = ((long) testo.charAt(i) << 32) | ((long) testo.charAt(i + 1) << 16) | testo.charAt(i + 2);
+            grammi[i] = caratteri * 0x9E3779B97F4A7C15L;
+        }
+        return distinti(grammi, n);
+    }
+
+    private static long[] distinti(long[] grammi, int n) {
+        Arrays.sort(grammi, 0, n);
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            if (k == 0 || grammi[k - 1] != grammi[i]) {
+                grammi[k++] = grammi[i];
+            }
+        }
+        return Arrays.copyOf(grammi, k);
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * @file LettoreCsv.java
+ * @brief Lettore di file CSV a singola passata
+ * @package it.unisa.se.project.datiAndStrutture
+ * Legge i byte del file in un blocco riusato e li scandisce una volta sola,
+ * riconoscendo separatori, fine riga e campi tra virgolette secondo RFC 4180
+ * (virgole, a capo e "" all'interno delle virgolette). I campi non tra virgolette
+ * vengono privati degli spazi iniziali e finali, come faceva String.trim.
+ * Il testo è decodificato come UTF-8; un eventuale BOM iniziale viene ignorato.
+ * I byte possono arrivare da un canale o da una regione di file mappata in
+ * memoria, usata dal caricamento parallelo.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of LettoreCsv.java
+ * @{
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe LettoreCsv usata internamente da Rubrica
+ */
+class LettoreCsv {
+    /**
+     * @public CAMPI numero di campi di una riga della rubrica, compreso l'id
+     */
+    static final int CAMPI = 9;
+    /**
+     * @private DIMENSIONE_BLOCCO byte letti dal file a ogni accesso
+     */
+    private static final int DIMENSIONE_BLOCCO = 1 << 16;
+    private static final int FINE = -1;
+
+    /**
+     * @private canale sorgente dei byte, oppure null se si legge da regione
+     * @private regione porzione di file mappata in memoria, oppure null
+     * @private blocco ultimi byte letti, posizione e limite al suo interno
+     * @private campo byte del campo in lettura
+     * @private campi campi dell'ultima riga letta, riusati a ogni riga
+     */
+    private final ReadableByteChannel canale;
+    private final ByteBuffer regione;
+    private final byte[] blocco = new byte[DIMENSIONE_BLOCCO];
+    private int posizione;
+    private int limite;
+    private long byteLetti;
+    private byte[] campo = new byte[256];
+    private final String[] campi = new String[CAMPI];
+    private int numeroCampi;
+    private boolean inizio = true;
+    private boolean dopoCr;
+    private boolean virgoletteAperte;
+
+    /**
+     * @brief Costruisce un lettore che legge dal canale dato
+     * @param canale canale aperto in lettura, non viene chiuso dal lettore
+     */
+    LettoreCsv(ReadableByteChannel canale) {
+        this.canale = canale;
+        this.regione = null;
+    }
+
+    /**
+     * @brief Costruisce un lettore che legge una regione di file
+     * @param regione byte da leggere, dalla posizione al limite
+     * @param inizioFile true se la regione comincia all'inizio del file, dove può esserci un BOM
+     */
+    LettoreCsv(ByteBuffer regione, boolean inizioFile) {
+        this.canale = null;
+        this.regione = regione;
+        this.inizio = inizioFile;
+    }
+
+    /**
+     * @name prossimaRiga()
+     * @{
+     * @brief Legge la riga successiva
+     * @return false se il file è finito
+     * @throws IOException in caso di errori di I/O
+     */
+    boolean prossimaRiga() throws IOException {
+        if (inizio) {
+            saltaBom();
+            inizio = false;
+        }
+        int b = leggi();
+        if (dopoCr && b == '\n') {
+            b = leggi();
+        }
+        dopoCr = false;
+        if (b == FINE) {
+            return false;
+        }
+        Arrays.fill(campi, "");
+        numeroCampi = 0;
+        b = leggiCampo(b);
+        while (b == ',') {
+            b = leggiCampo(leggi());
+        }
+        //un '\n' subito dopo '\r' appartiene alla stessa fine riga
+        dopoCr = b == '\r';
+        return true;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Restituisce un campo dell'ultima riga letta
+     * @param indice posizione del campo
+     * @return il campo, "" se la riga ne ha meno
+     */
+    String campo(int indice) {
+        return campi[indice];
+    }
+
+    /**
+     * @brief Numero di campi dell'ultima riga letta
+     */
+    int numeroCampi() {
+        return numeroCampi;
+    }
+
+    /**
+     * @brief Indica se i byte sono finiti dentro un campo tra virgolette
+     * Per una regione significa che non terminava a fine riga.
+     */
+    boolean virgoletteAperte() {
+        return virgoletteAperte;
+    }
+
+    /**
+     * @brief Byte consumati finora
+     */
+    long byteLetti() {
+        return byteLetti - (limite - posizione);
+    }
+
+    /**
+     * @brief Legge un campo a partire dal byte b
+     * @return il byte che ha chiuso il campo: ',', '\n', '\r' o FINE
+     */
+    private int leggiCampo(int b) throws IOException {
+        int lunghezza = 0;
+        while (b != FINE && b != '\n' && b != '\r' && b != ',' && b <= ' ') {
+            b = leggi();
+        }
+        if (b == '"') {
+            while (true) {
+                b = leggi();
+                if (b == FINE) {
+                    virgoletteAperte = true;
+                    break;
+                }
+                if (b == '"') {
+                    b = leggi();
+                    if (b != '"') {
+                        break;
+                    }
+                }
+                lunghezza = aggiungi(lunghezza, b);
+            }
+            //dopo la virgoletta di chiusura si ignorano gli spazi, il resto si tiene
+            while (b != FINE && b != '\n' && b != '\r' && b != ',') {
+                if (b > ' ') {
+                    lunghezza = aggiungi(lunghezza, b);
+                }
+                b = leggi();
+            }
+        } else {
+            int significativi = 0;
+            while (b != FINE && b != '\n' && b != '\r' && b != ',') {
+                lunghezza = aggiungi(lunghezza, b);
+                if (b > ' ') {
+                    significativi = lunghezza;
+                }
+                b = leggi();
+            }
+            lunghezza = significativi;
+        }
+        if (numeroCampi < CAMPI) {
+            campi[numeroCampi] = lunghezza == 0 ? "" : new String(campo, 0, lunghezza, StandardCharsets.UTF_8);
+        }
+        numeroCampi++;
+        return b;
+    }
+
+    private int aggiungi(int lunghezza, int b) {
+        if (lunghezza == campo.length) {
+            campo = Arrays.copyOf(campo, lunghezza * 2);
+        }
+        campo[lunghezza] = (byte) b;
+        return lunghezza + 1;
+    }
+
+    /**
+     * @brief Byte successivo come intero senza segno, FINE a file finito
+     * I byte delle sequenze UTF-8 multibyte valgono più di 127, quindi non
+     * vengono mai scambiati per separatori o spazi.
+     */
+    private int leggi() throws IOException {
+        if (posizione == limite && !riempi()) {
+            return FINE;
+        }
+        return blocco[posizione++] & 0xFF;
+    }
+
+    private boolean riempi() throws IOException {
+        if (regione != null) {
+            int letti = Math.min(regione.remaining(), blocco.length);
+            if (letti == 0) {
+                posizione = limite = 0;
+                return false;
+            }
+            regione.get(blocco, 0, letti);
+            posizione = 0;
+            limite = letti;
+            byteLetti += letti;
+            return true;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(blocco);
+        int letti;
+        do {
+            letti = canale.read(buffer);
+        } while (letti == 0);
+        if (letti < 0) {
+            posizione = limite = 0;
+            return false;
+        }
+        posizione = 0;
+        limite = letti;
+        byteLetti += letti;
+        return true;
+    }
+
+    private void saltaBom() throws IOException {
+        if (posizione == limite && !riempi()) {
+            return;
+        }
+        if (limite - posizione >= 3 && blocco[posizione] == (byte) 0xEF
+                && blocco[posizione + 1] == (byte) 0xBB && blocco[posizione + 2] == (byte) 0xBF) {
+            posizione += 3;
+        }
+    }
+}
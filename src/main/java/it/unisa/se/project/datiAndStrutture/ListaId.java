@@ -0,0 +1,336 @@
+/**
+ * @file ListaId.java
+ * @brief Insieme ordinato di id di contatti
+ * @package it.unisa.se.project.datiAndStrutture
+ * Usato dagli indici invertiti. Quasi tutte le liste, come quelle dei trigrammi
+ * di un numero di telefono, hanno pochi id: fino a LIMITE_PICCOLA stanno in un
+ * solo array ordinato di int. Oltre, gli id sono divisi in blocchi di 65536
+ * valori consecutivi, secondo i 16 bit alti; ogni blocco conserva solo i 16
+ * bit bassi:
+ * - finché ha al più LIMITE_ARRAY id, in un array ordinato di char;
+ * - oltre, in una mappa di 65536 bit.
+ * Inserire o togliere un id sposta al più LIMITE_ARRAY char dentro un blocco, o
+ * cambia un bit: il costo non cresce con la lista, anche per i trigrammi
+ * presenti in quasi tutti i contatti. I contatti nuovi, con id crescenti,
+ * finiscono in coda all'ultimo blocco senza spostare nulla.
+ *
+ * @invariant piccola[0..dimensione) è crescente finché piccola non è null
+ * @invariant chiavi[0..blocchi) è crescente e nessun blocco è vuoto
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of ListaId.java
+ * @{
+ */
+import java.util.Arrays;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe ListaId usata internamente dagli indici di Rubrica
+ */
+final class ListaId {
+    /**
+     * @private LIMITE_ARRAY numero massimo di id in un blocco ad array: oltre,
+     * la mappa di bit (8 KB) occupa meno dei char
+     */
+    static final int LIMITE_ARRAY = 4096;
+    /**
+     * @private LIMITE_PICCOLA numero massimo di id nella forma compatta
+     */
+    static final int LIMITE_PICCOLA = 64;
+    private static final int PAROLE_MAPPA = 65536 / 64;
+
+    /**
+     * @private piccola id in ordine crescente nella forma compatta, null dopo il
+     * passaggio ai blocchi
+     * @private chiavi 16 bit alti degli id di ciascun blocco, crescenti
+     * @private contenuti per ogni blocco un char[] con i 16 bit bassi ordinati
+     * oppure un long[] con la mappa di bit
+     * @private cardinalita numero di id di ciascun blocco
+     * @private blocchi numero di blocchi in uso
+     * @private dimensione numero totale di id
+     */
+    private int[] piccola = new int[2];
+    private int[] chiavi;
+    private Object[] contenuti;
+    private int[] cardinalita;
+    private int blocchi;
+    private int dimensione;
+
+    /**
+     * @brief Numero di id nella lista
+     */
+    int dimensione() {
+        return dimensione;
+    }
+
+    /**
+     * @brief Aggiunge un id, se non è già presente
+     */
+    void aggiungi(int nuovo) {
+        if (piccola != null) {
+            aggiungiPiccola(nuovo);
+            return;
+        }
+        int chiave = nuovo >> 16;
+        char basso = (char) nuovo;
+        int b;
+        if (blocchi > 0 && chiavi[blocchi - 1] == chiave) {
+            //caso comune: i nuovi contatti hanno id crescenti
+            b = blocchi - 1;
+        } else {
+            b = Arrays.binarySearch(chiavi, 0, blocchi, chiave);
+            if (b < 0) {
+                b = -b - 1;
+                inserisciBlocco(b, chiave);
+            }
+        }
+        if (contenuti[b] instanceof long[]) {
+            long[] mappa = (long[]) contenuti[b];
+            long bit = 1L << basso;
+            if ((mappa[basso >>> 6] & bit) == 0) {
+                mappa[basso >>> 6] |= bit;
+                cardinalita[b]++;
+                dimensione++;
+            }
+            return;
+        }
+        char[] v = (char[]) contenuti[b];
+        int n = cardinalita[b];
+        int pos;
+        if (n == 0 || v[n - 1] < basso) {
+            pos = n;
+        } else {
+            pos = Arrays.binarySearch(v, 0, n, basso);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+        }
+        if (n == LIMITE_ARRAY) {
+            long[] mappa = inMappa(v, n);
+            mappa[basso >>> 6] |= 1L << basso;
+            contenuti[b] = mappa;
+        } else {
+            if (n == v.length) {
+                v = Arrays.copyOf(v, Math.min(LIMITE_ARRAY, n * 2));
+                contenuti[b] = v;
+            }
+            System.arraycopy(v, pos, v, pos + 1, n - pos);
+            v[pos] = basso;
+        }
+        cardinalita[b]++;
+        dimensione++;
+    }
+
+    /**
+     * @brief Rimuove un id
+     * @return true se l'id era presente
+     */
+    boolean rimuovi(int vecchio) {
+        if (piccola != null) {
+            int pos = Arrays.binarySearch(piccola, 0, dimensione, vecchio);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(piccola, pos + 1, piccola, pos, dimensione - pos - 1);
+            dimensione--;
+            return true;
+        }
+        int b = Arrays.binarySearch(chiavi, 0, blocchi, vecchio >> 16);
+        if (b < 0) {
+            return false;
+        }
+        char basso = (char) vecchio;
+        if (contenuti[b] instanceof long[]) {
+            long[] mappa = (long[]) contenuti[b];
+            long bit = 1L << basso;
+            if ((mappa[basso >>> 6] & bit) == 0) {
+                return false;
+            }
+            mappa[basso >>> 6] &= ~bit;
+            //si torna all'array solo a metà del limite, così chi aggiunge e
+            //toglie lo stesso id al confine non converte il blocco ogni volta
+            if (--cardinalita[b] == LIMITE_ARRAY / 2) {
+                contenuti[b] = inArray(mappa, cardinalita[b]);
+            }
+        } else {
+            char[] v = (char[]) contenuti[b];
+            int pos = Arrays.binarySearch(v, 0, cardinalita[b], basso);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(v, pos + 1, v, pos, cardinalita[b] - pos - 1);
+            cardinalita[b]--;
+        }
+        dimensione--;
+        if (cardinalita[b] == 0) {
+            rimuoviBlocco(b);
+        }
+        return true;
+    }
+
+    /**
+     * @brief Indica se un id è presente
+     */
+    boolean contiene(int cercato) {
+        if (piccola != null) {
+            return Arrays.binarySearch(piccola, 0, dimensione, cercato) >= 0;
+        }
+        int b = Arrays.binarySearch(chiavi, 0, blocchi, cercato >> 16);
+        return b >= 0 && contiene(b, (char) cercato);
+    }
+
+    private boolean contiene(int b, char basso) {
+        if (contenuti[b] instanceof long[]) {
+            return (((long[]) contenuti[b])[basso >>> 6] & (1L << basso)) != 0;
+        }
+        return Arrays.binarySearch((char[]) contenuti[b], 0, cardinalita[b], basso) >= 0;
+    }
+
+    /**
+     * @brief Restituisce gli id in ordine crescente, in un array nuovo
+     */
+    int[] comeArray() {
+        if (piccola != null) {
+            return Arrays.copyOf(piccola, dimensione);
+        }
+        int[] id = new int[dimensione];
+        int k = 0;
+        for (int b = 0; b < blocchi; b++) {
+            int alto = chiavi[b] << 16;
+            if (contenuti[b] instanceof long[]) {
+                long[] mappa = (long[]) contenuti[b];
+                for (int p = 0; p < PAROLE_MAPPA; p++) {
+                    long parola = mappa[p];
+                    while (parola != 0) {
+                        id[k++] = alto | (p << 6) | Long.numberOfTrailingZeros(parola);
+                        parola &= parola - 1;
+                    }
+                }
+            } else {
+                char[] v = (char[]) contenuti[b];
+                for (int i = 0; i < cardinalita[b]; i++) {
+                    id[k++] = alto | v[i];
+                }
+            }
+        }
+        return id;
+    }
+
+    /**
+     * @brief Tiene in candidati[0..n) solo gli id presenti anche nella lista
+     * I candidati sono ordinati, quindi i blocchi si scorrono una volta sola.
+     * @param candidati id in ordine crescente, compattati sul posto
+     * @return il nuovo numero di candidati
+     */
+    int filtra(int[] candidati, int n) {
+        int k = 0;
+        if (piccola != null) {
+            //fusione di due sequenze ordinate
+            int j = 0;
+            for (int i = 0; i < n && j < dimensione; i++) {
+                while (j < dimensione && piccola[j] < candidati[i]) {
+                    j++;
+                }
+                if (j < dimensione && piccola[j] == candidati[i]) {
+                    candidati[k++] = candidati[i];
+                }
+            }
+            return k;
+        }
+        int b = 0;
+        for (int i = 0; i < n && b < blocchi; i++) {
+            int chiave = candidati[i] >> 16;
+            while (b < blocchi && chiavi[b] < chiave) {
+                b++;
+            }
+            if (b < blocchi && chiavi[b] == chiave && contiene(b, (char) candidati[i])) {
+                candidati[k++] = candidati[i];
+            }
+        }
+        return k;
+    }
+
+    private void aggiungiPiccola(int nuovo) {
+        int pos;
+        if (dimensione == 0 || piccola[dimensione - 1] < nuovo) {
+            pos = dimensione;
+        } else {
+            pos = Arrays.binarySearch(piccola, 0, dimensione, nuovo);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+        }
+        if (dimensione == LIMITE_PICCOLA) {
+            //nei blocchi, una volta sola: una lista che si svuota resta a blocchi
+            int[] id = piccola;
+            piccola = null;
+            chiavi = new int[1];
+            contenuti = new Object[1];
+            cardinalita = new int[1];
+            dimensione = 0;
+            for (int i = 0; i < LIMITE_PICCOLA; i++) {
+                aggiungi(id[i]);
+            }
+            aggiungi(nuovo);
+            return;
+        }
+        if (dimensione == piccola.length) {
+            piccola = Arrays.copyOf(piccola, Math.min(LIMITE_PICCOLA, dimensione * 2));
+        }
+        System.arraycopy(piccola, pos, piccola, pos + 1, dimensione - pos);
+        piccola[pos] = nuovo;
+        dimensione++;
+    }
+
+    private void inserisciBlocco(int b, int chiave) {
+        if (blocchi == chiavi.length) {
+            int capacita = blocchi * 2;
+            chiavi = Arrays.copyOf(chiavi, capacita);
+            contenuti = Arrays.copyOf(contenuti, capacita);
+            cardinalita = Arrays.copyOf(cardinalita, capacita);
+        }
+        int dopo = blocchi - b;
+        System.arraycopy(chiavi, b, chiavi, b + 1, dopo);
+        System.arraycopy(contenuti, b, contenuti, b + 1, dopo);
+        System.arraycopy(cardinalita, b, cardinalita, b + 1, dopo);
+        chiavi[b] = chiave;
+        contenuti[b] = new char[4];
+        cardinalita[b] = 0;
+        blocchi++;
+    }
+
+    private void rimuoviBlocco(int b) {
+        int dopo = blocchi - b - 1;
+        System.arraycopy(chiavi, b + 1, chiavi, b, dopo);
+        System.arraycopy(contenuti, b + 1, contenuti, b, dopo);
+        System.arraycopy(cardinalita, b + 1, cardinalita, b, dopo);
+        blocchi--;
+        contenuti[blocchi] = null;
+    }
+
+    private static long[] inMappa(char[] v, int n) {
+        long[] mappa = new long[PAROLE_MAPPA];
+        for (int i = 0; i < n; i++) {
+            mappa[v[i] >>> 6] |= 1L << v[i];
+        }
+        return mappa;
+    }
+
+    private static char[] inArray(long[] mappa, int n) {
+        char[] v = new char[n];
+        int k = 0;
+        for (int p = 0; p < PAROLE_MAPPA; p++) {
+            long parola = mappa[p];
+            while (parola != 0) {
+                v[k++] = (char) ((p << 6) | Long.numberOfTrailingZeros(parola));
+                parola &= parola - 1;
+            }
+        }
+        return v;
+    }
+}
@@ -3,12 +3,38 @@
  * @brief Rappresenta un numero di telefono
  * @package it.unisa.se.project.datiAndStrutture
  * Gestisce la validazione e formattazione dei numeri di telefono
+ * La forma normalizzata di un numero è quella con cui lo si comporrebbe
+ * dall'Italia, senza separatori: il prefisso +39 o 0039 viene tolto, gli altri
+ * prefissi internazionali vengono scritti con 00. Così "+39 089 123456",
+ * "0039 089-123456" e "089 123456" hanno la stessa forma normalizzata.
  */
 package it.unisa.se.project.datiAndStrutture;
 /**
 * @brief class NumeroTel
 */
 public class NumeroTel {
+    /**
+     * @public VUOTO numero vuoto condiviso, usato per gli slot non compilati
+     */
+    public static final NumeroTel VUOTO = new NumeroTel("");
+
+    /**
+     * @private SIMBOLI caratteri rappresentabili nel formato compresso, uno per ogni valore di 4 bit
+     * @private CIFRE_MAX caratteri massimi di un numero compresso
+     * @private NON_COMPRESSO valore di comprimi per i numeri che non entrano in un long
+     */
+    private static final String SIMBOLI = "0123456789+ -";
+    private static final int CIFRE_MAX = 15;
+    static final long NON_COMPRESSO = -1L;
+    /**
+     * @private PREFISSO_ITALIA prefisso internazionale tolto dalla forma normalizzata
+     * @private CIFRE_CHIAVE_MAX cifre massime di una forma normalizzata rappresentabile da chiave
+     * @public NESSUNA_CHIAVE valore di chiave per i testi che non sono numeri di telefono
+     */
+    private static final int PREFISSO_ITALIA = 39;
+    private static final int CIFRE_CHIAVE_MAX = 18;
+    static final long NESSUNA_CHIAVE = 0L;
+
     private String numero;
 
     /**
@@ -26,4 +52,185 @@ public class NumeroTel {
     public String toString() {
         return numero;
     }
+
+    /**
+     * @brief Due numeri sono uguali se hanno lo stesso testo
+     * @param o L'oggetto da confrontare
+     * @return true se o è un numero con lo stesso testo
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof NumeroTel && numero.equals(((NumeroTel) o).numero);
+    }
+
+    /**
+     * @brief Hash coerente con equals
+     */
+    @Override
+    public int hashCode() {
+        return numero.hashCode();
+    }
+
+    /**
+     * @brief Restituisce il numero in forma normalizzata
+     * @return solo le cifre, senza prefisso italiano, oppure "" se il testo non è un numero
+     */
+    public String getNormalizzato() {
+        long chiave = chiave(numero);
+        //la chiave è la forma normalizzata preceduta da un 1
+        return chiave == NESSUNA_CHIAVE ? "" : Long.toString(chiave).substring(1);
+    }
+
+    /**
+     * @name chiave()
+     * @{
+     * @brief Codifica la forma normalizzata di un numero in un long
+     * Il risultato è la forma normalizzata letta come numero decimale e preceduta
+     * da un 1, che conserva gli zeri iniziali: numeri con la stessa forma
+     * normalizzata hanno la stessa chiave. Non crea oggetti, quindi va bene per
+     * le ricerche ripetute.
+     * @param numero il testo del numero; sono ammessi spazi, '-', '.', '/' e parentesi
+     * @return la chiave, oppure NESSUNA_CHIAVE se il testo contiene altri caratteri,
+     *         nessuna cifra o più di CIFRE_CHIAVE_MAX cifre
+     */
+    static long chiave(CharSequence numero) {
+        int n = numero.length();
+        int inizio = 0;
+        while (inizio < n && numero.charAt(inizio) == ' ') {
+            inizio++;
+        }
+        boolean internazionale = inizio < n && numero.charAt(inizio) == '+';
+        if (internazionale) {
+            inizio++;
+        }
+        int cifre = 0;
+        int primeDue = 0;
+        int primeQuattro = 0;
+        for (int i = inizio; i < n; i++) {
+            char c = numero.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (cifre < 2) {
+                    primeDue = primeDue * 10 + (c - '0');
+                }
+                if (cifre < 4) {
+                    primeQuattro = primeQuattro * 10 + (c - '0');
+                }
+                cifre++;
+            } else if (!separatore(c)) {
+                return NESSUNA_CHIAVE;
+            }
+        }
+        if (cifre == 0) {
+            return NESSUNA_CHIAVE;
+        }
+        int salta = 0;
+        long chiave = 1;
+        if (internazionale) {
+            if (cifre >= 2 && primeDue == PREFISSO_ITALIA) {
+                salta = 2;
+            } else {
+                //"+44" diventa "0044": la chiave parte da "1" seguito da "00"
+                chiave = 100;
+                cifre += 2;
+            }
+        } else if (cifre >= 4 && primeQuattro == PREFISSO_ITALIA) {
+            //"0039" letto come numero vale 39
+            salta = 4;
+        }
+        if (cifre == salta || cifre - salta > CIFRE_CHIAVE_MAX) {
+            return NESSUNA_CHIAVE;
+        }
+        int viste = 0;
+        for (int i = inizio; i < n; i++) {
+            char c = numero.charAt(i);
+            if (c >= '0' && c <= '9' && viste++ >= salta) {
+                chiave = chiave * 10 + (c - '0');
+            }
+        }
+        return chiave;
+    }
+    /**
+     * @}
+     */
+
+    private static boolean separatore(char c) {
+        return c == ' ' || c == '-' || c == '.' || c == '/' || c == '(' || c == ')';
+    }
+
+    /**
+     * @name comprimi()
+     * @{
+     * @brief Codifica un numero in un long, quattro bit per carattere
+     * I quattro bit bassi contengono la lunghezza, gli altri i caratteri come
+     * indici in SIMBOLI, il primo carattere nei bit più bassi. Il numero vuoto
+     * vale 0. Usato da Contatto per non tenere in memoria una stringa per numero.
+     * @param numero il numero da codificare
+     * @return il numero codificato, oppure NON_COMPRESSO se è troppo lungo o
+     *         contiene caratteri diversi da cifre, '+', spazi e '-'
+     */
+    static long comprimi(String numero) {
+        int lunghezza = numero.length();
+        if (lunghezza > CIFRE_MAX) {
+            return NON_COMPRESSO;
+        }
+        long compresso = lunghezza;
+        for (int i = 0; i < lunghezza; i++) {
+            int simbolo = SIMBOLI.indexOf(numero.charAt(i));
+            if (simbolo < 0) {
+                return NON_COMPRESSO;
+            }
+            compresso |= (long) simbolo << (4 + 4 * i);
+        }
+        return compresso;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Ricostruisce il testo di un numero codificato da comprimi
+     * @pre compresso != NON_COMPRESSO
+     */
+    static String espandi(long compresso) {
+        int lunghezza = (int) (compresso & 0xF);
+        if (lunghezza == 0) {
+            return "";
+        }
+        char[] caratteri = new char[lunghezza];
+        for (int i = 0; i < lunghezza; i++) {
+            caratteri[i] = SIMBOLI.charAt((int) (compresso >>> (4 + 4 * i)) & 0xF);
+        }
+        return new String(caratteri);
+    }
+
+    /**
+     * @brief Indica se il testo di un numero codificato da comprimi contiene query
+     * I caratteri vengono letti direttamente dal long, senza espandere il numero.
+     * @pre compresso != NON_COMPRESSO
+     */
+    static boolean contiene(long compresso, String query) {
+        int ultimo = (int) (compresso & 0xF) - query.length();
+        for (int i = 0; i <= ultimo; i++) {
+            int j = 0;
+            while (j < query.length() && SIMBOLI.charAt((int) (compresso >>> (4 + 4 * (i + j))) & 0xF) == query.charAt(j)) {
+                j++;
+            }
+            if (j == query.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @brief Aggiunge in fondo a destinazione il testo di un numero codificato da comprimi
+     * Come espandi, ma senza creare una stringa.
+     * @pre compresso != NON_COMPRESSO
+     */
+    static void espandi(long compresso, StringBuilder destinazione) {
+        int lunghezza = (int) (compresso & 0xF);
+        for (int i = 0; i < lunghezza; i++) {
+            destinazione.append(SIMBOLI.charAt((int) (compresso >>> (4 + 4 * i)) & 0xF));
+        }
+    }
 }
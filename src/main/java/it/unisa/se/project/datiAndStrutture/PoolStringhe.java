@@ -0,0 +1,176 @@
+/**
+ * @file PoolStringhe.java
+ * @brief Tabella di dimensione fissa che fa condividere le stringhe uguali
+ * @package it.unisa.se.project.datiAndStrutture
+ * Nomi e cognomi si ripetono molto, ma ogni caricamento crea una stringa nuova
+ * per ogni campo. canonica restituisce, per un testo già visto, l'istanza
+ * conservata nella tabella: la copia appena letta diventa subito spazzatura e
+ * in memoria resta una sola istanza.
+ * La tabella ha un solo posto per valore di hash e non cresce mai: in caso di
+ * collisione la stringa nuova prende il posto della vecchia. Si perde qualche
+ * condivisione, ma la memoria occupata è limitata e, a differenza di
+ * String.intern, le stringhe non restano per sempre nella JVM.
+ * Può essere usata da più thread insieme, come fanno i caricamenti paralleli:
+ * nel caso peggiore due thread scrivono lo stesso posto e una condivisione va persa.
+ * Le statistiche sono spente finché non si chiama setStatistiche(true): canonica
+ * viene chiamata per ogni contatto costruito, e i contatori sarebbero lavoro in
+ * più su ogni caricamento.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of PoolStringhe.java
+ * @{
+ */
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe PoolStringhe
+ */
+public final class PoolStringhe {
+    /**
+     * @private POSTI_CONDIVISO posti del pool usato da Contatto
+     * @private CONDIVISO pool usato per nomi e cognomi di tutti i contatti
+     */
+    private static final int POSTI_CONDIVISO = 1 << 16;
+    private static final PoolStringhe CONDIVISO = new PoolStringhe(POSTI_CONDIVISO);
+    /**
+     * @private STRINGHE_COMPATTE true se la JVM in esecuzione conserva i testi
+     * Latin-1 con un byte per carattere, come fanno Java 9 e successivi
+     */
+    static final boolean STRINGHE_COMPATTE = !System.getProperty("java.specification.version", "").startsWith("1.");
+
+    /**
+     * @private posti tabella delle stringhe, lunghezza potenza di due
+     * @private statistiche true se canonica aggiorna i contatori
+     * @private richieste chiamate a canonica con una stringa non vuota
+     * @private riusi richieste soddisfatte con un'istanza già presente
+     * @private byteRisparmiati stima dei byte delle copie non conservate
+     */
+    private final String[] posti;
+    private volatile boolean statistiche;
+    private final LongAdder richieste = new LongAdder();
+    private final LongAdder riusi = new LongAdder();
+    private final LongAdder byteRisparmiati = new LongAdder();
+
+    /**
+     * @brief Costruisce un pool vuoto
+     * @param posti numero di stringhe conservate al massimo, arrotondato alla potenza di due successiva
+     * @pre posti > 0
+     */
+    public PoolStringhe(int posti) {
+        if (posti <= 0 || posti > 1 << 30) {
+            throw new IllegalArgumentException("Numero di posti non valido: " + posti);
+        }
+        int lunghezza = 1;
+        while (lunghezza < posti) {
+            lunghezza <<= 1;
+        }
+        this.posti = new String[lunghezza];
+    }
+
+    /**
+     * @brief Pool condiviso da tutti i contatti
+     * I costruttori di Contatto vi fanno passare nome e cognome: le sue
+     * statistiche, se attivate, misurano quanta memoria hanno risparmiato i
+     * caricamenti.
+     * @return il pool condiviso
+     */
+    public static PoolStringhe condiviso() {
+        return CONDIVISO;
+    }
+
+    /**
+     * @name canonica()
+     * @{
+     * @brief Restituisce l'istanza conservata per il testo dato
+     * @param testo il testo, può essere null
+     * @return un'istanza uguale a testo, la stessa per tutte le chiamate con lo stesso
+     *         testo finché il suo posto non viene preso da un'altra stringa
+     * @post result == null ? testo == null : result.equals(testo)
+     */
+    public String canonica(String testo) {
+        if (testo == null || testo.isEmpty()) {
+            return testo;
+        }
+        boolean conta = statistiche;
+        if (conta) {
+            richieste.increment();
+        }
+        int h = testo.hashCode();
+        int posto = (h ^ (h >>> 16)) & (posti.length - 1);
+        String presente = posti[posto];
+        if (presente != null && presente.equals(testo)) {
+            if (conta && presente != testo) {
+                riusi.increment();
+                byteRisparmiati.add(byteOccupati(testo));
+            }
+            return presente;
+        }
+        posti[posto] = testo;
+        return testo;
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Attiva o spegne le statistiche; spegnerle non le azzera
+     * @param attive true perché canonica aggiorni richieste, riusi e byte risparmiati
+     */
+    public void setStatistiche(boolean attive) {
+        statistiche = attive;
+    }
+
+    /**
+     * @brief Chiamate a canonica con un testo non vuoto, mentre le statistiche erano attive
+     */
+    public long getRichieste() {
+        return richieste.sum();
+    }
+
+    /**
+     * @brief Chiamate a canonica che hanno restituito un'istanza già presente, mentre le statistiche erano attive
+     */
+    public long getRiusi() {
+        return riusi.sum();
+    }
+
+    /**
+     * @brief Stima dei byte di heap non occupati grazie ai riusi
+     * Per ogni riuso conta l'oggetto String e il suo array di caratteri, con le
+     * intestazioni e l'allineamento a 8 byte di una JVM a 64 bit con puntatori
+     * compressi. I caratteri occupano un byte ciascuno solo per i testi Latin-1
+     * su Java 9 e successivi (STRINGHE_COMPATTE); fino a Java 8, o con
+     * -XX:-CompactStrings, sempre due, e con quell'opzione la stima è per difetto.
+     * @return byte risparmiati
+     */
+    public long getByteRisparmiati() {
+        return byteRisparmiati.sum();
+    }
+
+    /**
+     * @brief Azzera le statistiche senza svuotare il pool
+     */
+    public void azzeraStatistiche() {
+        richieste.reset();
+        riusi.reset();
+        byteRisparmiati.reset();
+    }
+
+    private static long byteOccupati(String testo) {
+        boolean latin1 = STRINGHE_COMPATTE;
+        for (int i = 0; i < testo.length() && latin1; i++) {
+            latin1 = testo.charAt(i) <= 0xFF;
+        }
+        long caratteri = (long) testo.length() * (latin1 ? 1 : 2);
+        //String: intestazione, riferimento, hash e campi di stato; array: intestazione e lunghezza
+        return 24 + allinea(16 + caratteri);
+    }
+
+    private static long allinea(long n) {
+        return (n + 7) & ~7L;
+    }
+}
@@ -17,7 +17,20 @@ package it.unisa.se.project.datiAndStrutture;
  * @author vgoff
  */
 import java.io.*;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 /**
  * @}
  */
@@ -26,15 +39,134 @@ import java.util.*;
   */
 public class Rubrica {
     /**
-    * @private contatti lista tipo Contatto
+    * @private SOGLIA_SCANSIONE_ORDINE frazione della rubrica oltre la quale inOrdine scorre l'elenco
     */
-    private List<Contatto> contatti;
+    private static final int SOGLIA_SCANSIONE_ORDINE = 32;
+    /**
+    * @private INTESTAZIONE_CSV prima riga dei file salvati da salvaFile
+    */
+    static final String INTESTAZIONE_CSV = "Nome,Cognome,Telefono1,Telefono2,Telefono3,Email1,Email2,Email3,Id";
+    /**
+    * @private SOGLIA_GIORNALE dimensione predefinita del giornale oltre la quale parte la compattazione
+    */
+    private static final long SOGLIA_GIORNALE = 8L << 20;
+    /**
+    * @private DIMENSIONE_LOTTO righe tra due chiamate di AvanzamentoCaricamento o AvanzamentoSalvataggio
+    */
+    private static final int DIMENSIONE_LOTTO = 2048;
+    /**
+    * @private INTERVALLO_INTERRUZIONE contatti scanditi da cercaContatto tra due controlli dell'interruzione
+    */
+    private static final int INTERVALLO_INTERRUZIONE = 4096;
+    /**
+    * @private SOGLIA_SCANSIONE_PARALLELA contatti oltre i quali cercaContatto scandisce la rubrica in parallelo:
+    * nessuna soglia finché BenchmarkScansioneParallela non mostra un guadagno sulla macchina di destinazione
+    */
+    private static final int SOGLIA_SCANSIONE_PARALLELA = Integer.MAX_VALUE;
+    /**
+    * @private NOTIFICHE_MAX_LOTTO contatti di un lotto oltre i quali aggiungiContatti notifica un ricaricamento
+    */
+    private static final int NOTIFICHE_MAX_LOTTO = 64;
+    /**
+    * @private contatti lista tipo Contatto, sempre ordinata secondo Contatto.compareTo e, a parità, per id
+    */
+    private final ElencoContatti contatti;
+    /**
+    * @private trigrammi indice a trigrammi usato da cercaContatto
+    */
+    private final IndiceTrigrammi trigrammi;
+    /**
+    * @private prefissi indice per prefisso usato dalla ricerca durante la digitazione
+    */
+    private final IndicePrefissi prefissi;
+    /**
+    * @private domini indice per dominio email usato da cercaPerDominio
+    */
+    private final IndiceDomini domini;
+    /**
+    * @private numeri indice per numero di telefono normalizzato usato da trovaPerNumero
+    */
+    private final IndiceNumeri numeri;
+    /**
+    * @private fonetico indice per codice fonetico di nome e cognome usato da cercaPerSuono
+    */
+    private final IndiceFonetico fonetico;
+    /**
+    * @private perId indice id -> contatto, per ritrovare in O(1) il contatto memorizzato
+    */
+    private final Map<Integer, Contatto> perId;
+    /**
+    * @private versione versione persistente dei contatti, sostituita a ogni modifica
+    */
+    private VersioneRubrica versione = VersioneRubrica.VUOTA;
+    /**
+    * @private giornale giornale delle modifiche, null se non è stato aperto con apriGiornale
+    * @private percorsoSnapshot snapshot a cui si riferisce il giornale
+    * @private sogliaGiornale dimensione del giornale oltre la quale parte la compattazione
+    * @private compattazione ultima compattazione avviata in background
+    * @private erroreCompattazione errore dell'ultima compattazione, null se è riuscita:
+    * finché c'è, il giornale non viene più ruotato automaticamente
+    */
+    private Giornale giornale;
+    private Path percorsoSnapshot;
+    private long sogliaGiornale = SOGLIA_GIORNALE;
+    /**
+    * @private sogliaScansioneParallela contatti oltre i quali cercaContatto usa ScansioneParallela
+    */
+    private int sogliaScansioneParallela = SOGLIA_SCANSIONE_PARALLELA;
+    private Future<?> compattazione;
+    private IOException erroreCompattazione;
+    /**
+    * @private sequenza numero progressivo dell'ultima modifica, usato come checkpoint
+    * @private inizioStorico checkpoint più vecchio da cui lo storico è ancora completo
+    * @private ultimaModifica id -> sequenza dell'ultima modifica del contatto
+    * @private storico sequenza -> id, una sola voce per contatto; un id assente da perId è stato rimosso
+    */
+    private long sequenza;
+    private long inizioStorico;
+    private final Map<Integer, Long> ultimaModifica = new HashMap<>();
+    private final TreeMap<Long, Integer> storico = new TreeMap<>();
+    /**
+    * @private ascoltatori ricevono le modifiche all'elenco dei contatti
+    */
+    private final List<AscoltatoreRubrica> ascoltatori = new ArrayList<>();
     
     /**
      * @brief Costruttore della rubrica
      */
     public Rubrica() {
-        this.contatti = new ArrayList<>();
+        this.contatti = new ElencoContatti();
+        this.perId = new HashMap<>();
+        this.trigrammi = new IndiceTrigrammi();
+        this.prefissi = new IndicePrefissi();
+        this.domini = new IndiceDomini();
+        this.numeri = new IndiceNumeri();
+        this.fonetico = new IndiceFonetico();
+    }
+
+    /**
+     * @brief Costruisce una copia indipendente di una rubrica
+     * Copia contatti, indici, storico delle modifiche e soglie, ma non il
+     * giornale né gli ascoltatori. I contatti sono condivisi: quelli memorizzati
+     * non vengono mai modificati sul posto. Usato da RubricaConcorrente per
+     * preparare un grande inserimento senza toccare la rubrica che si sta leggendo.
+     * @param origine la rubrica da copiare, non modificata durante la copia
+     */
+    Rubrica(Rubrica origine) {
+        this();
+        List<Contatto> tutti = new ArrayList<>(origine.contatti);
+        for (Contatto c : tutti) {
+            perId.put(c.getId(), c);
+        }
+        contatti.ricostruisci(tutti);
+        versione = origine.versione;
+        indicizzaTuttiInParallelo(tutti);
+        sequenza = origine.sequenza;
+        inizioStorico = origine.inizioStorico;
+        ultimaModifica.putAll(origine.ultimaModifica);
+        storico.putAll(origine.storico);
+        sogliaGiornale = origine.sogliaGiornale;
+        sogliaScansioneParallela = origine.sogliaScansioneParallela;
     }
     /**
      * @name aggiungiContato()
@@ -42,6 +174,7 @@ public class Rubrica {
      * @brief Aggiunge un nuovo contatto
      * @param contatto Il contatto da aggiungere
      * @pre contatto != null
+     * @pre nessun contatto con lo stesso id è già in rubrica
      * @post contatti.contains(contatto)
      * function public void
      */
@@ -49,34 +182,292 @@ public class Rubrica {
         if (contatto == null) {
             throw new IllegalArgumentException("Il contatto non può essere null");
         }
-        contatti.add(contatto);
-        Collections.sort(contatti);
+        if (perId.containsKey(contatto.getId())) {
+            throw new IllegalArgumentException("Il contatto è già presente in rubrica");
+        }
+        annotaContatto(contatto);
+        registra(contatto);
+        int posizione = contatti.inserisci(contatto);
+        versione = versione.con(contatto);
+        indicizza(contatto);
+        segnaModificato(contatto.getId());
+        for (AscoltatoreRubrica a : ascoltatori) {
+            a.inserito(posizione, contatto);
+        }
+        dopoModifica();
+    }
+    /**
+    * @}
+    */    
+
+    /**
+     * @name aggiungiContatti()
+     * @{
+     * @brief Aggiunge un lotto di contatti in un solo passaggio
+     * Se il lotto è già ordinato secondo VersioneRubrica.confronta viene fuso direttamente
+     * con i contatti presenti, altrimenti viene prima ordinato. Gli ascoltatori
+     * ricevono un inserimento per contatto, o un ricaricamento se il lotto è grande.
+     * @param lotto I contatti da aggiungere
+     * @pre lotto != null && !lotto.contains(null)
+     * @post contatti.containsAll(lotto)
+     * function public void
+     */
+    public void aggiungiContatti(Collection<Contatto> lotto) {
+        if (lotto == null) {
+            throw new IllegalArgumentException("Il lotto di contatti non può essere null");
+        }
+        List<Contatto> ordinati = new ArrayList<>(lotto);
+        if (!verificaLotto(ordinati)) {
+            ordinati.sort(VersioneRubrica::confronta);
+        }
+        for (Contatto c : ordinati) {
+            annotaContatto(c);
+        }
+        for (Contatto c : ordinati) {
+            registra(c);
+            segnaModificato(c.getId());
+        }
+        contatti.unisci(ordinati);
+        if (ordinati.size() < versione.size()) {
+            for (Contatto c : ordinati) {
+                versione = versione.con(c);
+            }
+        } else {
+            //con un lotto grande conviene ricostruire in O(n) che inserire uno per uno
+            versione = VersioneRubrica.daOrdinati(contatti);
+        }
+        indicizzaTutti(ordinati);
+        if (ordinati.size() > NOTIFICHE_MAX_LOTTO) {
+            notificaRicaricamento();
+        } else {
+            //in ordine crescente di posizione ogni inserimento lascia valide le posizioni precedenti
+            for (Contatto c : ordinati) {
+                int posizione = contatti.indiceDi(c);
+                for (AscoltatoreRubrica a : ascoltatori) {
+                    a.inserito(posizione, c);
+                }
+            }
+        }
+        dopoModifica();
     }
     /**
     * @}
     */    
 
+    /**
+     * @brief Controlla un lotto prima di aggiungerlo, senza modificare la rubrica
+     * @param lotto i contatti da aggiungere
+     * @return true se il lotto è già ordinato secondo VersioneRubrica.confronta
+     * @throws IllegalArgumentException se il lotto contiene null o un id già presente
+     */
+    boolean verificaLotto(List<Contatto> lotto) {
+        Set<Integer> idLotto = new HashSet<>();
+        boolean giaOrdinato = true;
+        for (int i = 0; i < lotto.size(); i++) {
+            Contatto c = lotto.get(i);
+            if (c == null) {
+                throw new IllegalArgumentException("Il contatto non può essere null");
+            }
+            if (perId.containsKey(c.getId()) || !idLotto.add(c.getId())) {
+                throw new IllegalArgumentException("Il contatto è già presente in rubrica");
+            }
+            if (i > 0 && VersioneRubrica.confronta(lotto.get(i - 1), c) > 0) {
+                giaOrdinato = false;
+            }
+        }
+        return giaOrdinato;
+    }
+
     /**
      * @name rimuoviContatto()
      * @{
      * @brief Rimuove un contatto
-     * @param contatto Il contatto da rimuovere
-     * @pre contatto != null
+     * Il contatto viene ritrovato tramite il suo id, quindi basta anche una
+     * versione precedente a una modifica.
+     * @param contatto Il contatto da rimuovere; se è null non succede nulla
      * @post !contatti.contains(contatto)
      * function public void
      */
-        public void rimuoviContatto(Contatto contatto) {
-        contatti.remove(contatto);
+    public void rimuoviContatto(Contatto contatto) {
+        if (contatto == null) {
+            return;
+        }
+        Contatto presente = perId.get(contatto.getId());
+        if (presente != null) {
+            annotaRimozione(presente.getId());
+            perId.remove(presente.getId());
+            int posizione = contatti.indiceDi(presente);
+            contatti.remove(posizione);
+            versione = versione.senza(presente);
+            deindicizza(presente);
+            segnaModificato(presente.getId());
+            for (AscoltatoreRubrica a : ascoltatori) {
+                a.rimosso(posizione, presente);
+            }
+            dopoModifica();
+        }
     }
     /**
     * @}
     */       
+
+    /**
+     * @name modificaContatto()
+     * @{
+     * @brief Sostituisce i dati di un contatto mantenendone l'id
+     * Il contatto memorizzato viene sostituito da una copia di nuoviDati con l'id
+     * del contatto originale. Se l'ordinamento non cambia la sostituzione avviene
+     * sul posto, senza spostare gli altri contatti.
+     * @param contatto Il contatto da modificare, o una sua versione precedente
+     * @param nuoviDati Il contatto con i nuovi dati
+     * @return Il contatto aggiornato, come memorizzato in rubrica
+     * @throws IllegalArgumentException se il contatto non è in rubrica
+     * @pre contatto != null && nuoviDati != null
+     * @post trovaPerId(contatto.getId()) == result
+     */
+    public Contatto modificaContatto(Contatto contatto, Contatto nuoviDati) {
+        if (contatto == null || nuoviDati == null) {
+            throw new IllegalArgumentException("Il contatto non può essere null");
+        }
+        Contatto presente = perId.get(contatto.getId());
+        if (presente == null) {
+            throw new IllegalArgumentException("Il contatto non è presente in rubrica");
+        }
+        Contatto aggiornato = new Contatto(nuoviDati, presente.getId());
+        sostituisciContatto(presente, aggiornato);
+        return aggiornato;
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @brief Mette aggiornato al posto di presente, che ha lo stesso id
+     * @pre aggiornato non verrà più modificato sul posto
+     */
+    private void sostituisciContatto(Contatto presente, Contatto aggiornato) {
+        annotaContatto(aggiornato);
+        int posizione = contatti.indiceDi(presente);
+        boolean stessoPosto = (posizione == 0 || VersioneRubrica.confronta(contatti.get(posizione - 1), aggiornato) < 0)
+                && (posizione == contatti.size() - 1 || VersioneRubrica.confronta(aggiornato, contatti.get(posizione + 1)) < 0);
+        int nuovaPosizione = posizione;
+        if (stessoPosto) {
+            contatti.set(posizione, aggiornato);
+        } else {
+            contatti.remove(posizione);
+            nuovaPosizione = contatti.inserisci(aggiornato);
+        }
+        versione = versione.senza(presente).con(aggiornato);
+        deindicizza(presente);
+        perId.put(aggiornato.getId(), aggiornato);
+        indicizza(aggiornato);
+        segnaModificato(aggiornato.getId());
+        for (AscoltatoreRubrica a : ascoltatori) {
+            if (stessoPosto) {
+                a.aggiornato(posizione, aggiornato);
+            } else {
+                a.rimosso(posizione, presente);
+                a.inserito(nuovaPosizione, aggiornato);
+            }
+        }
+        dopoModifica();
+    }
+
+    /**
+     * @name versione()
+     * @{
+     * @brief Restituisce la versione attuale dei contatti
+     * Costa O(1) e non copia nulla: la versione è immutabile e le modifiche
+     * successive ne creano di nuove che condividono con lei i contatti non
+     * toccati. Conservare più versioni costa quindi memoria proporzionale alle
+     * modifiche fatte tra l'una e l'altra, non alla dimensione della rubrica.
+     * @return i contatti attuali, in ordine di rubrica
+     */
+    public VersioneRubrica versione() {
+        return versione;
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @name ripristina()
+     * @{
+     * @brief Riporta la rubrica a una versione restituita da versione()
+     * Applica solo le differenze tra la versione attuale e quella data, con
+     * rimozioni, modifiche e inserimenti normali: gli ascoltatori, il giornale
+     * e lo storico delle modifiche li ricevono come tutti gli altri. Il costo
+     * dipende dai contatti cambiati tra le due versioni. Usato per annullare e
+     * ripetere le modifiche, e per tenere allineata una copia della rubrica: la
+     * versione data diventa quella della rubrica, quindi anche una versione
+     * presa da un'altra rubrica costa l'intero confronto solo la prima volta.
+     * @param obiettivo la versione da ripristinare
+     * @pre obiettivo != null
+     * @post versione().equals(obiettivo)
+     */
+    public void ripristina(VersioneRubrica obiettivo) {
+        if (obiettivo == null) {
+            throw new IllegalArgumentException("La versione non può essere null");
+        }
+        List<Contatto> tolti = new ArrayList<>();
+        List<Contatto> messi = new ArrayList<>();
+        VersioneRubrica.differenze(versione, obiettivo, tolti, messi);
+        Map<Integer, Contatto> modificati = new HashMap<>();
+        for (Contatto c : messi) {
+            modificati.put(c.getId(), c);
+        }
+        for (Contatto c : tolti) {
+            if (!modificati.containsKey(c.getId())) {
+                rimuoviContatto(c);
+            }
+        }
+        List<Contatto> nuovi = new ArrayList<>();
+        for (Contatto c : messi) {
+            Contatto presente = perId.get(c.getId());
+            if (presente != null) {
+                //si rimette il contatto stesso della versione, così le due restano condivise
+                sostituisciContatto(presente, c);
+            } else {
+                nuovi.add(c);
+            }
+        }
+        if (!nuovi.isEmpty()) {
+            aggiungiContatti(nuovi);
+        }
+        //stessi contatti nello stesso ordine: si adotta l'albero dato, così un
+        //confronto successivo con le sue versioni salta i sottoalberi condivisi
+        versione = obiettivo;
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @name trovaPerId()
+     * @{
+     * @brief Restituisce il contatto con l'id dato
+     * @param id L'id del contatto
+     * @return Il contatto, oppure null se non è in rubrica
+     */
+    public Contatto trovaPerId(int id) {
+        return perId.get(id);
+    }
+    /**
+    * @}
+    */
     /**
      * @name cercaContatto()
      * @{
      * @brief Cerca contatti per nome o cognome
+     * Le query di almeno tre caratteri usano l'indice a trigrammi; quelle più
+     * corte, che l'indice non può servire, scorrono tutta la rubrica; se durante
+     * la scansione il thread viene interrotto, perché la ricerca è stata superata
+     * da una più recente, si fermano e restituiscono i risultati trovati fin lì.
+     * Oltre setSogliaScansioneParallela contatti, se la soglia è stata impostata,
+     * la scansione viene divisa tra i thread del pool fork-join, con i risultati
+     * sempre in ordine di rubrica.
      * @param query Stringa di ricerca
-     * @return Lista dei contatti che soddisfano la ricerca
+     * @return Lista dei contatti che soddisfano la ricerca, in ordine di rubrica
      * @pre query != null
      * @post result != null
      */
@@ -85,120 +476,1251 @@ public class Rubrica {
             return new ArrayList<>(contatti);
         }
         //final searchQuery
-        final String searchQuery = query.toLowerCase().trim();
+        final String searchQuery = query.toLowerCase(Locale.ROOT).trim();
         List<Contatto> risultati = new ArrayList<>();
-        //ciclo for
-        for (Contatto c : contatti) {
-            if (c.getNome().toLowerCase().contains(searchQuery) ||
-                c.getCognome().toLowerCase().contains(searchQuery) ||
-                c.getNumeriTel().stream().anyMatch(n -> n.toString().contains(searchQuery)) ||
-                c.getIndirizziEmail().stream().anyMatch(e -> e.toString().toLowerCase().contains(searchQuery))) {
+        if (searchQuery.length() < IndiceTrigrammi.LUNGHEZZA_GRAMMA) {
+            if (contatti.size() > sogliaScansioneParallela && ForkJoinPool.getCommonPoolParallelism() > 1) {
+                return ScansioneParallela.cerca(contatti, c -> c.contiene(searchQuery), INTERVALLO_INTERRUZIONE);
+            }
+            //ciclo for
+            for (int i = 0; i < contatti.size(); i++) {
+                if (i % INTERVALLO_INTERRUZIONE == 0 && Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                Contatto c = contatti.get(i);
+                if (c.contiene(searchQuery)) {
+                    risultati.add(c);
+                }
+            }
+            return risultati;
+        }
+        ListaId[] liste = trigrammi.liste(searchQuery);
+        if (liste == null) {
+            return risultati;
+        }
+        //i trigrammi sono calcolati campo per campo: una query di tre caratteri
+        //è contenuta in tutti e soli i contatti della sua lista
+        boolean daVerificare = searchQuery.length() > IndiceTrigrammi.LUNGHEZZA_GRAMMA;
+        if (liste[0].dimensione() > contatti.size() / SOGLIA_SCANSIONE_ORDINE) {
+            //anche la lista più corta copre buona parte della rubrica: si scorre
+            //l'elenco, già in ordine, chiedendo alle liste se contengono l'id
+            for (int i = 0; i < contatti.size(); i++) {
+                if (i % INTERVALLO_INTERRUZIONE == 0 && Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                Contatto c = contatti.get(i);
+                if (inTutte(liste, c.getId()) && (!daVerificare || c.contiene(searchQuery))) {
+                    risultati.add(c);
+                }
+            }
+            return risultati;
+        }
+        for (int id : trigrammi.candidati(searchQuery)) {
+            Contatto c = perId.get(id);
+            if (c != null && (!daVerificare || c.contiene(searchQuery))) {
                 risultati.add(c);
             }
         }
-        return risultati;
+        return inOrdine(risultati);
+    }
+
+    private static boolean inTutte(ListaId[] liste, int id) {
+        for (ListaId lista : liste) {
+            if (!lista.contiene(id)) {
+                return false;
+            }
+        }
+        return true;
     }
     /**
     * @}
     */
 
     /**
-     * @name salvaFile()
+     * @name cercaApprossimata()
      * @{
-     * @brief Salva la rubrica su file
-     * @param percorso Percorso del file
-     * @throws IOException in caso di errori di I/O
-     * @pre percorso != null && !percorso.isEmpty()
+     * @brief Cerca i contatti con nome o cognome simile alla query, dal più simile
+     * Ogni parola della query deve trovarsi, a meno di distanzaMax caratteri
+     * inseriti, tolti o sostituiti, nel nome o nel cognome del contatto: così
+     * "Rosi" trova "Rossi" e "mario rosi" trova Mario Rossi. I contatti sono
+     * ordinati per somma delle distanze delle parole, poi in ordine di rubrica.
+     * Le parole vengono cercate nell'indice per prefisso, senza scorrere la rubrica.
+     * @param query Parole da cercare, senza distinzione tra maiuscole e minuscole
+     * @param distanzaMax Distanza massima ammessa per ogni parola
+     * @param max Numero massimo di contatti restituiti
+     * @return I contatti più simili, al più max
+     * @throws IllegalArgumentException se query è null, distanzaMax è negativa o max non è positivo
+     * @post result != null && result.size() <= max
      */
-    
-    public void salvaFile(String percorso) throws IOException {
-        /**try*/
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(percorso))) {
-            writer.write("Nome,Cognome,Telefono1,Telefono2,Telefono3,Email1,Email2,Email3");
-            writer.newLine();
-            /**ciclo for*/
-            for (Contatto c : contatti) {
-                writer.write(String.format("%s,%s,", c.getNome(), c.getCognome()));
-            /**controllo numero massimo di numeri telefono inseribili*/
-                List<NumeroTel> numeri = c.getNumeriTel();
-                for (int i = 0; i < Contatto.TELEFONI_MAX; i++) {
-                    writer.write(i < numeri.size() ? numeri.get(i).toString() : "");
-                    writer.write(",");
-                }
-             /**controllo numero massimo di email inseribili*/           
-                List<Email> emails = c.getIndirizziEmail();
-                for (int i = 0; i < Contatto.EMAIL_MAX; i++) {
-                    writer.write(i < emails.size() ? emails.get(i).toString() : "");
-                    if (i < Contatto.EMAIL_MAX - 1) writer.write(",");
+    public List<Contatto> cercaApprossimata(String query, int distanzaMax, int max) {
+        if (query == null) {
+            throw new IllegalArgumentException("La query non può essere null");
+        }
+        if (distanzaMax < 0 || max <= 0) {
+            throw new IllegalArgumentException("Distanza massima e numero di risultati non validi");
+        }
+        String testo = query.trim().toLowerCase(Locale.ROOT);
+        if (testo.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String[] parole = testo.split("\\s+");
+        //nell'indice si cerca solo la parola più lunga, di solito la più selettiva
+        int scelta = 0;
+        for (int i = 1; i < parole.length; i++) {
+            if (parole[i].length() > parole[scelta].length()) {
+                scelta = i;
+            }
+        }
+        //con una parola sola bastano i max contatti più vicini
+        int limite = parole.length == 1 ? max : Integer.MAX_VALUE;
+        Map<Contatto, Integer> punteggi = prefissi.vicini(parole[scelta], distanzaMax, limite);
+        for (int i = 0; i < parole.length; i++) {
+            if (i == scelta) {
+                continue;
+            }
+            String parola = parole[i];
+            Iterator<Map.Entry<Contatto, Integer>> candidati = punteggi.entrySet().iterator();
+            while (candidati.hasNext()) {
+                Map.Entry<Contatto, Integer> candidato = candidati.next();
+                Contatto c = candidato.getKey();
+                int distanza = Math.min(IndicePrefissi.distanza(parola, c.getCognome().toLowerCase(Locale.ROOT), distanzaMax),
+                        IndicePrefissi.distanza(parola, c.getNome().toLowerCase(Locale.ROOT), distanzaMax));
+                if (distanza > distanzaMax) {
+                    candidati.remove();
+                } else {
+                    candidato.setValue(candidato.getValue() + distanza);
                 }
-                writer.newLine();
             }
         }
+        Comparator<Contatto> ordine = Comparator.<Contatto>comparingInt(punteggi::get)
+                .thenComparing(Comparator.naturalOrder())
+                .thenComparingInt(Contatto::getId);
+        //i max migliori visti finora, con il peggiore in cima
+        PriorityQueue<Contatto> migliori = new PriorityQueue<>(max + 1, ordine.reversed());
+        for (Contatto c : punteggi.keySet()) {
+            migliori.add(c);
+            if (migliori.size() > max) {
+                migliori.poll();
+            }
+        }
+        List<Contatto> risultati = new ArrayList<>(migliori);
+        risultati.sort(ordine);
+        return risultati;
     }
     /**
     * @}
-    */    
+    */
 
     /**
-     * @name caricaFile()
+     * @name cercaPerPrefisso()
      * @{
-     * @brief Carica la rubrica da file
-     * @param percorso Percorso del file
-     * @throws IOException in caso di errori di I/O
-     * @pre percorso != null && !percorso.isEmpty()
-     * @post contatti != null
-     * function public void
+     * @brief Cerca i contatti il cui cognome, nome o parte locale di un'email inizia con il prefisso
+     * Pensata per la ricerca durante la digitazione: non scorre la rubrica.
+     * @param prefisso Prefisso da cercare, senza distinzione tra maiuscole e minuscole
+     * @return Lista dei contatti trovati, in ordine di rubrica
+     * @post result != null
      */
-    public void caricaFile(String percorso) throws IOException {
-        contatti.clear();
-    /**try*/
-        try (BufferedReader reader = new BufferedReader(new FileReader(percorso))) {
-            String line;
-
-            reader.readLine();
-            /**ciclo while con try*/
-            while ((line = reader.readLine()) != null) {
-                try {
-                    String[] parts = line.split(",");
-
-                    String nome = parts.length > 0 ? parts[0].trim() : "";
-                    String cognome = parts.length > 1 ? parts[1].trim() : "";
-
-                    NumeroTel num1 = (parts.length > 2 && !parts[2].trim().isEmpty()) ? new NumeroTel(parts[2].trim()) : null;
-                    NumeroTel num2 = (parts.length > 3 && !parts[3].trim().isEmpty()) ? new NumeroTel(parts[3].trim()) : null;
-                    NumeroTel num3 = (parts.length > 4 && !parts[4].trim().isEmpty()) ? new NumeroTel(parts[4].trim()) : null;
-
-                    Email mail1 = (parts.length > 5 && !parts[5].trim().isEmpty()) ? new Email(parts[5].trim()) : null;
-                    Email mail2 = (parts.length > 6 && !parts[6].trim().isEmpty()) ? new Email(parts[6].trim()) : null;
-                    Email mail3 = (parts.length > 7 && !parts[7].trim().isEmpty()) ? new Email(parts[7].trim()) : null;
-                    /**condizione if numeri e email vuoti*/
-                    if (num1 == null) num1 = new NumeroTel("");
-                    if (num2 == null) num2 = new NumeroTel("");
-                    if (num3 == null) num3 = new NumeroTel("");
-
-                    if (mail1 == null) mail1 = new Email(""); 
-                    if (mail2 == null) mail2 = new Email("");
-                    if (mail3 == null) mail3 = new Email("");
-                    /**caso nome o cognome non vuoti*/
-                    if (!nome.isEmpty() || !cognome.isEmpty()) {
-                        Contatto nuovoContatto = new Contatto(nome, cognome, num1, num2, num3, mail1, mail2, mail3);
-                        contatti.add(nuovoContatto);
-                    } else {
-                        System.err.println("Contatto ignorato: tutti i campi sono vuoti.");
-                    }
-                    /**catch Exception e*/
-                } catch (Exception e) {
-                    System.err.println("Errore durante il parsing della riga: " + line);
-                    System.err.println("Dettaglio: " + e.getMessage());
+    public List<Contatto> cercaPerPrefisso(String prefisso) {
+        if (prefisso == null || prefisso.trim().isEmpty()) {
+            return new ArrayList<>(contatti);
+        }
+        return inOrdine(prefissi.cerca(prefisso.trim()));
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @name trovaPerNumero()
+     * @{
+     * @brief Restituisce il contatto che ha il numero di telefono dato
+     * Pensata per riconoscere chi chiama: il numero viene confrontato in forma
+     * normalizzata (vedi NumeroTel.getNormalizzato), quindi spazi, separatori e
+     * prefisso +39 non contano. La ricerca richiede tempo costante e non crea oggetti.
+     * @param numero Numero da cercare
+     * @return Un contatto con quel numero, oppure null se non ce ne sono
+     * @pre numero != null
+     */
+    public Contatto trovaPerNumero(CharSequence numero) {
+        if (numero == null) {
+            throw new IllegalArgumentException("Il numero non può essere null");
+        }
+        long chiave = NumeroTel.chiave(numero);
+        return chiave == NumeroTel.NESSUNA_CHIAVE ? null : numeri.primo(chiave);
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @name cercaPerSuono()
+     * @{
+     * @brief Cerca i contatti il cui nome o cognome si pronuncia come il testo
+     * Pensata per i nomi capiti al telefono: "Galo" trova "Gallo", "Cicone"
+     * trova "Ciccone" e "de luca" trova "Deluca" (vedi FoneticaItaliana). Il
+     * codice fonetico del testo viene cercato in un indice hash, quindi la
+     * ricerca non scorre la rubrica. Un testo di più parole trova anche i
+     * contatti in cui ogni parola suona come il nome o il cognome, ad esempio
+     * "mario rosi" trova Mario Rossi.
+     * @param testo Nome o cognome da cercare
+     * @return Lista dei contatti trovati, in ordine di rubrica
+     * @pre testo != null
+     * @post result != null
+     */
+    public List<Contatto> cercaPerSuono(String testo) {
+        if (testo == null) {
+            throw new IllegalArgumentException("Il testo non può essere null");
+        }
+        Map<Contatto, Boolean> trovati = new IdentityHashMap<>();
+        for (Contatto c : fonetico.cerca(FoneticaItaliana.codifica(testo))) {
+            trovati.put(c, Boolean.TRUE);
+        }
+        String[] parole = testo.trim().split("\\s+");
+        if (parole.length > 1) {
+            List<String> codici = new ArrayList<>();
+            for (String parola : parole) {
+                codici.add(FoneticaItaliana.codifica(parola));
+            }
+            //si parte dai contatti della prima parola e si tengono quelli che hanno anche le altre
+            for (Contatto c : fonetico.cerca(codici.get(0))) {
+                Set<String> propri = new HashSet<>(Arrays.asList(
+                        FoneticaItaliana.codifica(c.getNome()), FoneticaItaliana.codifica(c.getCognome())));
+                if (propri.containsAll(codici)) {
+                    trovati.put(c, Boolean.TRUE);
                 }
             }
         }
-        Collections.sort(contatti);
+        return inOrdine(trovati.keySet());
     }
     /**
     * @}
-    */    
+    */
+
+    /**
+     * @name cercaPerNumero()
+     * @{
+     * @brief Cerca tutti i contatti che hanno il numero di telefono dato
+     * Come trovaPerNumero, ma restituisce anche i contatti che condividono il numero.
+     * @param numero Numero da cercare
+     * @return Lista dei contatti trovati, in ordine di rubrica
+     * @pre numero != null
+     * @post result != null
+     */
+    public List<Contatto> cercaPerNumero(CharSequence numero) {
+        if (numero == null) {
+            throw new IllegalArgumentException("Il numero non può essere null");
+        }
+        long chiave = NumeroTel.chiave(numero);
+        return chiave == NumeroTel.NESSUNA_CHIAVE ? new ArrayList<>() : inOrdine(numeri.tutti(chiave));
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @name cercaPerDominio()
+     * @{
+     * @brief Cerca i contatti con almeno un indirizzo email nel dominio dato
+     * La risposta viene dall'indice dei domini, senza scorrere la rubrica. Il
+     * dominio deve coincidere per intero: "unisa.it" non trova "studenti.unisa.it".
+     * @param dominio Dominio da cercare, con o senza '@' iniziale, senza distinzione tra maiuscole e minuscole
+     * @return Lista dei contatti trovati, in ordine di rubrica
+     * @pre dominio != null
+     * @post result != null
+     */
+    public List<Contatto> cercaPerDominio(String dominio) {
+        if (dominio == null) {
+            throw new IllegalArgumentException("Il dominio non può essere null");
+        }
+        String cercato = dominio.trim();
+        if (cercato.startsWith("@")) {
+            cercato = cercato.substring(1);
+        }
+        List<Contatto> trovati = new ArrayList<>();
+        for (int id : domini.contatti(cercato)) {
+            Contatto c = perId.get(id);
+            if (c != null) {
+                trovati.add(c);
+            }
+        }
+        return inOrdine(trovati);
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @name completamenti()
+     * @{
+     * @brief Suggerisce cognomi, nomi e parti locali di email che iniziano con il prefisso
+     * @param prefisso Prefisso da completare
+     * @param max Numero massimo di suggerimenti
+     * @return Lista dei suggerimenti in ordine alfabetico
+     * @post result.size() <= max
+     */
+    public List<String> completamenti(String prefisso, int max) {
+        if (prefisso == null || prefisso.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        return prefissi.completamenti(prefisso.trim(), max);
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @brief Riporta un insieme di contatti della rubrica nell'ordine della rubrica
+     * @param trovati contatti in ordine qualsiasi
+     * @return i contatti ancora presenti in rubrica, ordinati per posizione
+     */
+    private List<Contatto> inOrdine(Collection<Contatto> trovati) {
+        if (trovati.size() > contatti.size() / SOGLIA_SCANSIONE_ORDINE) {
+            //molti risultati: una scansione costa meno di una ricerca binaria per ciascuno
+            Map<Contatto, Boolean> presenti = new IdentityHashMap<>(trovati.size());
+            for (Contatto c : trovati) {
+                presenti.put(c, Boolean.TRUE);
+            }
+            List<Contatto> ordinati = new ArrayList<>(trovati.size());
+            for (Contatto c : contatti) {
+                if (presenti.containsKey(c)) {
+                    ordinati.add(c);
+                }
+            }
+            return ordinati;
+        }
+        int[] posizioni = new int[trovati.size()];
+        int k = 0;
+        for (Contatto c : trovati) {
+            int posizione = contatti.indiceDi(c);
+            if (posizione >= 0) {
+                posizioni[k++] = posizione;
+            }
+        }
+        Arrays.sort(posizioni, 0, k);
+        List<Contatto> ordinati = new ArrayList<>(k);
+        for (int i = 0; i < k; i++) {
+            ordinati.add(contatti.get(posizioni[i]));
+        }
+        return ordinati;
+    }
+
+    /**
+     * @name salvaFile()
+     * @{
+     * @brief Salva la rubrica su file
+     * Dopo gli otto campi del contatto viene scritto il suo id, così che
+     * resti stabile dopo il caricamento. Il file è in UTF-8 e i campi con
+     * virgole, virgolette o a capo vengono messi tra virgolette.
+     * I contatti vengono scritti in un file temporaneo nella stessa cartella,
+     * forzato su disco e poi rinominato al posto di quello vecchio: se il
+     * salvataggio si interrompe il file precedente resta intatto.
+     * @param percorso Percorso del file
+     * @throws IOException in caso di errori di I/O
+     * @pre percorso != null && !percorso.isEmpty()
+     */
     
+    public void salvaFile(String percorso) throws IOException {
+        salvaFotografia(contatti, percorso, null);
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @name fotografia()
+     * @{
+     * @brief Restituisce una copia immutabile dei contatti attuali
+     * Costa una copia di riferimenti: i contatti memorizzati non vengono mai
+     * modificati sul posto, perché modificaContatto li sostituisce con una copia.
+     * La fotografia resta quindi coerente anche se la rubrica cambia dopo.
+     * @return i contatti in ordine di rubrica
+     */
+    public List<Contatto> fotografia() {
+        return Collections.unmodifiableList(Arrays.asList(contatti.toArray(new Contatto[0])));
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @name salvaFotografia()
+     * @{
+     * @brief Salva su file i contatti di una fotografia, nel formato di salvaFile
+     * Non usa la rubrica, quindi può girare su un altro thread mentre la rubrica
+     * viene modificata. Se il thread viene interrotto il salvataggio si ferma e il
+     * file precedente resta intatto.
+     * @param fotografia contatti che non cambiano più: una VersioneRubrica restituita
+     * da versione(), che costa O(1), o una lista restituita da fotografia()
+     * @param percorso Percorso del file
+     * @param avanzamento riceve il numero di contatti scritti, può essere null
+     * @throws InterruptedIOException se il thread viene interrotto
+     * @throws IOException in caso di errori di I/O
+     * @pre fotografia != null && percorso != null && !percorso.isEmpty()
+     */
+    public static void salvaFotografia(Collection<Contatto> fotografia, String percorso, AvanzamentoSalvataggio avanzamento) throws IOException {
+        scriviAtomicamente(percorso, canale -> {
+            ScrittoreCsv scrittore = new ScrittoreCsv(canale);
+            scrittore.testo(INTESTAZIONE_CSV);
+            scrittore.fineRiga();
+            int scritti = 0;
+            /**ciclo for*/
+            for (Contatto c : fotografia) {
+                scriviRiga(scrittore, c);
+                scrittore.fineRiga();
+                if (avanzamento != null && ++scritti % DIMENSIONE_LOTTO == 0) {
+                    avanzamento.contattiScritti(scritti, fotografia.size());
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Salvataggio interrotto");
+                    }
+                }
+            }
+            scrittore.svuota();
+            if (avanzamento != null) {
+                avanzamento.contattiScritti(fotografia.size(), fotografia.size());
+            }
+        });
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @brief Scrive i campi di un contatto nel formato di salvaFile, senza fine riga
+     */
+    private static void scriviRiga(ScrittoreCsv scrittore, Contatto c) throws IOException {
+        scrittore.campo(c.getNome());
+        scrittore.separatore();
+        scrittore.campo(c.getCognome());
+        scrittore.separatore();
+        for (int i = 0; i < Contatto.TELEFONI_MAX; i++) {
+            scrittore.campo(c.testoTelefono(i));
+            scrittore.separatore();
+        }
+        for (int i = 0; i < Contatto.EMAIL_MAX; i++) {
+            scrittore.campo(c.testoEmail(i));
+            scrittore.separatore();
+        }
+        scrittore.intero(c.getId());
+    }
+
+    /**
+     * @name salvaSnapshot()
+     * @{
+     * @brief Salva la rubrica nel formato binario di SnapshotBinario
+     * Lo snapshot è molto più veloce da riaprire del CSV, che resta il formato
+     * per lo scambio con altri programmi. Come salvaFile, sostituisce il file
+     * solo a scrittura completata.
+     * @param percorso Percorso del file
+     * @throws IOException in caso di errori di I/O
+     * @pre percorso != null && !percorso.isEmpty()
+     */
+    public void salvaSnapshot(String percorso) throws IOException {
+        scriviAtomicamente(percorso, canale -> SnapshotBinario.scrivi(contatti, canale));
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @name caricaSnapshot()
+     * @{
+     * @brief Carica la rubrica da uno snapshot scritto da salvaSnapshot
+     * I contatti sono già in ordine e le stringhe non vanno analizzate, quindi
+     * il costo è dominato dalla lettura del file e dalla costruzione degli indici.
+     * @param percorso Percorso del file
+     * @throws IOException se il file non è uno snapshot valido o in caso di errori di I/O
+     * @pre percorso != null && !percorso.isEmpty()
+     * @post contatti != null
+     */
+    public void caricaSnapshot(String percorso) throws IOException {
+        List<Contatto> letti = SnapshotBinario.leggi(Paths.get(percorso));
+        contatti.clear();
+        svuotaIndici();
+        for (Contatto c : letti) {
+            registra(c);
+        }
+        ordinaLetti(letti);
+        contatti.ricostruisci(letti);
+        versione = VersioneRubrica.daOrdinati(letti);
+        indicizzaTuttiInParallelo(letti);
+        notificaRicaricamento();
+        if (giornale != null) {
+            compattaGiornale();
+        }
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @name apriGiornale()
+     * @{
+     * @brief Carica la rubrica da snapshot e giornale e registra da qui in poi ogni modifica
+     * Dopo l'apertura inserimenti, rimozioni e modifiche vengono annotati in coda
+     * al file percorso + ".giornale" prima di essere applicati, con un costo che
+     * non dipende dalla dimensione della rubrica. Quando il giornale supera la
+     * soglia viene spostato in percorso + ".giornale.old" e un thread in
+     * background scrive un nuovo snapshot, poi elimina il giornale vecchio.
+     * Al caricamento si legge lo snapshot, se esiste, e si rieseguono il giornale
+     * vecchio e quello attuale; i record sono idempotenti, quindi rieseguirli su uno
+     * snapshot che li contiene già non cambia il risultato.
+     * @param percorso Percorso dello snapshot
+     * @throws IOException in caso di errori di I/O
+     * @pre percorso != null && !percorso.isEmpty()
+     */
+    public void apriGiornale(String percorso) throws IOException {
+        chiudiGiornale();
+        Path snapshot = Paths.get(percorso).toAbsolutePath();
+        if (Files.exists(snapshot)) {
+            caricaSnapshot(percorso);
+        } else {
+            contatti.clear();
+            versione = VersioneRubrica.VUOTA;
+            svuotaIndici();
+            notificaRicaricamento();
+        }
+        Path vecchio = fileGiornale(snapshot, ".giornale.old");
+        if (Files.exists(vecchio)) {
+            Giornale.riproduci(vecchio, this::applica, this::applicaRimozione);
+        }
+        Path attuale = fileGiornale(snapshot, ".giornale");
+        long validi = Files.exists(attuale) ? Giornale.riproduci(attuale, this::applica, this::applicaRimozione) : 0;
+        giornale = new Giornale(attuale, validi);
+        percorsoSnapshot = snapshot;
+        //come ogni caricamento completo, anche la riesecuzione del giornale non conta come modifica
+        azzeraStorico();
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @brief Imposta la dimensione del giornale oltre la quale parte la compattazione
+     * @param byteMassimi soglia in byte
+     * @pre byteMassimi > 0
+     */
+    public void setSogliaGiornale(long byteMassimi) {
+        if (byteMassimi <= 0) {
+            throw new IllegalArgumentException("La soglia del giornale deve essere positiva");
+        }
+        sogliaGiornale = byteMassimi;
+    }
+
+    /**
+     * @brief Imposta il numero di contatti oltre il quale cercaContatto scandisce la rubrica in parallelo
+     * Senza questa chiamata la scansione resta sequenziale; la soglia va scelta
+     * con BenchmarkScansioneParallela, che confronta i due percorsi.
+     * @param contatti soglia in numero di contatti
+     * @pre contatti > 0
+     */
+    public void setSogliaScansioneParallela(int contatti) {
+        if (contatti <= 0) {
+            throw new IllegalArgumentException("La soglia della scansione parallela deve essere positiva");
+        }
+        sogliaScansioneParallela = contatti;
+    }
+
+    /**
+     * @name compattaGiornale()
+     * @{
+     * @brief Scrive subito un nuovo snapshot e svuota il giornale
+     * Attende anche la fine di un'eventuale compattazione in background. Se
+     * riesce, riprende la compattazione automatica sospesa da un errore.
+     * @throws IOException in caso di errori di I/O
+     * @pre il giornale è aperto
+     */
+    public void compattaGiornale() throws IOException {
+        if (giornale == null) {
+            throw new IllegalStateException("Il giornale non è aperto");
+        }
+        attendiCompattazione();
+        avviaCompattazione();
+        attendiCompattazione();
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @name chiudiGiornale()
+     * @{
+     * @brief Attende la compattazione in corso e chiude il giornale
+     * Le modifiche successive non vengono più annotate. Il giornale viene
+     * chiuso anche se l'ultima compattazione è fallita: i record restano nei
+     * file del giornale e verranno rieseguiti alla prossima apertura.
+     * @throws IOException in caso di errori di I/O, anche se l'ultima compattazione è fallita
+     */
+    public void chiudiGiornale() throws IOException {
+        if (giornale == null) {
+            return;
+        }
+        try {
+            attendiCompattazione();
+            if (erroreCompattazione != null) {
+                throw erroreCompattazione;
+            }
+        } finally {
+            giornale.close();
+            giornale = null;
+            erroreCompattazione = null;
+        }
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @brief Prende il giornale aperto di un'altra rubrica, che smette di usarlo
+     * Le modifiche successive a questa rubrica vengono annotate nel giornale,
+     * anche una compattazione ancora in corso passa a questa rubrica.
+     * @param precedente la rubrica che aveva il giornale
+     * @return true se precedente aveva un giornale aperto
+     * @pre questa rubrica non ha un giornale aperto
+     */
+    boolean rilevaGiornale(Rubrica precedente) {
+        giornale = precedente.giornale;
+        percorsoSnapshot = precedente.percorsoSnapshot;
+        compattazione = precedente.compattazione;
+        erroreCompattazione = precedente.erroreCompattazione;
+        precedente.giornale = null;
+        precedente.percorsoSnapshot = null;
+        precedente.compattazione = null;
+        precedente.erroreCompattazione = null;
+        return giornale != null;
+    }
+
+    /**
+     * @brief Prosegue la numerazione dei checkpoint di un'altra rubrica
+     * Come dopo un caricamento completo su precedente: i suoi checkpoint restano
+     * validi anche qui e richiedono un delta completo.
+     * @param precedente la rubrica di cui questa prende il posto
+     */
+    void proseguiCheckpoint(Rubrica precedente) {
+        sequenza = Math.max(sequenza, precedente.sequenza);
+        azzeraStorico();
+    }
+
+    private static Path fileGiornale(Path snapshot, String suffisso) {
+        return snapshot.resolveSibling(snapshot.getFileName() + suffisso);
+    }
+
+    /**
+     * @brief Riesegue un inserimento o una modifica letti dal giornale
+     */
+    private void applica(Contatto c) {
+        Contatto presente = perId.get(c.getId());
+        if (presente == null) {
+            aggiungiContatto(c);
+        } else {
+            modificaContatto(presente, c);
+        }
+    }
+
+    private void applicaRimozione(int id) {
+        Contatto presente = perId.get(id);
+        if (presente != null) {
+            rimuoviContatto(presente);
+        }
+    }
+
+    private void annotaContatto(Contatto c) {
+        if (giornale != null) {
+            try {
+                giornale.annotaContatto(c);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void annotaRimozione(int id) {
+        if (giornale != null) {
+            try {
+                giornale.annotaRimozione(id);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * @brief Avvia la compattazione se il giornale ha superato la soglia
+     * Va chiamato dopo aver applicato la modifica, così che lo snapshot la contenga.
+     * Dopo una compattazione fallita il giornale non viene più ruotato: ogni
+     * rotazione aggiungerebbe i record in coda al giornale vecchio, che nessuno
+     * snapshot riesce a eliminare. L'errore arriva da compattaGiornale o
+     * chiudiGiornale; la modifica appena fatta è comunque nel giornale.
+     */
+    private void dopoModifica() {
+        if (compattazione != null && compattazione.isDone()) {
+            try {
+                attendiCompattazione();
+            } catch (IOException e) {
+                //conservato in erroreCompattazione
+            }
+        }
+        try {
+            if (giornale != null && compattazione == null && erroreCompattazione == null
+                    && giornale.dimensione() > sogliaGiornale) {
+                avviaCompattazione();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @brief Ruota il giornale e scrive in background lo snapshot dei contatti attuali
+     * I contatti memorizzati non vengono mai modificati sul posto, quindi basta
+     * copiarne i riferimenti.
+     */
+    private void avviaCompattazione() throws IOException {
+        Contatto[] copia = contatti.toArray(new Contatto[0]);
+        Path vecchio = fileGiornale(percorsoSnapshot, ".giornale.old");
+        giornale.ruota(vecchio);
+        String snapshot = percorsoSnapshot.toString();
+        compattazione = CompletableFuture.runAsync(() -> {
+            try {
+                scriviAtomicamente(snapshot, canale -> SnapshotBinario.scrivi(Arrays.asList(copia), canale));
+                Files.deleteIfExists(vecchio);
+            } catch (IOException e) {
+                //il giornale vecchio resta e verrà rieseguito al prossimo caricamento
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * @brief Attende la compattazione in corso e ne registra l'esito in erroreCompattazione
+     */
+    private void attendiCompattazione() throws IOException {
+        if (compattazione == null) {
+            return;
+        }
+        try {
+            compattazione.get();
+            erroreCompattazione = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Compattazione interrotta");
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            erroreCompattazione = causa instanceof UncheckedIOException ? ((UncheckedIOException) causa).getCause() : new IOException(causa);
+            throw erroreCompattazione;
+        } finally {
+            compattazione = null;
+        }
+    }
+
+    /**
+     * @name checkpoint()
+     * @{
+     * @brief Restituisce un checkpoint che identifica lo stato attuale della rubrica
+     * @return il valore da passare a modificheDa per avere le modifiche successive
+     */
+    public long checkpoint() {
+        return sequenza;
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @name modificheDa()
+     * @{
+     * @brief Restituisce i contatti inseriti, modificati o rimossi dopo un checkpoint
+     * Lo storico conserva solo l'ultima modifica di ogni contatto, quindi il costo
+     * dipende dal numero di contatti cambiati e non dalla dimensione della rubrica.
+     * Se il checkpoint precede l'ultimo caricamento completo, o le modifiche
+     * dimenticate con dimenticaModificheFinoA, il delta contiene l'intera rubrica.
+     * @param checkpoint valore restituito da checkpoint o da un delta precedente
+     * @return le modifiche e il checkpoint dello stato attuale
+     * @throws IllegalArgumentException se il checkpoint non appartiene a questa rubrica
+     */
+    public DeltaRubrica modificheDa(long checkpoint) {
+        if (checkpoint < 0 || checkpoint > sequenza) {
+            throw new IllegalArgumentException("Checkpoint non valido: " + checkpoint);
+        }
+        if (checkpoint < inizioStorico) {
+            return new DeltaRubrica(sequenza, true, new ArrayList<>(contatti), new ArrayList<>());
+        }
+        List<Contatto> aggiornati = new ArrayList<>();
+        List<Integer> rimossi = new ArrayList<>();
+        for (int id : storico.tailMap(checkpoint, false).values()) {
+            Contatto c = perId.get(id);
+            if (c != null) {
+                aggiornati.add(c);
+            } else {
+                rimossi.add(id);
+            }
+        }
+        return new DeltaRubrica(sequenza, false, aggiornati, rimossi);
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @name dimenticaModificheFinoA()
+     * @{
+     * @brief Libera lo storico delle modifiche già esportate
+     * Da chiamare quando nessuno chiederà più modifiche da un checkpoint precedente.
+     * @param checkpoint checkpoint già consegnato a tutti i destinatari
+     */
+    public void dimenticaModificheFinoA(long checkpoint) {
+        SortedMap<Long, Integer> vecchie = storico.headMap(checkpoint, true);
+        for (int id : vecchie.values()) {
+            ultimaModifica.remove(id);
+        }
+        vecchie.clear();
+        inizioStorico = Math.max(inizioStorico, Math.min(checkpoint, sequenza));
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @name esportaDelta()
+     * @{
+     * @brief Scrive in CSV le modifiche successive a un checkpoint
+     * Le colonne sono quelle di salvaFile seguite da Operazione, che vale
+     * "aggiornato" per i contatti inseriti o modificati e "rimosso" per quelli
+     * rimossi, di cui è scritto solo l'id.
+     * @param checkpoint valore restituito da checkpoint o da un delta precedente
+     * @param percorso Percorso del file
+     * @return il delta scritto, con il checkpoint da usare la volta successiva
+     * @throws IOException in caso di errori di I/O
+     */
+    public DeltaRubrica esportaDelta(long checkpoint, String percorso) throws IOException {
+        DeltaRubrica delta = modificheDa(checkpoint);
+        scriviAtomicamente(percorso, canale -> {
+            ScrittoreCsv scrittore = new ScrittoreCsv(canale);
+            scrittore.testo(INTESTAZIONE_CSV + ",Operazione");
+            scrittore.fineRiga();
+            for (Contatto c : delta.getAggiornati()) {
+                scriviRiga(scrittore, c);
+                scrittore.separatore();
+                scrittore.testo("aggiornato");
+                scrittore.fineRiga();
+            }
+            for (int id : delta.getRimossi()) {
+                for (int i = 0; i < 2 + Contatto.TELEFONI_MAX + Contatto.EMAIL_MAX; i++) {
+                    scrittore.separatore();
+                }
+                scrittore.intero(id);
+                scrittore.separatore();
+                scrittore.testo("rimosso");
+                scrittore.fineRiga();
+            }
+            scrittore.svuota();
+        });
+        return delta;
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @name esportaDeltaBinario()
+     * @{
+     * @brief Scrive le modifiche successive a un checkpoint nel formato del giornale
+     * @param checkpoint valore restituito da checkpoint o da un delta precedente
+     * @param percorso Percorso del file
+     * @return il delta scritto, con il checkpoint da usare la volta successiva
+     * @throws IOException in caso di errori di I/O
+     */
+    public DeltaRubrica esportaDeltaBinario(long checkpoint, String percorso) throws IOException {
+        DeltaRubrica delta = modificheDa(checkpoint);
+        scriviAtomicamente(percorso, canale -> Giornale.scriviDelta(delta, canale));
+        return delta;
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @brief Scrittura su un canale, usata da scriviAtomicamente
+     */
+    private interface Scrittura {
+        void su(FileChannel canale) throws IOException;
+    }
+
+    /**
+     * @brief Scrive un file passando da un file temporaneo nella stessa cartella
+     * Il temporaneo viene forzato su disco e poi rinominato al posto della
+     * destinazione: se la scrittura si interrompe il file precedente resta intatto.
+     */
+    private static void scriviAtomicamente(String percorso, Scrittura scrittura) throws IOException {
+        Path destinazione = Paths.get(percorso).toAbsolutePath();
+        Path temporaneo = Files.createTempFile(destinazione.getParent(), destinazione.getFileName().toString(), ".tmp");
+        boolean completato = false;
+        /**try*/
+        try {
+            try (FileChannel canale = FileChannel.open(temporaneo, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                scrittura.su(canale);
+                canale.force(true);
+            }
+            sostituisci(temporaneo, destinazione);
+            completato = true;
+        } finally {
+            if (!completato) {
+                Files.deleteIfExists(temporaneo);
+            }
+        }
+    }
+
+    /**
+     * @brief Rinomina il file temporaneo al posto della destinazione
+     * Se il file system non supporta lo spostamento atomico si ripiega su una
+     * normale sostituzione.
+     */
+    private static void sostituisci(Path temporaneo, Path destinazione) throws IOException {
+        try {
+            Files.move(temporaneo, destinazione, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaneo, destinazione, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @name caricaFile()
+     * @{
+     * @brief Carica la rubrica da file
+     * Il file viene letto con LettoreCsv in una sola passata. Le righe senza la
+     * colonna Id, come quelle dei file salvati da versioni precedenti, ricevono
+     * un id nuovo. Se le righe sono già in ordine, come quelle scritte da
+     * salvaFile, l'ordinamento finale viene saltato.
+     * @param percorso Percorso del file
+     * @throws IOException in caso di errori di I/O
+     * @pre percorso != null && !percorso.isEmpty()
+     * @post contatti != null
+     * function public void
+     */
+    public void caricaFile(String percorso) throws IOException {
+        caricaFile(percorso, null);
+    }
+    /**
+    * @}
+    */    
+
+    /**
+     * @name caricaFile() con avanzamento
+     * @{
+     * @brief Carica la rubrica da file comunicando i contatti man mano che vengono letti
+     * Pensato per il caricamento su un thread in background: dopo ogni lotto di
+     * righe l'avanzamento riceve i nuovi contatti e i byte letti, e se il thread è
+     * stato interrotto il caricamento si ferma. In quel caso, come per ogni altro
+     * errore, la rubrica resta com'era.
+     * @param percorso Percorso del file
+     * @param avanzamento riceve i lotti di contatti letti, può essere null
+     * @throws InterruptedIOException se il thread viene interrotto durante la lettura
+     * @throws IOException in caso di errori di I/O
+     * @pre percorso != null && !percorso.isEmpty()
+     */
+    public void caricaFile(String percorso, AvanzamentoCaricamento avanzamento) throws IOException {
+        List<Contatto> letti = new ArrayList<>();
+    /**try*/
+        try (FileChannel canale = FileChannel.open(Paths.get(percorso), StandardOpenOption.READ)) {
+            long byteTotali = canale.size();
+            int inizioLotto = 0;
+            LettoreCsv lettore = new LettoreCsv(canale);
+            //salta l'intestazione
+            lettore.prossimaRiga();
+            /**ciclo while*/
+            while (lettore.prossimaRiga()) {
+                Contatto nuovoContatto = contattoDaRiga(lettore);
+                /**caso nome o cognome non vuoti*/
+                if (nuovoContatto != null) {
+                    letti.add(nuovoContatto);
+                } else {
+                    System.err.println("Contatto ignorato: tutti i campi sono vuoti.");
+                }
+                if (avanzamento != null && letti.size() - inizioLotto >= DIMENSIONE_LOTTO) {
+                    avanzamento.righeLette(new ArrayList<>(letti.subList(inizioLotto, letti.size())), lettore.byteLetti(), byteTotali);
+                    inizioLotto = letti.size();
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Caricamento interrotto");
+                    }
+                }
+            }
+            if (avanzamento != null) {
+                avanzamento.righeLette(new ArrayList<>(letti.subList(inizioLotto, letti.size())), byteTotali, byteTotali);
+            }
+        } catch (ClosedByInterruptException e) {
+            //il canale si chiude da solo se il thread viene interrotto durante una lettura
+            InterruptedIOException interruzione = new InterruptedIOException("Caricamento interrotto");
+            interruzione.initCause(e);
+            throw interruzione;
+        }
+        contatti.clear();
+        svuotaIndici();
+        for (Contatto c : letti) {
+            registra(c);
+        }
+        ordinaLetti(letti);
+        contatti.ricostruisci(letti);
+        versione = VersioneRubrica.daOrdinati(letti);
+        indicizzaTutti(letti);
+        notificaRicaricamento();
+        if (giornale != null) {
+            compattaGiornale();
+        }
+    }
+    /**
+    * @}
+    */    
+
+    /**
+     * @name caricaFileParallelo()
+     * @{
+     * @brief Carica la rubrica da file leggendolo in parallelo
+     * Il file viene mappato in memoria e diviso in pezzi letti e ordinati su più
+     * thread, poi le sequenze ordinate vengono fuse e i due indici di ricerca
+     * costruiti contemporaneamente. Gli id vengono assegnati nell'ordine del file,
+     * quindi il risultato è identico a quello di caricaFile. I file piccoli, e quelli
+     * in cui un campo tra virgolette va a capo proprio al confine di un pezzo,
+     * vengono letti con caricaFile.
+     * @param percorso Percorso del file
+     * @throws IOException in caso di errori di I/O
+     * @pre percorso != null && !percorso.isEmpty()
+     * @post contatti != null
+     */
+    public void caricaFileParallelo(String percorso) throws IOException {
+        List<CaricatoreParallelo.Pezzo> pezzi = null;
+        try (FileChannel canale = FileChannel.open(Paths.get(percorso), StandardOpenOption.READ)) {
+            if (canale.size() >= CaricatoreParallelo.DIMENSIONE_MINIMA) {
+                pezzi = CaricatoreParallelo.leggi(canale, ForkJoinPool.commonPool());
+            }
+        }
+        if (pezzi == null) {
+            caricaFile(percorso);
+            return;
+        }
+        contatti.clear();
+        svuotaIndici();
+        for (CaricatoreParallelo.Pezzo pezzo : pezzi) {
+            for (int i = 0; i < pezzo.righe.size(); i++) {
+                Contatto c = pezzo.righe.get(i);
+                if (pezzo.senzaId.get(i)) {
+                    //come in caricaFile, i contatti senza id li ricevono nell'ordine del file
+                    c.setId(Contatto.nuovoId());
+                }
+                registra(c);
+            }
+        }
+        List<Contatto> letti = CaricatoreParallelo.fondi(pezzi);
+        //registra può aver cambiato l'id di contatti con lo stesso nome, già ordinati nel pezzo
+        ordinaLetti(letti);
+        contatti.ricostruisci(letti);
+        versione = VersioneRubrica.daOrdinati(letti);
+        indicizzaTuttiInParallelo(letti);
+        notificaRicaricamento();
+        if (giornale != null) {
+            compattaGiornale();
+        }
+    }
+    /**
+    * @}
+    */
+    
+    /**
+     * @brief Costruisce il contatto descritto dall'ultima riga letta
+     * Gli slot vuoti usano le istanze condivise NumeroTel.VUOTO ed Email.VUOTO.
+     * @param lettore lettore posizionato su una riga
+     * @return il contatto, oppure null se nome e cognome sono entrambi vuoti
+     */
+    static Contatto contattoDaRiga(LettoreCsv lettore) {
+        String nome = lettore.campo(0);
+        String cognome = lettore.campo(1);
+        if (nome.isEmpty() && cognome.isEmpty()) {
+            return null;
+        }
+        return new Contatto(leggiId(lettore.campo(8)), nome, cognome,
+                numeroDaCampo(lettore.campo(2)), numeroDaCampo(lettore.campo(3)), numeroDaCampo(lettore.campo(4)),
+                emailDaCampo(lettore.campo(5)), emailDaCampo(lettore.campo(6)), emailDaCampo(lettore.campo(7)));
+    }
+
+    static NumeroTel numeroDaCampo(String campo) {
+        return campo.isEmpty() ? NumeroTel.VUOTO : new NumeroTel(campo);
+    }
+
+    static Email emailDaCampo(String campo) {
+        return campo.isEmpty() ? Email.VUOTO : new Email(campo);
+    }
+
+    /**
+     * @brief Interpreta la colonna Id di un file senza creare eccezioni
+     * @return l'id, oppure 0 se il campo è vuoto o non valido
+     */
+    static int leggiId(String campo) {
+        if (campo.isEmpty() || campo.length() > 10) {
+            return 0;
+        }
+        long id = 0;
+        for (int i = 0; i < campo.length(); i++) {
+            char c = campo.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id <= Integer.MAX_VALUE ? (int) id : 0;
+    }
+
+    /**
+     * @brief Ordina i contatti letti da file, dopo che registra ha fissato gli id
+     * I file scritti da salvaFile e salvaSnapshot sono già in ordine: in quel
+     * caso basta il controllo.
+     */
+    private static void ordinaLetti(List<Contatto> letti) {
+        for (int i = 1; i < letti.size(); i++) {
+            if (VersioneRubrica.confronta(letti.get(i - 1), letti.get(i)) > 0) {
+                letti.sort(VersioneRubrica::confronta);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @brief Inserisce un contatto nell'indice per id
+     * I contatti letti da file con un id già usato ricevono un id nuovo.
+     */
+    private void registra(Contatto c) {
+        if (perId.containsKey(c.getId())) {
+            c.setId(Contatto.nuovoId());
+        } else {
+            Contatto.riservaId(c.getId());
+        }
+        perId.put(c.getId(), c);
+    }
+
+    /**
+     * @brief Aggiunge un contatto a tutti gli indici di ricerca
+     */
+    private void indicizza(Contatto c) {
+        trigrammi.aggiungi(c);
+        prefissi.aggiungi(c);
+        domini.aggiungi(c);
+        numeri.aggiungi(c);
+        fonetico.aggiungi(c);
+    }
+
+    /**
+     * @brief Aggiunge molti contatti agli indici di ricerca
+     * I contatti vengono indicizzati in ordine di id, così che le liste
+     * dell'indice a trigrammi crescano solo in coda.
+     */
+    private void indicizzaTutti(List<Contatto> lotto) {
+        for (Contatto c : perIdCrescente(lotto)) {
+            indicizza(c);
+        }
+    }
+
+    /**
+     * @brief Come indicizzaTutti, ma riempie i due indici su thread diversi
+     * Gli indici sono indipendenti: mentre un thread riempie quello a trigrammi
+     * questo riempie gli altri.
+     */
+    private void indicizzaTuttiInParallelo(List<Contatto> lotto) {
+        Contatto[] perIdCrescente = perIdCrescente(lotto);
+        ForkJoinTask<?> grammi = ForkJoinPool.commonPool().submit(() -> {
+            for (Contatto c : perIdCrescente) {
+                trigrammi.aggiungi(c);
+            }
+        });
+        for (Contatto c : perIdCrescente) {
+            prefissi.aggiungi(c);
+            domini.aggiungi(c);
+            numeri.aggiungi(c);
+            fonetico.aggiungi(c);
+        }
+        grammi.join();
+    }
+
+    private static Contatto[] perIdCrescente(List<Contatto> lotto) {
+        Contatto[] ordinati = lotto.toArray(new Contatto[0]);
+        Arrays.sort(ordinati, (a, b) -> Integer.compare(a.getId(), b.getId()));
+        return ordinati;
+    }
+
+    /**
+     * @brief Rimuove un contatto da tutti gli indici di ricerca
+     */
+    private void deindicizza(Contatto c) {
+        trigrammi.rimuovi(c);
+        prefissi.rimuovi(c);
+        domini.rimuovi(c);
+        numeri.rimuovi(c);
+        fonetico.rimuovi(c);
+    }
+
+    /**
+     * @brief Svuota tutti gli indici di ricerca e lo storico delle modifiche
+     */
+    private void svuotaIndici() {
+        perId.clear();
+        trigrammi.svuota();
+        prefissi.svuota();
+        domini.svuota();
+        numeri.svuota();
+        fonetico.svuota();
+        azzeraStorico();
+    }
+
+    /**
+     * @brief Registra che un contatto è stato inserito, modificato o rimosso
+     */
+    private void segnaModificato(int id) {
+        Long precedente = ultimaModifica.put(id, ++sequenza);
+        if (precedente != null) {
+            storico.remove(precedente);
+        }
+        storico.put(sequenza, id);
+    }
+
+    /**
+     * @brief Dimentica lo storico: i checkpoint precedenti richiedono un delta completo
+     */
+    private void azzeraStorico() {
+        ultimaModifica.clear();
+        storico.clear();
+        inizioStorico = ++sequenza;
+    }
+
+    /**
+     * @name aggiungiAscoltatore()
+     * @{
+     * @brief Registra un ascoltatore delle modifiche all'elenco dei contatti
+     * Le notifiche arrivano sul thread che modifica la rubrica, dopo che la
+     * modifica è stata applicata: chi mantiene una copia dell'elenco può
+     * aggiornare solo le posizioni cambiate invece di rileggere tutti i contatti.
+     * @param ascoltatore l'ascoltatore da registrare
+     * @pre ascoltatore != null
+     */
+    public void aggiungiAscoltatore(AscoltatoreRubrica ascoltatore) {
+        if (ascoltatore == null) {
+            throw new IllegalArgumentException("L'ascoltatore non può essere null");
+        }
+        ascoltatori.add(ascoltatore);
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @brief Rimuove un ascoltatore registrato con aggiungiAscoltatore
+     * @param ascoltatore l'ascoltatore da rimuovere
+     */
+    public void rimuoviAscoltatore(AscoltatoreRubrica ascoltatore) {
+        ascoltatori.remove(ascoltatore);
+    }
+
+    private void notificaRicaricamento() {
+        for (AscoltatoreRubrica a : ascoltatori) {
+            a.ricaricato();
+        }
+    }
+
     /**
      * @brief Metodo che consente di avere tutti i contatti che ci sono in rubrica
      * @return ArrayList della rubrica 
@@ -0,0 +1,589 @@
+/**
+ * @file RubricaConcorrente.java
+ * @brief Rubrica utilizzabile da più thread insieme
+ * @package it.unisa.se.project.datiAndStrutture
+ * Ha gli stessi metodi di Rubrica e li inoltra a una Rubrica interna, così
+ * caricamenti, salvataggi automatici e letture dell'interfaccia possono
+ * sovrapporsi.
+ * - L'elenco dei contatti (versione, getContatti, fotografia) si legge senza
+ *   lock dall'ultima VersioneRubrica pubblicata, che non cambia più.
+ * - Le ricerche usano gli indici, che le modifiche aggiornano sul posto, quindi
+ *   prendono il lock di lettura: più ricerche procedono insieme, le modifiche
+ *   attendono che finiscano. Non sono letture ottimistiche: una lettura senza
+ *   lock potrebbe trovare un indice a metà di un aggiornamento.
+ * - Le modifiche sono serializzate: inserimenti, rimozioni e modifiche singole
+ *   vengono applicate sul posto con il lock di scrittura, tenuto per il tempo
+ *   di aggiornare elenco e indici.
+ * - I caricamenti e gli inserimenti grandi rispetto alla rubrica costruiscono
+ *   una nuova Rubrica interna senza lock, mentre i lettori continuano a usare
+ *   quella attuale, e poi la sostituiscono: il lock di scrittura copre solo lo
+ *   scambio.
+ * - Gli altri inserimenti di più di PEZZO_SUL_POSTO contatti vengono applicati
+ *   a pezzi, rilasciando il lock di scrittura tra un pezzo e l'altro: una
+ *   ricerca attende al più un pezzo, mai tutta l'importazione.
+ * Gli ascoltatori ricevono le notifiche dopo il rilascio del lock, quindi
+ * possono leggere e modificare la rubrica; le notifiche arrivano nell'ordine
+ * delle modifiche, sul thread che le ha fatte.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of RubricaConcorrente.java
+ * @{
+ */
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe RubricaConcorrente
+ * @extends Rubrica
+ */
+public class RubricaConcorrente extends Rubrica {
+    /**
+     * @private PEZZO_SUL_POSTO contatti inseriti sul posto con una sola presa del
+     * lock di scrittura; i lotti più grandi vengono divisi in pezzi di questa dimensione
+     * @private FRAZIONE_COPIA un lotto più grande di un pezzo viene fuso in una copia
+     * solo se ha almeno 1/FRAZIONE_COPIA dei contatti della rubrica: la copia costa
+     * quanto reinserire tutta la rubrica
+     */
+    private static final int PEZZO_SUL_POSTO = 2048;
+    private static final int FRAZIONE_COPIA = 4;
+    /**
+     * @private attuale rubrica interna letta e modificata, sostituita dai caricamenti
+     * @private stato protegge attuale: scrittura per modificarla o sostituirla. È
+     * equo: chi chiede il lock di scrittura attende i lettori arrivati prima, così
+     * le ricerche si inseriscono tra i pezzi di un'importazione
+     * @private scrittori serializza le modifiche, anche durante la costruzione di una nuova rubrica interna
+     */
+    private Rubrica attuale;
+    private final ReentrantReadWriteLock stato = new ReentrantReadWriteLock(true);
+    /**
+     * @private pubblicata versione di attuale dopo l'ultima modifica, letta senza lock
+     */
+    private volatile VersioneRubrica pubblicata = VersioneRubrica.VUOTA;
+    private final ReentrantLock scrittori = new ReentrantLock();
+    /**
+     * @private ascoltatori ricevono le modifiche di qualunque rubrica interna
+     * @private notifiche notifiche raccolte durante una modifica, consegnate dopo il rilascio del lock
+     * @private inoltro ascoltatore registrato sulla rubrica interna, che accoda le notifiche
+     */
+    private final List<AscoltatoreRubrica> ascoltatori = new CopyOnWriteArrayList<>();
+    private final ArrayDeque<Runnable> notifiche = new ArrayDeque<>();
+    private final AscoltatoreRubrica inoltro = new Inoltro();
+    /**
+     * @private sogliaGiornale, sogliaScansioneParallela soglie da applicare alle nuove rubriche interne, 0 se mai impostate
+     */
+    private long sogliaGiornale;
+    private int sogliaScansioneParallela;
+
+    /**
+     * @brief Costruisce una rubrica concorrente vuota
+     */
+    public RubricaConcorrente() {
+        attuale = new Rubrica();
+        attuale.aggiungiAscoltatore(inoltro);
+    }
+
+    /**
+     * @brief Operazione su una rubrica che può fallire con un errore di I/O
+     */
+    private interface OperazioneIO<T> {
+        T su(Rubrica rubrica) throws IOException;
+    }
+
+    /**
+     * @brief Esegue una lettura degli indici con il lock di lettura
+     * Una lettura senza lock potrebbe trovare una mappa o una lista a metà di
+     * un aggiornamento e non terminare, quindi senza lock si legge solo la
+     * versione pubblicata.
+     */
+    private <T> T leggi(Function<Rubrica, T> lettura) {
+        stato.readLock().lock();
+        try {
+            return lettura.apply(attuale);
+        } finally {
+            stato.readLock().unlock();
+        }
+    }
+
+    /**
+     * @brief Esegue una lettura lunga, come un salvataggio, con il lock di lettura
+     * Le altre letture proseguono, le modifiche attendono la fine.
+     */
+    private <T> T leggiBloccando(OperazioneIO<T> lettura) throws IOException {
+        stato.readLock().lock();
+        try {
+            return lettura.su(attuale);
+        } finally {
+            stato.readLock().unlock();
+        }
+    }
+
+    /**
+     * @brief Applica una modifica sul posto con il lock di scrittura
+     * Le notifiche vengono consegnate anche se la modifica fallisce dopo essere
+     * stata applicata, ad esempio nella compattazione del giornale.
+     */
+    private <T> T modifica(Function<Rubrica, T> modifica) {
+        scrittori.lock();
+        try {
+            stato.writeLock().lock();
+            try {
+                return modifica.apply(attuale);
+            } finally {
+                pubblicata = attuale.versione();
+                stato.writeLock().unlock();
+                consegnaNotifiche();
+            }
+        } finally {
+            scrittori.unlock();
+        }
+    }
+
+    /**
+     * @brief Esegue un'operazione sul giornale, che i lettori non usano
+     * Serve solo escludere le altre modifiche: i contatti non cambiano.
+     */
+    private void suGiornale(OperazioneIO<Void> operazione) throws IOException {
+        scrittori.lock();
+        try {
+            operazione.su(attuale);
+        } finally {
+            scrittori.unlock();
+        }
+    }
+
+    /**
+     * @brief Costruisce una nuova rubrica interna e la mette al posto di quella attuale
+     * La costruzione avviene senza lock di scrittura: i lettori continuano a
+     * usare la rubrica attuale, che nessun altro può modificare perché si
+     * tengono gli scrittori. Se la costruzione fallisce la rubrica resta com'era.
+     */
+    private void sostituisci(OperazioneIO<Rubrica> costruzione) throws IOException {
+        scrittori.lock();
+        try {
+            Rubrica nuova = costruzione.su(attuale);
+            nuova.aggiungiAscoltatore(inoltro);
+            Rubrica vecchia;
+            stato.writeLock().lock();
+            try {
+                vecchia = attuale;
+                attuale = nuova;
+                pubblicata = nuova.versione();
+            } finally {
+                stato.writeLock().unlock();
+            }
+            vecchia.rimuoviAscoltatore(inoltro);
+            notifiche.add(() -> {
+                for (AscoltatoreRubrica a : ascoltatori) {
+                    a.ricaricato();
+                }
+            });
+            consegnaNotifiche();
+        } finally {
+            scrittori.unlock();
+        }
+    }
+
+    /**
+     * @brief Costruisce una rubrica interna da caricare, con le soglie impostate
+     */
+    private Rubrica nuovaVuota() {
+        Rubrica nuova = new Rubrica();
+        if (sogliaGiornale > 0) {
+            nuova.setSogliaGiornale(sogliaGiornale);
+        }
+        if (sogliaScansioneParallela > 0) {
+            nuova.setSogliaScansioneParallela(sogliaScansioneParallela);
+        }
+        return nuova;
+    }
+
+    /**
+     * @brief Costruisce una rubrica interna caricata, che prende il posto di precedente
+     * Come un caricamento su Rubrica: il giornale aperto passa alla nuova
+     * rubrica e viene compattato, i vecchi checkpoint richiedono un delta completo.
+     */
+    private Rubrica caricata(Rubrica precedente, OperazioneIO<Void> caricamento) throws IOException {
+        Rubrica nuova = nuovaVuota();
+        caricamento.su(nuova);
+        nuova.proseguiCheckpoint(precedente);
+        if (nuova.rilevaGiornale(precedente)) {
+            try {
+                nuova.compattaGiornale();
+            } catch (IOException | RuntimeException e) {
+                precedente.rilevaGiornale(nuova);
+                throw e;
+            }
+        }
+        return nuova;
+    }
+
+    /**
+     * @brief Consegna le notifiche accodate, nell'ordine delle modifiche
+     * Un ascoltatore che modifica la rubrica accoda altre notifiche, consegnate
+     * dallo stesso ciclo dopo quelle precedenti.
+     */
+    private void consegnaNotifiche() {
+        Runnable notifica;
+        while ((notifica = notifiche.poll()) != null) {
+            notifica.run();
+        }
+    }
+
+    @Override
+    public void aggiungiContatto(Contatto contatto) {
+        modifica(r -> {
+            r.aggiungiContatto(contatto);
+            return null;
+        });
+    }
+
+    /**
+     * @name aggiungiContatti()
+     * @{
+     * @brief Aggiunge un lotto di contatti
+     * I lotti fino a PEZZO_SUL_POSTO contatti vengono inseriti sul posto. Se un
+     * lotto più grande è grande anche rispetto alla rubrica viene copiata la
+     * rubrica interna e il lotto viene fuso nella copia, che poi prende il
+     * posto dell'originale: durante l'importazione i lettori vedono la rubrica
+     * com'era prima. Per un lotto piccolo rispetto alla rubrica la copia
+     * costerebbe molto più dell'inserimento, che avviene quindi sul posto ma a
+     * pezzi: tra un pezzo e l'altro il lock di scrittura viene rilasciato e le
+     * ricerche in attesa procedono. Il lotto viene controllato tutto prima del
+     * primo pezzo, quindi un contatto non valido non lascia l'importazione a metà;
+     * gli altri scrittori attendono la fine dell'ultimo pezzo.
+     * @param lotto I contatti da aggiungere
+     * @pre lotto != null && !lotto.contains(null)
+     */
+    @Override
+    public void aggiungiContatti(Collection<Contatto> lotto) {
+        if (lotto == null || lotto.size() <= PEZZO_SUL_POSTO) {
+            modifica(r -> {
+                r.aggiungiContatti(lotto);
+                return null;
+            });
+            return;
+        }
+        if ((long) lotto.size() * FRAZIONE_COPIA < pubblicata.size()) {
+            aggiungiAPezzi(lotto);
+            return;
+        }
+        try {
+            sostituisci(precedente -> {
+                Rubrica nuova = new Rubrica(precedente);
+                nuova.rilevaGiornale(precedente);
+                try {
+                    nuova.aggiungiContatti(lotto);
+                } catch (RuntimeException e) {
+                    precedente.rilevaGiornale(nuova);
+                    throw e;
+                }
+                return nuova;
+            });
+        } catch (IOException e) {
+            //la costruzione non fa I/O
+            throw new IllegalStateException(e);
+        }
+    }
+    /**
+    * @}
+    */
+
+    /**
+     * @brief Inserisce un lotto sul posto, un pezzo per ogni presa del lock di scrittura
+     * Il lotto viene ordinato una volta sola: ogni pezzo arriva già ordinato e
+     * viene fuso con i contatti presenti senza altri ordinamenti.
+     */
+    private void aggiungiAPezzi(Collection<Contatto> lotto) {
+        scrittori.lock();
+        try {
+            List<Contatto> ordinati = new ArrayList<>(lotto);
+            //tenendo gli scrittori la rubrica interna non cambia durante il controllo
+            if (!attuale.verificaLotto(ordinati)) {
+                ordinati.sort(VersioneRubrica::confronta);
+            }
+            for (int da = 0; da < ordinati.size(); da += PEZZO_SUL_POSTO) {
+                List<Contatto> pezzo = ordinati.subList(da, Math.min(ordinati.size(), da + PEZZO_SUL_POSTO));
+                modifica(r -> {
+                    r.aggiungiContatti(pezzo);
+                    return null;
+                });
+            }
+        } finally {
+            scrittori.unlock();
+        }
+    }
+
+    @Override
+    public void rimuoviContatto(Contatto contatto) {
+        modifica(r -> {
+            r.rimuoviContatto(contatto);
+            return null;
+        });
+    }
+
+    @Override
+    public Contatto modificaContatto(Contatto contatto, Contatto nuoviDati) {
+        return modifica(r -> r.modificaContatto(contatto, nuoviDati));
+    }
+
+    @Override
+    public VersioneRubrica versione() {
+        return pubblicata;
+    }
+
+    @Override
+    public void ripristina(VersioneRubrica obiettivo) {
+        modifica(r -> {
+            r.ripristina(obiettivo);
+            return null;
+        });
+    }
+
+    @Override
+    public Contatto trovaPerId(int id) {
+        return leggi(r -> r.trovaPerId(id));
+    }
+
+    @Override
+    public List<Contatto> cercaContatto(String query) {
+        return leggi(r -> r.cercaContatto(query));
+    }
+
+    @Override
+    public List<Contatto> cercaApprossimata(String query, int distanzaMax, int max) {
+        return leggi(r -> r.cercaApprossimata(query, distanzaMax, max));
+    }
+
+    @Override
+    public List<Contatto> cercaPerPrefisso(String prefisso) {
+        return leggi(r -> r.cercaPerPrefisso(prefisso));
+    }
+
+    @Override
+    public Contatto trovaPerNumero(CharSequence numero) {
+        return leggi(r -> r.trovaPerNumero(numero));
+    }
+
+    @Override
+    public List<Contatto> cercaPerSuono(String testo) {
+        return leggi(r -> r.cercaPerSuono(testo));
+    }
+
+    @Override
+    public List<Contatto> cercaPerNumero(CharSequence numero) {
+        return leggi(r -> r.cercaPerNumero(numero));
+    }
+
+    @Override
+    public List<Contatto> cercaPerDominio(String dominio) {
+        return leggi(r -> r.cercaPerDominio(dominio));
+    }
+
+    @Override
+    public List<String> completamenti(String prefisso, int max) {
+        return leggi(r -> r.completamenti(prefisso, max));
+    }
+
+    /**
+     * @brief Salva su file una fotografia della rubrica, senza bloccare le modifiche
+     */
+    @Override
+    public void salvaFile(String percorso) throws IOException {
+        salvaFotografia(pubblicata, percorso, null);
+    }
+
+    @Override
+    public List<Contatto> fotografia() {
+        return Collections.unmodifiableList(Arrays.asList(pubblicata.toArray(new Contatto[0])));
+    }
+
+    @Override
+    public void salvaSnapshot(String percorso) throws IOException {
+        leggiBloccando(r -> {
+            r.salvaSnapshot(percorso);
+            return null;
+        });
+    }
+
+    @Override
+    public void caricaSnapshot(String percorso) throws IOException {
+        sostituisci(precedente -> caricata(precedente, r -> {
+            r.caricaSnapshot(percorso);
+            return null;
+        }));
+    }
+
+    /**
+     * @brief Chiude il giornale attuale e apre quello di percorso in una nuova rubrica interna
+     */
+    @Override
+    public void apriGiornale(String percorso) throws IOException {
+        sostituisci(precedente -> {
+            precedente.chiudiGiornale();
+            Rubrica nuova = nuovaVuota();
+            nuova.apriGiornale(percorso);
+            nuova.proseguiCheckpoint(precedente);
+            return nuova;
+        });
+    }
+
+    @Override
+    public void setSogliaGiornale(long byteMassimi) {
+        modifica(r -> {
+            r.setSogliaGiornale(byteMassimi);
+            sogliaGiornale = byteMassimi;
+            return null;
+        });
+    }
+
+    @Override
+    public void setSogliaScansioneParallela(int contatti) {
+        modifica(r -> {
+            r.setSogliaScansioneParallela(contatti);
+            sogliaScansioneParallela = contatti;
+            return null;
+        });
+    }
+
+    @Override
+    public void compattaGiornale() throws IOException {
+        suGiornale(r -> {
+            r.compattaGiornale();
+            return null;
+        });
+    }
+
+    @Override
+    public void chiudiGiornale() throws IOException {
+        suGiornale(r -> {
+            r.chiudiGiornale();
+            return null;
+        });
+    }
+
+    @Override
+    public long checkpoint() {
+        return leggi(Rubrica::checkpoint);
+    }
+
+    @Override
+    public DeltaRubrica modificheDa(long checkpoint) {
+        return leggi(r -> r.modificheDa(checkpoint));
+    }
+
+    @Override
+    public void dimenticaModificheFinoA(long checkpoint) {
+        modifica(r -> {
+            r.dimenticaModificheFinoA(checkpoint);
+            return null;
+        });
+    }
+
+    @Override
+    public DeltaRubrica esportaDelta(long checkpoint, String percorso) throws IOException {
+        return leggiBloccando(r -> r.esportaDelta(checkpoint, percorso));
+    }
+
+    @Override
+    public DeltaRubrica esportaDeltaBinario(long checkpoint, String percorso) throws IOException {
+        return leggiBloccando(r -> r.esportaDeltaBinario(checkpoint, percorso));
+    }
+
+    @Override
+    public void caricaFile(String percorso) throws IOException {
+        caricaFile(percorso, null);
+    }
+
+    /**
+     * @brief Carica la rubrica da file in una nuova rubrica interna
+     * Durante la lettura i lettori vedono la rubrica com'era prima; l'avanzamento
+     * riceve i lotti letti come con Rubrica.caricaFile.
+     */
+    @Override
+    public void caricaFile(String percorso, AvanzamentoCaricamento avanzamento) throws IOException {
+        sostituisci(precedente -> caricata(precedente, r -> {
+            r.caricaFile(percorso, avanzamento);
+            return null;
+        }));
+    }
+
+    @Override
+    public void caricaFileParallelo(String percorso) throws IOException {
+        sostituisci(precedente -> caricata(precedente, r -> {
+            r.caricaFileParallelo(percorso);
+            return null;
+        }));
+    }
+
+    @Override
+    public void aggiungiAscoltatore(AscoltatoreRubrica ascoltatore) {
+        if (ascoltatore == null) {
+            throw new IllegalArgumentException("L'ascoltatore non può essere null");
+        }
+        ascoltatori.add(ascoltatore);
+    }
+
+    @Override
+    public void rimuoviAscoltatore(AscoltatoreRubrica ascoltatore) {
+        ascoltatori.remove(ascoltatore);
+    }
+
+    @Override
+    public List<Contatto> getContatti() {
+        return new ArrayList<>(pubblicata);
+    }
+
+    /**
+     * @brief Accoda le notifiche della rubrica interna per consegnarle fuori dal lock
+     */
+    private final class Inoltro implements AscoltatoreRubrica {
+        @Override
+        public void inserito(int posizione, Contatto contatto) {
+            notifiche.add(() -> {
+                for (AscoltatoreRubrica a : ascoltatori) {
+                    a.inserito(posizione, contatto);
+                }
+            });
+        }
+
+        @Override
+        public void rimosso(int posizione, Contatto contatto) {
+            notifiche.add(() -> {
+                for (AscoltatoreRubrica a : ascoltatori) {
+                    a.rimosso(posizione, contatto);
+                }
+            });
+        }
+
+        @Override
+        public void aggiornato(int posizione, Contatto contatto) {
+            notifiche.add(() -> {
+                for (AscoltatoreRubrica a : ascoltatori) {
+                    a.aggiornato(posizione, contatto);
+                }
+            });
+        }
+
+        @Override
+        public void ricaricato() {
+            notifiche.add(() -> {
+                for (AscoltatoreRubrica a : ascoltatori) {
+                    a.ricaricato();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * @file ScansioneParallela.java
+ * @brief Scansione di tutta la rubrica divisa tra i thread del pool fork-join
+ * @package it.unisa.se.project.datiAndStrutture
+ * L'elenco viene diviso a metà finché i pezzi non scendono sotto la
+ * granularità; ogni pezzo viene filtrato da un thread del pool e i risultati
+ * vengono concatenati nell'ordine dei pezzi, quindi restano nell'ordine
+ * dell'elenco come nella scansione sequenziale.
+ * I thread del pool non ricevono l'interruzione del thread che ha avviato la
+ * ricerca: ogni pezzo controlla direttamente quel thread, e se è stato
+ * interrotto si ferma restituendo quello che ha trovato.
+ * Rubrica la usa solo oltre la soglia impostata con setSogliaScansioneParallela:
+ * BenchmarkScansioneParallela misura se e da quante righe conviene.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of ScansioneParallela.java
+ * @{
+ */
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe ScansioneParallela usata da Rubrica.cercaContatto
+ */
+final class ScansioneParallela extends RecursiveTask<List<Contatto>> {
+    /**
+     * @private serialVersionUID RecursiveTask è serializzabile, ma i pezzi non
+     * vengono mai serializzati
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * @private PEZZI_PER_THREAD pezzi per thread, per bilanciare contatti più lenti da filtrare
+     * @private GRANULARITA_MINIMA contatti sotto i quali non conviene dividere
+     */
+    private static final int PEZZI_PER_THREAD = 8;
+    private static final int GRANULARITA_MINIMA = 1024;
+    /**
+     * @private elenco contatti da filtrare, non modificati durante la scansione
+     * @private filtro condizione che i contatti restituiti soddisfano
+     * @private chiamante thread che ha avviato la ricerca
+     * @private intervallo contatti filtrati tra due controlli dell'interruzione
+     * @private granularita pezzi di questa dimensione o più piccoli non vengono divisi
+     * @private da, a intervallo [da, a) dell'elenco assegnato a questo pezzo
+     */
+    private final List<Contatto> elenco;
+    private final Predicate<Contatto> filtro;
+    private final Thread chiamante;
+    private final int intervallo;
+    private final int granularita;
+    private final int da;
+    private final int a;
+
+    ScansioneParallela(List<Contatto> elenco, Predicate<Contatto> filtro, Thread chiamante,
+            int intervallo, int granularita, int da, int a) {
+        this.elenco = elenco;
+        this.filtro = filtro;
+        this.chiamante = chiamante;
+        this.intervallo = intervallo;
+        this.granularita = granularita;
+        this.da = da;
+        this.a = a;
+    }
+
+    /**
+     * @name cerca()
+     * @{
+     * @brief Filtra tutto l'elenco sul pool comune
+     * @param elenco contatti da filtrare, ad accesso casuale
+     * @param filtro condizione da verificare, chiamata da più thread insieme
+     * @param intervallo contatti tra due controlli dell'interruzione del thread chiamante
+     * @return i contatti che soddisfano il filtro, nell'ordine dell'elenco
+     * @pre elenco non viene modificato finché cerca non termina
+     */
+    static List<Contatto> cerca(List<Contatto> elenco, Predicate<Contatto> filtro, int intervallo) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int granularita = Math.max(GRANULARITA_MINIMA, elenco.size() / (pool.getParallelism() * PEZZI_PER_THREAD));
+        return pool.invoke(new ScansioneParallela(elenco, filtro, Thread.currentThread(),
+                intervallo, granularita, 0, elenco.size()));
+    }
+    /**
+     * @}
+     */
+
+    @Override
+    protected List<Contatto> compute() {
+        if (a - da <= granularita) {
+            List<Contatto> trovati = new ArrayList<>();
+            for (int i = da; i < a; i++) {
+                if ((i - da) % intervallo == 0 && chiamante.isInterrupted()) {
+                    break;
+                }
+                Contatto c = elenco.get(i);
+                if (filtro.test(c)) {
+                    trovati.add(c);
+                }
+            }
+            return trovati;
+        }
+        int medio = (da + a) >>> 1;
+        ScansioneParallela sinistra = new ScansioneParallela(elenco, filtro, chiamante, intervallo, granularita, da, medio);
+        ScansioneParallela destra = new ScansioneParallela(elenco, filtro, chiamante, intervallo, granularita, medio, a);
+        sinistra.fork();
+        List<Contatto> trovatiDestra = destra.compute();
+        List<Contatto> trovati = sinistra.join();
+        trovati.addAll(trovatiDestra);
+        return trovati;
+    }
+}
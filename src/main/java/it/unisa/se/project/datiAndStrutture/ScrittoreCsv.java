@@ -0,0 +1,188 @@
+/**
+ * @file ScrittoreCsv.java
+ * @brief Scrittore di file CSV su un buffer riusato
+ * @package it.unisa.se.project.datiAndStrutture
+ * Codifica i campi direttamente in UTF-8 dentro un unico buffer di byte, che
+ * viene scaricato sul canale solo quando è pieno. Non vengono create stringhe
+ * intermedie: le virgolette RFC 4180 e i numeri sono scritti byte per byte.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of ScrittoreCsv.java
+ * @{
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe ScrittoreCsv usata internamente da Rubrica
+ */
+class ScrittoreCsv {
+    /**
+     * @private DIMENSIONE_BUFFER byte accumulati prima di ogni scrittura sul canale
+     * @private MARGINE spazio sempre libero nel buffer, sufficiente per un carattere o un intero
+     */
+    private static final int DIMENSIONE_BUFFER = 1 << 20;
+    private static final int MARGINE = 16;
+    private static final byte[] FINE_RIGA = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * @private canale destinazione dei byte
+     * @private buffer buffer riusato, scritto tramite l'array sottostante
+     */
+    private final WritableByteChannel canale;
+    private final ByteBuffer buffer = ByteBuffer.allocate(DIMENSIONE_BUFFER);
+    private final byte[] byteBuffer = buffer.array();
+    private int posizione;
+
+    /**
+     * @brief Costruisce uno scrittore sul canale dato
+     * @param canale canale aperto in scrittura, non viene chiuso dallo scrittore
+     */
+    ScrittoreCsv(WritableByteChannel canale) {
+        this.canale = canale;
+    }
+
+    /**
+     * @name campo()
+     * @{
+     * @brief Scrive un campo, tra virgolette se altrimenti verrebbe letto diversamente
+     * @param testo il valore da scrivere, null viene scritto come campo vuoto
+     * @throws IOException in caso di errori di I/O
+     */
+    void campo(String testo) throws IOException {
+        if (testo == null || testo.isEmpty()) {
+            return;
+        }
+        boolean virgolette = richiedeVirgolette(testo);
+        if (virgolette) {
+            byteAscii('"');
+        }
+        int lunghezza = testo.length();
+        for (int i = 0; i < lunghezza; i++) {
+            if (posizione > byteBuffer.length - MARGINE) {
+                svuota();
+            }
+            char c = testo.charAt(i);
+            if (c < 0x80) {
+                byteBuffer[posizione++] = (byte) c;
+                if (c == '"' && virgolette) {
+                    byteBuffer[posizione++] = '"';
+                }
+            } else if (c < 0x800) {
+                byteBuffer[posizione++] = (byte) (0xC0 | (c >> 6));
+                byteBuffer[posizione++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < lunghezza && Character.isLowSurrogate(testo.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, testo.charAt(++i));
+                byteBuffer[posizione++] = (byte) (0xF0 | (cp >> 18));
+                byteBuffer[posizione++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                byteBuffer[posizione++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                byteBuffer[posizione++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                //surrogato isolato: come String.getBytes si scrive '?'
+                byteBuffer[posizione++] = '?';
+            } else {
+                byteBuffer[posizione++] = (byte) (0xE0 | (c >> 12));
+                byteBuffer[posizione++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                byteBuffer[posizione++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        if (virgolette) {
+            byteAscii('"');
+        }
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @brief Scrive il separatore tra due campi
+     */
+    void separatore() throws IOException {
+        byteAscii(',');
+    }
+
+    /**
+     * @brief Scrive un intero non negativo in decimale
+     * @pre valore >= 0
+     */
+    void intero(int valore) throws IOException {
+        if (posizione > byteBuffer.length - MARGINE) {
+            svuota();
+        }
+        int cifre = 1;
+        for (int resto = valore / 10; resto > 0; resto /= 10) {
+            cifre++;
+        }
+        for (int i = posizione + cifre - 1; i >= posizione; i--) {
+            byteBuffer[i] = (byte) ('0' + valore % 10);
+            valore /= 10;
+        }
+        posizione += cifre;
+    }
+
+    /**
+     * @brief Scrive testo ASCII senza virgolette, come l'intestazione
+     */
+    void testo(String ascii) throws IOException {
+        for (int i = 0; i < ascii.length(); i++) {
+            byteAscii(ascii.charAt(i));
+        }
+    }
+
+    /**
+     * @brief Termina la riga con il separatore di riga della piattaforma
+     */
+    void fineRiga() throws IOException {
+        for (byte b : FINE_RIGA) {
+            byteAscii(b);
+        }
+    }
+
+    /**
+     * @brief Scrive sul canale i byte ancora nel buffer
+     * @throws IOException in caso di errori di I/O
+     */
+    void svuota() throws IOException {
+        buffer.position(0);
+        buffer.limit(posizione);
+        while (buffer.hasRemaining()) {
+            canale.write(buffer);
+        }
+        buffer.clear();
+        posizione = 0;
+    }
+
+    /**
+     * @brief Indica se un campo va messo tra virgolette
+     * Servono per i campi con virgole, virgolette o a capo e per quelli con spazi
+     * iniziali o finali, che altrimenti verrebbero eliminati alla lettura.
+     */
+    static boolean richiedeVirgolette(String campo) {
+        if (campo.isEmpty()) {
+            return false;
+        }
+        if (campo.charAt(0) <= ' ' || campo.charAt(campo.length() - 1) <= ' ') {
+            return true;
+        }
+        for (int i = 0; i < campo.length(); i++) {
+            char c = campo.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void byteAscii(int b) throws IOException {
+        if (posizione == byteBuffer.length) {
+            svuota();
+        }
+        byteBuffer[posizione++] = (byte) b;
+    }
+}
@@ -0,0 +1,257 @@
+/**
+ * @file SnapshotBinario.java
+ * @brief Formato binario compatto per salvare e riaprire la rubrica
+ * @package it.unisa.se.project.datiAndStrutture
+ * Il file è formato da un'intestazione di lunghezza fissa seguita dal contenuto:
+ *
+ *   intestazione: "RBSN", versione, numero di contatti, numero di stringhe,
+ *                 lunghezza e CRC32 del contenuto, CRC32 dell'intestazione
+ *   contenuto:    tabella delle stringhe, poi un record per contatto
+ *
+ * Ogni stringa distinta (nomi, cognomi, numeri, parti locali e domini delle
+ * email) compare una sola volta nella tabella, in UTF-8 preceduta dalla
+ * lunghezza; i record dei contatti la citano per indice. Interi e indici sono
+ * scritti come varint, quindi i valori piccoli occupano un byte. I contatti sono
+ * scritti nell'ordine della rubrica, così che la lettura non debba riordinarli.
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of SnapshotBinario.java
+ * @{
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe SnapshotBinario usata internamente da Rubrica
+ */
+final class SnapshotBinario {
+    /**
+     * @public VERSIONE versione del formato scritta da questa classe
+     * @private MAGICO primi quattro byte di ogni snapshot
+     * @private LUNGHEZZA_INTESTAZIONE byte dell'intestazione, checksum compreso
+     */
+    static final int VERSIONE = 1;
+    private static final int MAGICO = 0x5242534E;
+    private static final int LUNGHEZZA_INTESTAZIONE = 4 + 4 + 4 + 4 + 8 + 4 + 4;
+
+    private SnapshotBinario() {
+    }
+
+    /**
+     * @name scrivi()
+     * @{
+     * @brief Scrive i contatti su un canale nel formato snapshot
+     * @param contatti contatti da scrivere, nell'ordine della rubrica
+     * @param canale canale aperto in scrittura
+     * @throws IOException in caso di errori di I/O
+     */
+    static void scrivi(List<Contatto> contatti, FileChannel canale) throws IOException {
+        Map<String, Integer> indici = new HashMap<>();
+        Uscita tabella = new Uscita(1 << 16);
+        Uscita record = new Uscita(Math.max(1 << 16, contatti.size() * 16));
+        indici.put("", 0);
+        tabella.stringa("");
+
+        for (Contatto c : contatti) {
+            record.varint(c.getId());
+            record.varint(indice(c.getNome(), indici, tabella));
+            record.varint(indice(c.getCognome(), indici, tabella));
+            for (int i = 0; i < Contatto.TELEFONI_MAX; i++) {
+                record.varint(indice(c.testoTelefono(i), indici, tabella));
+            }
+            for (int i = 0; i < Contatto.EMAIL_MAX; i++) {
+                //parte locale e dominio separati: i domini si ripetono molto
+                record.varint(indice(c.localeEmail(i), indici, tabella));
+                String dominio = c.testoDominio(i);
+                record.varint(dominio == null ? 0 : indice(dominio, indici, tabella) + 1);
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(tabella.byteScritti, 0, tabella.lunghezza);
+        crc.update(record.byteScritti, 0, record.lunghezza);
+        ByteBuffer intestazione = ByteBuffer.allocate(LUNGHEZZA_INTESTAZIONE).order(ByteOrder.BIG_ENDIAN);
+        intestazione.putInt(MAGICO).putInt(VERSIONE).putInt(contatti.size()).putInt(indici.size())
+                .putLong((long) tabella.lunghezza + record.lunghezza).putInt((int) crc.getValue());
+        intestazione.putInt(crcIntestazione(intestazione));
+        intestazione.flip();
+
+        ByteBuffer[] parti = {intestazione, ByteBuffer.wrap(tabella.byteScritti, 0, tabella.lunghezza),
+            ByteBuffer.wrap(record.byteScritti, 0, record.lunghezza)};
+        while (parti[2].hasRemaining()) {
+            canale.write(parti);
+        }
+    }
+    /**
+     * @}
+     */
+
+    /**
+     * @name leggi()
+     * @{
+     * @brief Legge i contatti da uno snapshot
+     * @param percorso file da leggere
+     * @return i contatti nell'ordine in cui sono stati scritti
+     * @throws IOException se il file non è uno snapshot valido o in caso di errori di I/O
+     */
+    static List<Contatto> leggi(Path percorso) throws IOException {
+        ByteBuffer dati;
+        try (FileChannel canale = FileChannel.open(percorso, StandardOpenOption.READ)) {
+            long dimensione = canale.size();
+            if (dimensione < LUNGHEZZA_INTESTAZIONE || dimensione > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot non valido: dimensione " + dimensione);
+            }
+            dati = ByteBuffer.allocate((int) dimensione);
+            while (dati.hasRemaining() && canale.read(dati) >= 0) {
+                //legge tutto il file
+            }
+            dati.flip();
+        }
+
+        if (dati.getInt() != MAGICO) {
+            throw new IOException("Il file non è uno snapshot della rubrica");
+        }
+        int versione = dati.getInt();
+        if (versione != VERSIONE) {
+            throw new IOException("Versione dello snapshot non supportata: " + versione);
+        }
+        int numeroContatti = dati.getInt();
+        int numeroStringhe = dati.getInt();
+        long lunghezza = dati.getLong();
+        int crcContenuto = dati.getInt();
+        int crcLetto = dati.getInt();
+        if (crcLetto != crcIntestazione(dati) || numeroContatti < 0 || numeroStringhe < 1
+                || lunghezza != dati.remaining()) {
+            throw new IOException("Snapshot danneggiato: intestazione non valida");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(dati.array(), LUNGHEZZA_INTESTAZIONE, dati.remaining());
+        if ((int) crc.getValue() != crcContenuto) {
+            throw new IOException("Snapshot danneggiato: checksum del contenuto errato");
+        }
+
+        try {
+            String[] stringhe = new String[numeroStringhe];
+            for (int i = 0; i < numeroStringhe; i++) {
+                int n = varint(dati);
+                stringhe[i] = n == 0 ? "" : new String(dati.array(), dati.position(), n, StandardCharsets.UTF_8);
+                dati.position(dati.position() + n);
+            }
+            //numero nel DizionarioDomini di ogni stringa usata come dominio, 0 se non ancora cercato
+            int[] numeriDomini = new int[numeroStringhe];
+            List<Contatto> letti = new ArrayList<>(numeroContatti);
+            NumeroTel[] tel = new NumeroTel[Contatto.TELEFONI_MAX];
+            Email[] email = new Email[Contatto.EMAIL_MAX];
+            for (int k = 0; k < numeroContatti; k++) {
+                int id = varint(dati);
+                String nome = stringhe[varint(dati)];
+                String cognome = stringhe[varint(dati)];
+                for (int i = 0; i < tel.length; i++) {
+                    String numero = stringhe[varint(dati)];
+                    tel[i] = numero.isEmpty() ? NumeroTel.VUOTO : new NumeroTel(numero);
+                }
+                for (int i = 0; i < email.length; i++) {
+                    String locale = stringhe[varint(dati)];
+                    int dominio = varint(dati);
+                    if (dominio == 0) {
+                        email[i] = locale.isEmpty() ? Email.VUOTO : new Email(locale, DizionarioDomini.NESSUNO, null);
+                    } else {
+                        if (numeriDomini[dominio - 1] == 0) {
+                            numeriDomini[dominio - 1] = DizionarioDomini.numero(stringhe[dominio - 1]);
+                        }
+                        email[i] = new Email(locale, numeriDomini[dominio - 1], stringhe[dominio - 1]);
+                    }
+                }
+                letti.add(new Contatto(id, nome, cognome, tel[0], tel[1], tel[2], email[0], email[1], email[2]));
+            }
+            return letti;
+        } catch (RuntimeException e) {
+            //indici fuori tabella o varint troncati: il checksum non ha rilevato il danno
+            throw new IOException("Snapshot danneggiato: " + e, e);
+        }
+    }
+    /**
+     * @}
+     */
+
+    private static int indice(String testo, Map<String, Integer> indici, Uscita tabella) {
+        Integer indice = indici.get(testo);
+        if (indice == null) {
+            indice = indici.size();
+            indici.put(testo, indice);
+            tabella.stringa(testo);
+        }
+        return indice;
+    }
+
+    /**
+     * @brief CRC32 dei campi dell'intestazione che precedono il checksum
+     */
+    private static int crcIntestazione(ByteBuffer intestazione) {
+        CRC32 crc = new CRC32();
+        crc.update(intestazione.array(), 0, LUNGHEZZA_INTESTAZIONE - 4);
+        return (int) crc.getValue();
+    }
+
+    private static int varint(ByteBuffer dati) throws IOException {
+        int valore = 0;
+        for (int spostamento = 0; spostamento < 35; spostamento += 7) {
+            byte b = dati.get();
+            valore |= (b & 0x7F) << spostamento;
+            if (b >= 0) {
+                return valore;
+            }
+        }
+        throw new IOException("Snapshot danneggiato: varint troppo lungo");
+    }
+
+    /**
+     * @brief Array di byte che cresce durante la scrittura
+     */
+    private static final class Uscita {
+        private byte[] byteScritti;
+        private int lunghezza;
+
+        Uscita(int capacita) {
+            byteScritti = new byte[capacita];
+        }
+
+        void varint(int valore) {
+            garantisci(5);
+            while ((valore & ~0x7F) != 0) {
+                byteScritti[lunghezza++] = (byte) ((valore & 0x7F) | 0x80);
+                valore >>>= 7;
+            }
+            byteScritti[lunghezza++] = (byte) valore;
+        }
+
+        void stringa(String testo) {
+            byte[] utf8 = testo.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length);
+            garantisci(utf8.length);
+            System.arraycopy(utf8, 0, byteScritti, lunghezza, utf8.length);
+            lunghezza += utf8.length;
+        }
+
+        private void garantisci(int n) {
+            if (lunghezza + n > byteScritti.length) {
+                byteScritti = Arrays.copyOf(byteScritti, Math.max(byteScritti.length * 2, lunghezza + n));
+            }
+        }
+    }
+}
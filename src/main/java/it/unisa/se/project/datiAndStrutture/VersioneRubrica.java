@@ -0,0 +1,391 @@
+/**
+ * @file VersioneRubrica.java
+ * @brief Versione immutabile dei contatti di una rubrica
+ * @package it.unisa.se.project.datiAndStrutture
+ * I contatti sono in un treap persistente ordinato secondo Contatto.compareTo,
+ * e a parità secondo l'id. Un inserimento o una rimozione non modifica i nodi
+ * esistenti ma crea una nuova versione che copia solo il cammino dalla radice
+ * al punto cambiato, O(log n) nodi, e condivide tutto il resto con la
+ * versione precedente: conservare una versione costa O(1) e tenerne molte
+ * costa memoria proporzionale alle modifiche fatte tra l'una e l'altra.
+ * La priorità di ogni nodo è calcolata dall'id del contatto, quindi la forma
+ * dell'albero dipende solo dai contatti che contiene e non dall'ordine delle
+ * modifiche: due versioni vicine hanno in comune tutti i sottoalberi non
+ * toccati, e differenze le confronta scendendo solo dove i nodi sono diversi.
+ *
+ * @invariant ogni nodo ha priorità maggiore dei suoi figli
+ */
+package it.unisa.se.project.datiAndStrutture;
+/**
+ * @name imports of VersioneRubrica.java
+ * @{
+ */
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+/**
+ * @}
+ */
+
+/**
+ * @brief classe VersioneRubrica
+ * @extends AbstractList<Contatto>
+ * Si usa come una lista non modificabile: get costa O(log n), la visita con
+ * l'iteratore O(1) per elemento.
+ */
+public final class VersioneRubrica extends AbstractList<Contatto> implements RandomAccess {
+    /**
+     * @public VUOTA versione senza contatti
+     */
+    public static final VersioneRubrica VUOTA = new VersioneRubrica(null);
+    /**
+     * @private radice radice del treap, null se la versione è vuota
+     */
+    private final Nodo radice;
+
+    private VersioneRubrica(Nodo radice) {
+        this.radice = radice;
+    }
+
+    /**
+     * @brief Costruisce in O(n) la versione che contiene i contatti dati
+     * @param ordinati contatti ordinati secondo Contatto.compareTo, con id distinti
+     * @return la nuova versione
+     */
+    static VersioneRubrica daOrdinati(List<Contatto> ordinati) {
+        if (ordinati.isEmpty()) {
+            return VUOTA;
+        }
+        for (int i = 1; i < ordinati.size(); i++) {
+            if (confronta(ordinati.get(i - 1), ordinati.get(i)) > 0) {
+                //contatti con lo stesso nome non ordinati per id
+                List<Contatto> copia = new ArrayList<>(ordinati);
+                copia.sort(VersioneRubrica::confronta);
+                ordinati = copia;
+                break;
+            }
+        }
+        //costruzione dell'albero cartesiano: la pila contiene il bordo destro
+        Costruzione[] pila = new Costruzione[ordinati.size()];
+        int altezza = 0;
+        for (Contatto c : ordinati) {
+            Costruzione nuovo = new Costruzione(c);
+            Costruzione ultimoTolto = null;
+            while (altezza > 0 && precede(nuovo.contatto, pila[altezza - 1].contatto)) {
+                ultimoTolto = pila[--altezza];
+            }
+            nuovo.sinistro = ultimoTolto;
+            if (altezza > 0) {
+                pila[altezza - 1].destro = nuovo;
+            }
+            pila[altezza++] = nuovo;
+        }
+        return new VersioneRubrica(pila[0].congela());
+    }
+
+    /**
+     * @brief Restituisce la versione con un contatto in più
+     * @param contatto contatto con un id non presente
+     */
+    VersioneRubrica con(Contatto contatto) {
+        return new VersioneRubrica(inserisci(radice, contatto));
+    }
+
+    /**
+     * @brief Restituisce la versione senza un contatto
+     * @param contatto il contatto come è memorizzato in questa versione
+     */
+    VersioneRubrica senza(Contatto contatto) {
+        return new VersioneRubrica(rimuovi(radice, contatto));
+    }
+
+    @Override
+    public int size() {
+        return dimensione(radice);
+    }
+
+    @Override
+    public Contatto get(int indice) {
+        if (indice < 0 || indice >= size()) {
+            throw new IndexOutOfBoundsException("Indice: " + indice + ", contatti: " + size());
+        }
+        Nodo n = radice;
+        while (true) {
+            int sinistra = dimensione(n.sinistro);
+            if (indice < sinistra) {
+                n = n.sinistro;
+            } else if (indice == sinistra) {
+                return n.contatto;
+            } else {
+                indice -= sinistra + 1;
+                n = n.destro;
+            }
+        }
+    }
+
+    @Override
+    public Iterator<Contatto> iterator() {
+        return new Iterator<Contatto>() {
+            private final ArrayDeque<Nodo> pila = new ArrayDeque<>();
+            {
+                scendi(radice);
+            }
+
+            private void scendi(Nodo n) {
+                for (; n != null; n = n.sinistro) {
+                    pila.push(n);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !pila.isEmpty();
+            }
+
+            @Override
+            public Contatto next() {
+                if (pila.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Nodo n = pila.pop();
+                scendi(n.destro);
+                return n.contatto;
+            }
+        };
+    }
+
+    /**
+     * @name differenze()
+     * @{
+     * @brief Trova i contatti che distinguono due versioni
+     * Confronta i due alberi a partire dalle radici e salta i sottoalberi
+     * condivisi, quindi per due versioni della stessa rubrica il costo dipende
+     * dalle modifiche fatte tra l'una e l'altra e non dalla dimensione.
+     * @param da versione di partenza
+     * @param a versione di arrivo
+     * @param tolti riceve i contatti di da che non sono in a
+     * @param messi riceve i contatti di a che non sono in da
+     */
+    static void differenze(VersioneRubrica da, VersioneRubrica a, List<Contatto> tolti, List<Contatto> messi) {
+        differenze(da.radice, a.radice, tolti, messi);
+    }
+    /**
+     * @}
+     */
+
+    private static void differenze(Nodo da, Nodo a, List<Contatto> tolti, List<Contatto> messi) {
+        if (da == a) {
+            return;
+        }
+        if (da == null) {
+            tutti(a, messi);
+            return;
+        }
+        if (a == null) {
+            tutti(da, tolti);
+            return;
+        }
+        if (da.contatto == a.contatto) {
+            differenze(da.sinistro, a.sinistro, tolti, messi);
+            differenze(da.destro, a.destro, tolti, messi);
+            return;
+        }
+        //si divide l'albero la cui radice viene dopo attorno alla radice dell'altro
+        if (precede(da.contatto, a.contatto)) {
+            Nodo[] parti = new Nodo[3];
+            dividi(a, da.contatto, parti);
+            if (parti[1] == null || parti[1].contatto != da.contatto) {
+                tolti.add(da.contatto);
+                if (parti[1] != null) {
+                    messi.add(parti[1].contatto);
+                }
+            }
+            differenze(da.sinistro, parti[0], tolti, messi);
+            differenze(da.destro, parti[2], tolti, messi);
+        } else {
+            Nodo[] parti = new Nodo[3];
+            dividi(da, a.contatto, parti);
+            if (parti[1] == null || parti[1].contatto != a.contatto) {
+                messi.add(a.contatto);
+                if (parti[1] != null) {
+                    tolti.add(parti[1].contatto);
+                }
+            }
+            differenze(parti[0], a.sinistro, tolti, messi);
+            differenze(parti[2], a.destro, tolti, messi);
+        }
+    }
+
+    private static void tutti(Nodo n, List<Contatto> destinazione) {
+        for (; n != null; n = n.destro) {
+            tutti(n.sinistro, destinazione);
+            destinazione.add(n.contatto);
+        }
+    }
+
+    private static Nodo inserisci(Nodo n, Contatto contatto) {
+        if (n == null) {
+            return new Nodo(contatto, null, null);
+        }
+        if (precede(contatto, n.contatto)) {
+            Nodo[] parti = new Nodo[3];
+            dividi(n, contatto, parti);
+            return new Nodo(contatto, parti[0], parti[2]);
+        }
+        if (confronta(contatto, n.contatto) < 0) {
+            return new Nodo(n.contatto, inserisci(n.sinistro, contatto), n.destro);
+        }
+        return new Nodo(n.contatto, n.sinistro, inserisci(n.destro, contatto));
+    }
+
+    private static Nodo rimuovi(Nodo n, Contatto contatto) {
+        if (n == null) {
+            return null;
+        }
+        int confronto = confronta(contatto, n.contatto);
+        if (confronto == 0) {
+            return unisci(n.sinistro, n.destro);
+        }
+        if (confronto < 0) {
+            Nodo sinistro = rimuovi(n.sinistro, contatto);
+            return sinistro == n.sinistro ? n : new Nodo(n.contatto, sinistro, n.destro);
+        }
+        Nodo destro = rimuovi(n.destro, contatto);
+        return destro == n.destro ? n : new Nodo(n.contatto, n.sinistro, destro);
+    }
+
+    /**
+     * @brief Divide un albero attorno a una chiave
+     * @param parti riceve in [0] le chiavi minori, in [1] il nodo con la stessa
+     *        chiave o null, in [2] le chiavi maggiori
+     */
+    private static void dividi(Nodo n, Contatto chiave, Nodo[] parti) {
+        if (n == null) {
+            parti[0] = null;
+            parti[1] = null;
+            parti[2] = null;
+            return;
+        }
+        int confronto = confronta(chiave, n.contatto);
+        if (confronto == 0) {
+            parti[0] = n.sinistro;
+            parti[1] = n;
+            parti[2] = n.destro;
+        } else if (confronto < 0) {
+            dividi(n.sinistro, chiave, parti);
+            parti[2] = new Nodo(n.contatto, parti[2], n.destro);
+        } else {
+            dividi(n.destro, chiave, parti);
+            parti[0] = new Nodo(n.contatto, n.sinistro, parti[0]);
+        }
+    }
+
+    /**
+     * @brief Unisce due alberi in cui tutte le chiavi di sinistro precedono quelle di destro
+     */
+    private static Nodo unisci(Nodo sinistro, Nodo destro) {
+        if (sinistro == null) {
+            return destro;
+        }
+        if (destro == null) {
+            return sinistro;
+        }
+        if (precede(sinistro.contatto, destro.contatto)) {
+            return new Nodo(sinistro.contatto, sinistro.sinistro, unisci(sinistro.destro, destro));
+        }
+        return new Nodo(destro.contatto, unisci(sinistro, destro.sinistro), destro.destro);
+    }
+
+    /**
+     * @brief Ordine delle chiavi: Contatto.compareTo, poi l'id
+     * È anche l'ordine di ElencoContatti, così l'elenco della rubrica e le sue
+     * versioni coincidono anche tra contatti con lo stesso nome.
+     */
+    static int confronta(Contatto a, Contatto b) {
+        int confronto = a.compareTo(b);
+        return confronto != 0 ? confronto : Integer.compare(a.getId(), b.getId());
+    }
+
+    /**
+     * @brief true se a ha priorità maggiore di b e va quindi più vicino alla radice
+     * A parità di priorità decide l'id, così l'ordine è totale e la forma unica.
+     */
+    private static boolean precede(Contatto a, Contatto b) {
+        int pa = priorita(a.getId());
+        int pb = priorita(b.getId());
+        return pa != pb ? pa > pb : a.getId() < b.getId();
+    }
+
+    private static int priorita(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int dimensione(Nodo n) {
+        return n == null ? 0 : n.dimensione;
+    }
+
+    /**
+     * @brief Nodo immutabile del treap
+     */
+    private static final class Nodo {
+        private final Contatto contatto;
+        private final Nodo sinistro;
+        private final Nodo destro;
+        private final int dimensione;
+
+        Nodo(Contatto contatto, Nodo sinistro, Nodo destro) {
+            this.contatto = contatto;
+            this.sinistro = sinistro;
+            this.destro = destro;
+            this.dimensione = 1 + VersioneRubrica.dimensione(sinistro) + VersioneRubrica.dimensione(destro);
+        }
+    }
+
+    /**
+     * @brief Nodo modificabile usato solo da daOrdinati, poi reso immutabile
+     */
+    private static final class Costruzione {
+        private final Contatto contatto;
+        private Costruzione sinistro;
+        private Costruzione destro;
+
+        Costruzione(Contatto contatto) {
+            this.contatto = contatto;
+        }
+
+        /**
+         * @brief Converte il sottoalbero in nodi immutabili senza ricorsione
+         * Un albero cartesiano può essere profondo quanto i contatti se le
+         * priorità sono sfortunate, quindi la visita usa una pila esplicita.
+         */
+        Nodo congela() {
+            ArrayDeque<Costruzione> daVisitare = new ArrayDeque<>();
+            ArrayDeque<Costruzione> postordine = new ArrayDeque<>();
+            daVisitare.push(this);
+            while (!daVisitare.isEmpty()) {
+                Costruzione c = daVisitare.pop();
+                postordine.push(c);
+                if (c.sinistro != null) {
+                    daVisitare.push(c.sinistro);
+                }
+                if (c.destro != null) {
+                    daVisitare.push(c.destro);
+                }
+            }
+            IdentityHashMap<Costruzione, Nodo> nodi = new IdentityHashMap<>();
+            Nodo ultimo = null;
+            while (!postordine.isEmpty()) {
+                Costruzione c = postordine.pop();
+                ultimo = new Nodo(c.contatto, nodi.remove(c.sinistro), nodi.remove(c.destro));
+                nodi.put(c, ultimo);
+            }
+            return ultimo;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import java.util.ArrayList;
+
+/**
+ * Misura la memoria occupata da un Contatto e la confronta con la rappresentazione
+ * precedente, con due liste di oggetti che contengono ciascuno una stringa. Non è un test JUnit:
+ * si esegue a mano, ad esempio con
+ * java -cp target/classes:target/test-classes it.unisa.se.project.datiAndStrutture.BenchmarkMemoriaContatto
+ *
+ * @author vgoff
+ */
+public class BenchmarkMemoriaContatto {
+    private static final int CONTATTI = 500_000;
+
+    /**
+     * NumeroTel ed Email come erano prima: un oggetto che contiene una stringa.
+     */
+    private static final class TestoPrecedente {
+        private static final TestoPrecedente VUOTO = new TestoPrecedente("");
+        private final String testo;
+
+        TestoPrecedente(String testo) {
+            this.testo = testo;
+        }
+    }
+
+    /**
+     * Contatto come era rappresentato prima dei campi compressi.
+     */
+    private static final class ContattoPrecedente {
+        private final int id;
+        private final String nome;
+        private final String cognome;
+        private final ArrayList<TestoPrecedente> numeriTel = new ArrayList<>(Contatto.TELEFONI_MAX);
+        private final ArrayList<TestoPrecedente> indirizziEmail = new ArrayList<>(Contatto.EMAIL_MAX);
+
+        ContattoPrecedente(int id, String nome, String cognome, TestoPrecedente num1, TestoPrecedente num2, TestoPrecedente num3,
+                TestoPrecedente mail1, TestoPrecedente mail2, TestoPrecedente mail3) {
+            this.id = id;
+            this.nome = nome;
+            this.cognome = cognome;
+            numeriTel.add(num1);
+            numeriTel.add(num2);
+            numeriTel.add(num3);
+            indirizziEmail.add(mail1);
+            indirizziEmail.add(mail2);
+            indirizziEmail.add(mail3);
+        }
+    }
+
+    public static void main(String[] args) {
+        //come dopo un caricamento da file: ogni campo è una stringa nuova, gli slot vuoti sono condivisi
+        Object[] precedenti = new Object[CONTATTI];
+        long prima = occupata();
+        for (int i = 0; i < CONTATTI; i++) {
+            precedenti[i] = new ContattoPrecedente(i + 1, "Nome" + i, "Cognome" + i,
+                    new TestoPrecedente("333" + (1000000 + i)), new TestoPrecedente("081" + (2000000 + i)), TestoPrecedente.VUOTO,
+                    new TestoPrecedente("utente" + i + "@esempio.it"), TestoPrecedente.VUOTO, TestoPrecedente.VUOTO);
+        }
+        long bytePrecedenti = occupata() - prima;
+        precedenti = null;
+
+        Object[] compatti = new Object[CONTATTI];
+        prima = occupata();
+        for (int i = 0; i < CONTATTI; i++) {
+            compatti[i] = new Contatto(i + 1, "Nome" + i, "Cognome" + i,
+                    new NumeroTel("333" + (1000000 + i)), new NumeroTel("081" + (2000000 + i)), NumeroTel.VUOTO,
+                    new Email("utente" + i + "@esempio.it"), Email.VUOTO, Email.VUOTO);
+        }
+        long byteCompatti = occupata() - prima;
+
+        System.out.printf("Rappresentazione precedente: %d byte per contatto%n", bytePrecedenti / CONTATTI);
+        System.out.printf("Rappresentazione compatta:   %d byte per contatto%n", byteCompatti / CONTATTI);
+        System.out.printf("Riduzione: %.1f%%%n", 100.0 * (bytePrecedenti - byteCompatti) / bytePrecedenti);
+        if (compatti.length != CONTATTI) {
+            throw new AssertionError();
+        }
+    }
+
+    private static long occupata() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Confronta la scansione sequenziale di cercaContatto con ScansioneParallela su
+ * rubriche di dimensioni crescenti, con query di uno e due caratteri che
+ * l'indice a trigrammi non serve. Stampa per ogni dimensione i due tempi e la
+ * più piccola da cui il percorso parallelo è più veloce di almeno il 10%: è il
+ * valore da passare a setSogliaScansioneParallela. Non è un test JUnit: si
+ * esegue a mano sulla macchina di destinazione, ad esempio con
+ * java -cp target/classes:target/test-classes it.unisa.se.project.datiAndStrutture.BenchmarkScansioneParallela
+ *
+ * @author vgoff
+ */
+public class BenchmarkScansioneParallela {
+    private static final int[] DIMENSIONI = {16_384, 65_536, 262_144, 1_048_576};
+    private static final String[] QUERY = {"a", "os", "3", "@g"};
+    private static final int RIPETIZIONI = 10;
+    private static final double GUADAGNO_MINIMO = 0.9;
+    private static final String[] NOMI = {"Mario", "Luca", "Anna", "Giulia", "Paolo", "Sara", "Marco", "Elena"};
+    private static final String[] COGNOMI = {"Rossi", "Russo", "Bianchi", "Romano", "Gallo", "Costa", "Greco", "Conti"};
+
+    public static void main(String[] args) {
+        System.out.printf("Thread del pool comune: %d%n", ForkJoinPool.getCommonPoolParallelism());
+        if (ForkJoinPool.getCommonPoolParallelism() < 2) {
+            System.out.println("Con un solo thread cercaContatto non usa mai il percorso parallelo");
+            return;
+        }
+        int soglia = 0;
+        for (int dimensione : DIMENSIONI) {
+            Rubrica rubrica = new Rubrica();
+            rubrica.aggiungiContatti(contatti(dimensione));
+
+            rubrica.setSogliaScansioneParallela(Integer.MAX_VALUE);
+            long sequenziale = misura(rubrica);
+            rubrica.setSogliaScansioneParallela(1);
+            long parallela = misura(rubrica);
+
+            System.out.printf("%,9d contatti: sequenziale %7.2f ms, parallela %7.2f ms%n",
+                    dimensione, sequenziale / 1e6, parallela / 1e6);
+            boolean conviene = parallela < sequenziale * GUADAGNO_MINIMO;
+            if (conviene && soglia == 0) {
+                soglia = dimensione;
+            } else if (!conviene) {
+                soglia = 0;
+            }
+        }
+        if (soglia == 0) {
+            System.out.println("La scansione parallela non conviene: lasciare la soglia predefinita");
+        } else {
+            System.out.printf("Soglia suggerita: setSogliaScansioneParallela(%d)%n", soglia);
+        }
+    }
+
+    private static List<Contatto> contatti(int n) {
+        List<Contatto> contatti = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String nome = NOMI[i % NOMI.length];
+            contatti.add(new Contatto(nome, COGNOMI[(i / NOMI.length) % COGNOMI.length] + i,
+                    new NumeroTel("3" + (330000000 + i)), NumeroTel.VUOTO, NumeroTel.VUOTO,
+                    new Email(nome.toLowerCase() + "." + i + "@gmail.com"), Email.VUOTO, Email.VUOTO));
+        }
+        return contatti;
+    }
+
+    /**
+     * Tempo medio di un giro di tutte le query, dopo altrettanti giri di riscaldamento.
+     */
+    private static long misura(Rubrica rubrica) {
+        int trovati = 0;
+        for (int r = 0; r < RIPETIZIONI; r++) {
+            for (String query : QUERY) {
+                trovati += rubrica.cercaContatto(query).size();
+            }
+        }
+        long inizio = System.nanoTime();
+        for (int r = 0; r < RIPETIZIONI; r++) {
+            for (String query : QUERY) {
+                trovati += rubrica.cercaContatto(query).size();
+            }
+        }
+        long tempo = (System.nanoTime() - inizio) / RIPETIZIONI;
+        if (trovati < 0) {
+            throw new AssertionError();
+        }
+        return tempo;
+    }
+}
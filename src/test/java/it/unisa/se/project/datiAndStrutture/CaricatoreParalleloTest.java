@@ -0,0 +1,106 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ *
+ * @author vgoff
+ */
+public class CaricatoreParalleloTest {
+    
+    public CaricatoreParalleloTest() {
+    }
+
+    private static List<CaricatoreParallelo.Pezzo> leggi(String testo) throws IOException {
+        Path file = Files.createTempFile("rubrica", ".csv");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Files.write(file, testo.getBytes(StandardCharsets.UTF_8));
+            try (FileChannel canale = FileChannel.open(file, StandardOpenOption.READ)) {
+                return CaricatoreParallelo.leggi(canale, pool);
+            }
+        } finally {
+            pool.shutdown();
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test of leggi method, of class CaricatoreParallelo.
+     */
+    @Test
+    public void testLeggi() throws IOException {
+        StringBuilder testo = new StringBuilder("﻿Nome,Cognome\r\n");
+        for (int i = 0; i < 200; i++) {
+            testo.append("Nome").append(i).append(",Cognome").append(199 - i).append("\r\n");
+        }
+        List<CaricatoreParallelo.Pezzo> pezzi = leggi(testo.toString());
+
+        assertNotNull(pezzi);
+        List<Contatto> righe = new ArrayList<>();
+        for (CaricatoreParallelo.Pezzo pezzo : pezzi) {
+            righe.addAll(pezzo.righe);
+        }
+        assertEquals(200, righe.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals("Nome" + i, righe.get(i).getNome());
+            assertEquals("Cognome" + (199 - i), righe.get(i).getCognome());
+        }
+    }
+
+    /**
+     * Test of leggi method with a quoted line break, of class CaricatoreParallelo.
+     */
+    @Test
+    public void testLeggiVirgoletteSulConfine() throws IOException {
+        StringBuilder testo = new StringBuilder("Nome,Cognome\n");
+        testo.append("Mario,\"");
+        for (int i = 0; i < 50; i++) {
+            testo.append("riga ").append(i).append('\n');
+        }
+        testo.append("\"\nLuigi,Verdi\n");
+
+        assertNull(leggi(testo.toString()));
+    }
+
+    /**
+     * Test of fondi method, of class CaricatoreParallelo.
+     */
+    @Test
+    public void testFondi() {
+        Contatto rossi1 = new Contatto("Mario", "Rossi", null, null, null, null, null, null);
+        Contatto rossi2 = new Contatto("Mario", "Rossi", null, null, null, null, null, null);
+        Contatto bianchi = new Contatto("Anna", "Bianchi", null, null, null, null, null, null);
+        Contatto verdi = new Contatto("Luigi", "Verdi", null, null, null, null, null, null);
+        List<CaricatoreParallelo.Pezzo> pezzi = Arrays.asList(
+                new CaricatoreParallelo.Pezzo(Arrays.asList(rossi1, verdi), Arrays.asList(rossi1, verdi), new BitSet()),
+                new CaricatoreParallelo.Pezzo(new ArrayList<>(), new ArrayList<>(), new BitSet()),
+                new CaricatoreParallelo.Pezzo(Arrays.asList(rossi2, bianchi), Arrays.asList(bianchi, rossi2), new BitSet()));
+
+        List<Contatto> fusi = CaricatoreParallelo.fondi(pezzi);
+
+        assertEquals(4, fusi.size());
+        assertSame(bianchi, fusi.get(0));
+        assertSame(rossi1, fusi.get(1));
+        assertSame(rossi2, fusi.get(2));
+        assertSame(verdi, fusi.get(3));
+    }
+}
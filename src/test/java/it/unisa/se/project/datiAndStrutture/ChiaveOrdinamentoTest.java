@@ -0,0 +1,58 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author vgoff
+ */
+public class ChiaveOrdinamentoTest {
+
+    public ChiaveOrdinamentoTest() {
+    }
+
+    private static int confronta(String cognome1, String nome1, String cognome2, String nome2) {
+        return Integer.signum(ChiaveOrdinamento.confronta(ChiaveOrdinamento.calcola(cognome1, nome1),
+                ChiaveOrdinamento.calcola(cognome2, nome2)));
+    }
+
+    /**
+     * Test of calcola and confronta methods, of class ChiaveOrdinamento.
+     */
+    @Test
+    public void testConfronta() {
+        assertEquals(0, confronta("Rossi", "Mario", "ROSSI", "mario"));
+        assertEquals(-1, confronta("Rossi", "Mario", "Verdi", "Anna"));
+        //il cognome conta prima del nome, anche quando uno è prefisso dell'altro
+        assertEquals(-1, confronta("Rossi", "Zeno", "Rossini", "Anna"));
+        assertEquals(1, confronta("Rossi", "Mario", "Rossi", "Luigi"));
+        //le lettere accentate stanno accanto a quelle senza accento
+        assertEquals(-1, confronta("Nicolo", "", "Nicol\u00f2", ""));
+        assertEquals(-1, confronta("Nicol\u00f2", "", "Nicolp", ""));
+        assertEquals(-1, confronta("\u00c0lberti", "", "Bianchi", ""));
+        assertEquals(0, confronta("", "", "", ""));
+    }
+
+    /**
+     * Test of compareTo after setCognome, of class Contatto.
+     */
+    @Test
+    public void testRinomina() {
+        Contatto a = new Contatto("Anna", "Zanetti", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                Email.VUOTO, Email.VUOTO, Email.VUOTO);
+        Contatto b = new Contatto("Bruno", "Longo", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                Email.VUOTO, Email.VUOTO, Email.VUOTO);
+        assertTrue(a.compareTo(b) > 0);
+        a.setCognome("\u00e9lite");
+        assertTrue(a.compareTo(b) < 0);
+        a.setNome("Bruno");
+        a.setCognome("longo");
+        assertEquals(0, a.compareTo(b));
+    }
+}
@@ -10,6 +10,8 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
 
 public class ContattoTest {
 
@@ -81,6 +83,54 @@ public class ContattoTest {
         assertTrue(emails.contains(email1));
     }
 
+    @Test
+    public void testNumeriNonCompressi() {
+        Contatto contatto = new Contatto("Anna", "Neri", new NumeroTel("interno 42"), NumeroTel.VUOTO, new NumeroTel("+39 333-1234567"),
+                Email.VUOTO, email2, null);
+        assertEquals("interno 42", contatto.getNumeroTel(0).toString());
+        assertSame(NumeroTel.VUOTO, contatto.getNumeroTel(1));
+        assertEquals("+39 333-1234567", contatto.getNumeroTel(2).toString());
+        assertSame(Email.VUOTO, contatto.getEmail(0));
+        assertEquals(email2, contatto.getEmail(1));
+        assertSame(Email.VUOTO, contatto.getEmail(2));
+
+        Contatto copia = new Contatto(contatto, 7);
+        assertEquals(contatto.getNumeriTel(), copia.getNumeriTel());
+        assertEquals(contatto.getIndirizziEmail(), copia.getIndirizziEmail());
+    }
+
+    @Test
+    public void testScriviTelefonoEmail() {
+        Contatto contatto = new Contatto("Anna", "Neri", new NumeroTel("interno 42"), NumeroTel.VUOTO, new NumeroTel("+39 333-1234567"),
+                Email.VUOTO, new Email("anna.neri@Unisa.it"), new Email("senza-dominio"));
+        StringBuilder testo = new StringBuilder();
+        for (int i = 0; i < Contatto.TELEFONI_MAX; i++) {
+            testo.setLength(0);
+            contatto.scriviTelefono(i, testo);
+            assertEquals(contatto.getNumeroTel(i).toString(), testo.toString());
+        }
+        for (int i = 0; i < Contatto.EMAIL_MAX; i++) {
+            testo.setLength(0);
+            contatto.scriviEmail(i, testo);
+            assertEquals(contatto.getEmail(i).toString(), testo.toString());
+        }
+        //il testo viene aggiunto in fondo
+        contatto.scriviEmail(1, testo.append('<'));
+        assertEquals("senza-dominio<anna.neri@Unisa.it", testo.toString());
+    }
+
+    @Test
+    public void testContiene() {
+        Contatto contatto = new Contatto("Anna", "Neri", new NumeroTel("interno 42"), NumeroTel.VUOTO, new NumeroTel("+39 333-1234567"),
+                Email.VUOTO, new Email("anna.neri@Unisa.it"), new Email("senza-dominio"));
+        for (String query : new String[]{"ann", "neri", "terno", "333-12", "+39", "unisa", "neri@un", "a.neri@unisa.it", "za-do"}) {
+            assertTrue(contatto.contiene(query), query);
+        }
+        for (String query : new String[]{"annx", "3331234567", "neri@x", "@unisa.itx", "dominio@"}) {
+            assertFalse(contatto.contiene(query), query);
+        }
+    }
+
     @Test
     public void testToString() {
         this.setUp();
@@ -110,4 +160,32 @@ public class ContattoTest {
         int result = contatto1.compareTo(contatto2);
         assertTrue(result > 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetId() {
+        this.setUp();
+        assertTrue(contatto1.getId() > 0);
+        assertNotEquals(contatto1.getId(), contatto3.getId());
+    }
+
+    @Test
+    public void testHashCodeStabile() {
+        Contatto senzaId = new Contatto(0, "Anna", "Neri", num1, NumeroTel.VUOTO, NumeroTel.VUOTO, email1, Email.VUOTO, Email.VUOTO);
+        assertNotEquals(0, senzaId.getId());
+        Set<Contatto> insieme = new HashSet<>();
+        insieme.add(senzaId);
+        Rubrica rubrica = new Rubrica();
+        rubrica.aggiungiContatto(senzaId);
+        assertTrue(insieme.contains(senzaId));
+        assertTrue(insieme.contains(rubrica.trovaPerId(senzaId.getId())));
+    }
+
+    @Test
+    public void testEquals() {
+        this.setUp();
+        Contatto copia = new Contatto(contatto2, contatto1.getId());
+        assertEquals(contatto1, copia);
+        assertEquals(contatto1.hashCode(), copia.hashCode());
+        assertNotEquals(contatto1, contatto3);
+    }
+}
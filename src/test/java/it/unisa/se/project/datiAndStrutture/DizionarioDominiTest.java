@@ -0,0 +1,73 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author vgoff
+ */
+public class DizionarioDominiTest {
+
+    public DizionarioDominiTest() {
+    }
+
+    /**
+     * Test of numero and dominio methods, of class DizionarioDomini.
+     */
+    @Test
+    public void testNumero() {
+        int numero = DizionarioDomini.numero("dizionario.example");
+        assertTrue(numero > DizionarioDomini.NESSUNO);
+        assertEquals(numero, DizionarioDomini.numero(new String("dizionario.example")));
+        assertEquals("dizionario.example", DizionarioDomini.dominio(numero));
+        assertEquals(numero, DizionarioDomini.cerca("dizionario.example"));
+        assertEquals(DizionarioDomini.NESSUNO, DizionarioDomini.cerca("mai.usato.example"));
+    }
+
+    /**
+     * Test of chiave method, of class DizionarioDomini.
+     */
+    @Test
+    public void testChiave() {
+        int maiuscolo = DizionarioDomini.numero("Chiave.EXAMPLE");
+        int minuscolo = DizionarioDomini.numero("chiave.example");
+        assertNotEquals(maiuscolo, minuscolo);
+        assertEquals("Chiave.EXAMPLE", DizionarioDomini.dominio(maiuscolo));
+        assertEquals(minuscolo, DizionarioDomini.chiave(maiuscolo));
+        assertEquals(minuscolo, DizionarioDomini.chiave(minuscolo));
+    }
+
+    /**
+     * Test of the ESTERNO fallback: a domain that did not fit in the full dictionary.
+     */
+    @Test
+    public void testDominioEsterno() {
+        Email esterna = new Email("utente", DizionarioDomini.ESTERNO, "Pieno.Example");
+        assertEquals("utente@Pieno.Example", esterna.toString());
+        assertEquals("Pieno.Example", esterna.getDominio());
+        assertEquals(esterna, new Email("utente", DizionarioDomini.ESTERNO, "Pieno.Example"));
+        assertNotEquals(esterna, new Email("utente", DizionarioDomini.ESTERNO, "altro.example"));
+
+        Contatto contatto = new Contatto("Anna", "Neri", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                Email.VUOTO, esterna, Email.VUOTO);
+        assertEquals(esterna, contatto.getEmail(1));
+        assertEquals("utente@Pieno.Example", contatto.testoEmail(1));
+        assertTrue(contatto.contiene("e@pieno.ex"));
+        StringBuilder testo = new StringBuilder();
+        contatto.scriviEmail(1, testo);
+        assertEquals("utente@Pieno.Example", testo.toString());
+
+        Rubrica rubrica = new Rubrica();
+        rubrica.aggiungiContatto(contatto);
+        assertEquals(1, rubrica.cercaPerDominio("PIENO.example").size());
+        assertEquals(1, rubrica.cercaContatto("pieno").size());
+        rubrica.rimuoviContatto(contatto);
+        assertTrue(rubrica.cercaPerDominio("pieno.example").isEmpty());
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ *
+ * @author vgoff
+ */
+public class ElencoContattiTest {
+    private ElencoContatti elenco;
+    
+    public ElencoContattiTest() {
+    }
+    
+    @BeforeEach
+    public void setUp() {
+        elenco = new ElencoContatti();
+    }
+
+    private static Contatto contatto(String nome, String cognome) {
+        return new Contatto(nome, cognome, new NumeroTel(""), new NumeroTel(""), new NumeroTel(""),
+                new Email(""), new Email(""), new Email(""));
+    }
+
+    private void assertOrdinato() {
+        for (int i = 1; i < elenco.size(); i++) {
+            assertTrue(elenco.get(i - 1).compareTo(elenco.get(i)) <= 0, "Elenco non ordinato in posizione " + i);
+        }
+    }
+
+    /**
+     * Test of inserisci method, of class ElencoContatti.
+     */
+    @Test
+    public void testInserisci() {
+        this.setUp();
+        Contatto verdi = contatto("Luigi", "Verdi");
+        Contatto rossi = contatto("Mario", "Rossi");
+        Contatto bianchi = contatto("Anna", "Bianchi");
+
+        assertEquals(0, elenco.inserisci(verdi));
+        assertEquals(0, elenco.inserisci(rossi));
+        assertEquals(0, elenco.inserisci(bianchi));
+
+        assertEquals(Arrays.asList(bianchi, rossi, verdi), new ArrayList<>(elenco));
+    }
+
+    /**
+     * Test of inserisci method, of class ElencoContatti, con molti inserimenti casuali.
+     */
+    @Test
+    public void testInserisciCasuale() {
+        this.setUp();
+        Random random = new Random(16);
+        List<Contatto> attesi = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Contatto c = contatto("N" + random.nextInt(50), "C" + random.nextInt(100));
+            elenco.inserisci(c);
+            attesi.add(c);
+            if (i % 7 == 0) {
+                Contatto daRimuovere = attesi.remove(random.nextInt(attesi.size()));
+                elenco.remove(elenco.indiceDi(daRimuovere));
+            }
+        }
+        Collections.sort(attesi);
+        assertEquals(attesi.size(), elenco.size());
+        assertOrdinato();
+        assertEquals(attesi.size(), elenco.toArray().length);
+    }
+
+    /**
+     * Test of indiceDi method, of class ElencoContatti, con contatti omonimi.
+     */
+    @Test
+    public void testIndiceDiOmonimi() {
+        this.setUp();
+        Contatto primo = contatto("Mario", "Rossi");
+        Contatto secondo = contatto("Mario", "Rossi");
+        Contatto terzo = contatto("Mario", "Rossi");
+        elenco.inserisci(terzo);
+        elenco.inserisci(secondo);
+        elenco.inserisci(primo);
+
+        //tra omonimi decide l'id, non l'ordine di inserimento
+        assertEquals(0, elenco.indiceDi(primo));
+        assertEquals(1, elenco.indiceDi(secondo));
+        assertEquals(2, elenco.indiceDi(terzo));
+        assertEquals(-1, elenco.indiceDi(contatto("Mario", "Rossi")));
+        assertEquals(-1, elenco.indiceDi(new Contatto(secondo, secondo.getId())));
+    }
+
+    /**
+     * Test of unisci method, of class ElencoContatti.
+     */
+    @Test
+    public void testUnisci() {
+        this.setUp();
+        Contatto rossi = contatto("Mario", "Rossi");
+        elenco.inserisci(contatto("Luigi", "Verdi"));
+        elenco.inserisci(rossi);
+
+        Contatto altroRossi = contatto("Mario", "Rossi");
+        elenco.unisci(Arrays.asList(contatto("Anna", "Bianchi"), altroRossi, contatto("Zoe", "Zanetti")));
+
+        assertEquals(5, elenco.size());
+        assertOrdinato();
+        assertEquals(1, elenco.indiceDi(rossi));
+        assertEquals(2, elenco.indiceDi(altroRossi));
+    }
+
+    /**
+     * Test of clear method, of class ElencoContatti.
+     */
+    @Test
+    public void testClear() {
+        this.setUp();
+        elenco.inserisci(contatto("Mario", "Rossi"));
+        elenco.clear();
+        assertTrue(elenco.isEmpty());
+        elenco.inserisci(contatto("Luigi", "Verdi"));
+        assertEquals(1, elenco.size());
+    }
+}
@@ -45,5 +45,31 @@ public class EmailTest {
         this.setUp();
         assertEquals(indirizzo, mail.toString());
     }
+
+    /**
+     * Test of equals method, of class Email.
+     */
+    @Test
+    public void testEquals() {
+        this.setUp();
+        assertEquals(mail, new Email(indirizzo));
+        assertEquals(mail.hashCode(), new Email(indirizzo).hashCode());
+        assertNotEquals(mail, Email.VUOTO);
+    }
+
+    /**
+     * Test of getParteLocale and getDominio methods, of class Email.
+     */
+    @Test
+    public void testParti() {
+        this.setUp();
+        assertEquals("v.goffredo", mail.getParteLocale());
+        assertEquals("studenti.unisa.it", mail.getDominio());
+        Email senzaDominio = new Email("senza-chiocciola");
+        assertEquals("senza-chiocciola", senzaDominio.getParteLocale());
+        assertNull(senzaDominio.getDominio());
+        assertEquals("senza-chiocciola", senzaDominio.toString());
+        assertEquals("", new Email("vuoto@").getDominio());
+    }
     
 }
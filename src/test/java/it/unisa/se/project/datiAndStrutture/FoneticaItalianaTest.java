@@ -0,0 +1,70 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author vgoff
+ */
+public class FoneticaItalianaTest {
+
+    public FoneticaItalianaTest() {
+    }
+
+    private static void stessoSuono(String a, String b) {
+        assertEquals(FoneticaItaliana.codifica(a), FoneticaItaliana.codifica(b), a + " / " + b);
+    }
+
+    private static void suonoDiverso(String a, String b) {
+        assertNotEquals(FoneticaItaliana.codifica(a), FoneticaItaliana.codifica(b), a + " / " + b);
+    }
+
+    /**
+     * Test of codifica method, of class FoneticaItaliana.
+     */
+    @Test
+    public void testCodifica() {
+        assertEquals("KAMPI", FoneticaItaliana.codifica("Campi"));
+        assertEquals("CAMPI", FoneticaItaliana.codifica("Ciampi"));
+        assertEquals("JORJO", FoneticaItaliana.codifica("Giorgio"));
+        assertEquals("XALA", FoneticaItaliana.codifica("Scialla"));
+        assertEquals("", FoneticaItaliana.codifica(" '-"));
+    }
+
+    /**
+     * Test of codifica method, of class FoneticaItaliana: names that sound the same.
+     */
+    @Test
+    public void testStessoSuono() {
+        stessoSuono("Gallo", "Galo");
+        stessoSuono("Ciccone", "Cicone");
+        stessoSuono("De Luca", "deluca");
+        stessoSuono("D'Angelo", "Dangelo");
+        stessoSuono("Acquaviva", "Aquaviva");
+        stessoSuono("Nicol\u00f2", "Nicolo");
+        stessoSuono("Chiara", "Kiara");
+        stessoSuono("Maggio", "Magio");
+        stessoSuono("Sciascia", "Sciasscia");
+        stessoSuono("Hassan", "Assan");
+        stessoSuono("Jacopo", "Iacopo");
+        stessoSuono("Filippo", "Phillipo");
+    }
+
+    /**
+     * Test of codifica method, of class FoneticaItaliana: names that sound different.
+     */
+    @Test
+    public void testSuonoDiverso() {
+        suonoDiverso("Rossi", "Rosso");
+        suonoDiverso("Cesare", "Chesare");
+        suonoDiverso("Gelo", "Ghelo");
+        suonoDiverso("Scena", "Schena");
+        suonoDiverso("Agnese", "Aglese");
+    }
+}
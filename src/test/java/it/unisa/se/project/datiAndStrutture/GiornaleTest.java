@@ -0,0 +1,92 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author vgoff
+ */
+public class GiornaleTest {
+    
+    public GiornaleTest() {
+    }
+
+    /**
+     * Test of annotaContatto, annotaRimozione and riproduci methods, of class Giornale.
+     */
+    @Test
+    public void testRiproduci() throws IOException {
+        Path file = Files.createTempFile("rubrica", ".giornale");
+        try {
+            Contatto c = new Contatto("Nicolò", "Rossi", new NumeroTel("123"), NumeroTel.VUOTO, NumeroTel.VUOTO,
+                    new Email("n@r.it"), Email.VUOTO, Email.VUOTO);
+            try (Giornale giornale = new Giornale(file, 0)) {
+                giornale.annotaContatto(c);
+                giornale.annotaRimozione(42);
+            }
+            long completo = Files.size(file);
+            //record lasciato a metà da un'interruzione
+            Files.write(file, new byte[]{0, 0, 0, 50, 1, 2}, StandardOpenOption.APPEND);
+
+            List<Contatto> contatti = new ArrayList<>();
+            List<Integer> rimossi = new ArrayList<>();
+            long validi = Giornale.riproduci(file, contatti::add, rimossi::add);
+
+            assertEquals(completo, validi);
+            assertEquals(1, contatti.size());
+            assertEquals(c.getId(), contatti.get(0).getId());
+            assertEquals("Nicolò", contatti.get(0).getNome());
+            assertEquals("123", contatti.get(0).getNumeroTel(0).toString());
+            assertSame(Email.VUOTO, contatti.get(0).getEmail(1));
+            assertEquals(1, rimossi.size());
+            assertEquals(42, rimossi.get(0).intValue());
+
+            new Giornale(file, validi).close();
+            assertEquals(completo, Files.size(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test of ruota method, of class Giornale.
+     */
+    @Test
+    public void testRuota() throws IOException {
+        Path file = Files.createTempFile("rubrica", ".giornale");
+        Path vecchio = file.resolveSibling(file.getFileName() + ".old");
+        try {
+            try (Giornale giornale = new Giornale(file, 0)) {
+                giornale.annotaRimozione(1);
+                giornale.ruota(vecchio);
+                assertEquals(0, giornale.dimensione());
+                giornale.annotaRimozione(2);
+                giornale.ruota(vecchio);
+                giornale.annotaRimozione(3);
+            }
+            List<Integer> rimossi = new ArrayList<>();
+            Giornale.riproduci(vecchio, c -> { }, rimossi::add);
+            Giornale.riproduci(file, c -> { }, rimossi::add);
+            assertEquals(3, rimossi.size());
+            assertEquals(1, rimossi.get(0).intValue());
+            assertEquals(2, rimossi.get(1).intValue());
+            assertEquals(3, rimossi.get(2).intValue());
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(vecchio);
+        }
+    }
+}
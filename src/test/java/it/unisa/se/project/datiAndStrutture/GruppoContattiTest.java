@@ -0,0 +1,82 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author vgoff
+ */
+public class GruppoContattiTest {
+
+    public GruppoContattiTest() {
+    }
+
+    private static List<Contatto> contatti(int n) {
+        List<Contatto> contatti = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            contatti.add(new Contatto("Mario", "Rossi" + i, NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                    Email.VUOTO, Email.VUOTO, Email.VUOTO));
+        }
+        return contatti;
+    }
+
+    private static int conta(GruppoContatti gruppo) {
+        int n = 0;
+        for (Contatto c : gruppo) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Test of aggiungi and rimuovi methods, of class GruppoContatti.
+     */
+    @Test
+    public void testAggiungiRimuovi() {
+        GruppoContatti gruppo = new GruppoContatti();
+        List<Contatto> contatti = contatti(3);
+        for (Contatto c : contatti) {
+            gruppo.aggiungi(c);
+        }
+        gruppo.rimuovi(contatti.get(0));
+        assertEquals(2, conta(gruppo));
+        for (Contatto c : gruppo) {
+            assertNotSame(contatti.get(0), c);
+        }
+        gruppo.rimuovi(contatti.get(1));
+        gruppo.rimuovi(contatti.get(2));
+        assertTrue(gruppo.vuoto());
+    }
+
+    /**
+     * Test of GruppoContatti beyond LIMITE_ARRAY contacts.
+     */
+    @Test
+    public void testGruppoGrande() {
+        GruppoContatti gruppo = new GruppoContatti();
+        List<Contatto> contatti = contatti(3 * GruppoContatti.LIMITE_ARRAY);
+        for (Contatto c : contatti) {
+            gruppo.aggiungi(c);
+        }
+        assertEquals(contatti.size(), conta(gruppo));
+        for (int i = 0; i < contatti.size(); i += 2) {
+            gruppo.rimuovi(contatti.get(i));
+        }
+        assertEquals(contatti.size() / 2, conta(gruppo));
+        for (Contatto c : gruppo) {
+            assertEquals(1, contatti.indexOf(c) % 2);
+        }
+        for (int i = 1; i < contatti.size(); i += 2) {
+            gruppo.rimuovi(contatti.get(i));
+        }
+        assertTrue(gruppo.vuoto());
+    }
+}
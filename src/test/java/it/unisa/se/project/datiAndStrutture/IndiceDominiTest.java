@@ -0,0 +1,57 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author vgoff
+ */
+public class IndiceDominiTest {
+    private IndiceDomini indice;
+    private Contatto studente;
+    private Contatto docente;
+
+    public IndiceDominiTest() {
+    }
+
+    @BeforeEach
+    public void setUp() {
+        indice = new IndiceDomini();
+        studente = new Contatto("Anna", "Russo", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                new Email("a.russo@studenti.unisa.it"), new Email("anna@Unisa.it"), new Email("anna.russo@unisa.it"));
+        docente = new Contatto("Paolo", "Gallo", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                new Email("pgallo@unisa.it"), new Email("senza-dominio"), Email.VUOTO);
+        indice.aggiungi(studente);
+        indice.aggiungi(docente);
+    }
+
+    /**
+     * Test of contatti method, of class IndiceDomini.
+     */
+    @Test
+    public void testContatti() {
+        int[] trovati = indice.contatti("UNISA.IT");
+        assertArrayEquals(new int[] {studente.getId(), docente.getId()}, trovati);
+        assertArrayEquals(new int[] {studente.getId()}, indice.contatti("studenti.unisa.it"));
+        assertEquals(0, indice.contatti("esempio.mai.visto").length);
+    }
+
+    /**
+     * Test of rimuovi method, of class IndiceDomini.
+     */
+    @Test
+    public void testRimuovi() {
+        indice.rimuovi(studente);
+        assertArrayEquals(new int[] {docente.getId()}, indice.contatti("unisa.it"));
+        assertEquals(0, indice.contatti("studenti.unisa.it").length);
+        indice.svuota();
+        assertEquals(0, indice.contatti("unisa.it").length);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author vgoff
+ */
+public class IndiceFoneticoTest {
+    private IndiceFonetico indice;
+    private Contatto gallo;
+    private Contatto galli;
+
+    public IndiceFoneticoTest() {
+    }
+
+    @BeforeEach
+    public void setUp() {
+        indice = new IndiceFonetico();
+        gallo = new Contatto("Chiara", "Gallo", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                Email.VUOTO, Email.VUOTO, Email.VUOTO);
+        galli = new Contatto("Galli", "Galli", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                Email.VUOTO, Email.VUOTO, Email.VUOTO);
+        indice.aggiungi(gallo);
+        indice.aggiungi(galli);
+    }
+
+    /**
+     * Test of cerca method, of class IndiceFonetico.
+     */
+    @Test
+    public void testCerca() {
+        assertEquals(Arrays.asList(gallo), indice.cerca(FoneticaItaliana.codifica("Galo")));
+        assertEquals(Arrays.asList(gallo), indice.cerca(FoneticaItaliana.codifica("Kiara")));
+        //nome e cognome con lo stesso codice: il contatto compare una volta sola
+        assertEquals(Arrays.asList(galli), indice.cerca(FoneticaItaliana.codifica("Gali")));
+        assertTrue(indice.cerca(FoneticaItaliana.codifica("Rossi")).isEmpty());
+    }
+
+    /**
+     * Test of rimuovi method, of class IndiceFonetico.
+     */
+    @Test
+    public void testRimuovi() {
+        indice.rimuovi(gallo);
+        assertTrue(indice.cerca(FoneticaItaliana.codifica("Gallo")).isEmpty());
+        assertTrue(indice.cerca(FoneticaItaliana.codifica("Chiara")).isEmpty());
+        indice.rimuovi(galli);
+        indice.rimuovi(galli);
+        assertTrue(indice.cerca(FoneticaItaliana.codifica("Galli")).isEmpty());
+        indice.aggiungi(gallo);
+        indice.svuota();
+        assertTrue(indice.cerca(FoneticaItaliana.codifica("Gallo")).isEmpty());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author vgoff
+ */
+public class IndiceNumeriTest {
+    private IndiceNumeri indice;
+
+    public IndiceNumeriTest() {
+    }
+
+    @BeforeEach
+    public void setUp() {
+        indice = new IndiceNumeri();
+    }
+
+    private static Contatto contatto(String cognome, String... numeri) {
+        NumeroTel[] tel = {NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO};
+        for (int i = 0; i < numeri.length; i++) {
+            tel[i] = new NumeroTel(numeri[i]);
+        }
+        return new Contatto("Mario", cognome, tel[0], tel[1], tel[2], Email.VUOTO, Email.VUOTO, Email.VUOTO);
+    }
+
+    /**
+     * Test of primo and tutti methods, of class IndiceNumeri.
+     */
+    @Test
+    public void testPrimo() {
+        Contatto casa = contatto("Rossi", "089 123456", "+39 089 123456", "333 7654321");
+        Contatto centralino = contatto("Verdi", "0039089123456");
+        indice.aggiungi(casa);
+        indice.aggiungi(centralino);
+
+        assertSame(casa, indice.primo(NumeroTel.chiave("3337654321")));
+        assertNull(indice.primo(NumeroTel.chiave("3337654322")));
+        //lo stesso numero scritto due volte nello stesso contatto conta una volta sola
+        assertEquals(new HashSet<>(Arrays.asList(casa, centralino)),
+                new HashSet<>(indice.tutti(NumeroTel.chiave("089123456"))));
+        assertEquals(2, indice.tutti(NumeroTel.chiave("089123456")).size());
+    }
+
+    /**
+     * Test of rimuovi method, of class IndiceNumeri, with enough numbers to make the table grow.
+     */
+    @Test
+    public void testRimuovi() {
+        List<Contatto> contatti = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            //numeri vicini e alcuni condivisi, per avere sequenze lunghe di posti occupati
+            Contatto c = contatto("C" + i, String.valueOf(3330000000L + i), String.valueOf(3330000000L + i / 3));
+            contatti.add(c);
+            indice.aggiungi(c);
+        }
+        for (int i = 0; i < contatti.size(); i += 2) {
+            indice.rimuovi(contatti.get(i));
+        }
+        for (int i = 0; i < contatti.size(); i++) {
+            Contatto c = contatti.get(i);
+            long chiave = NumeroTel.chiave(c.testoTelefono(0));
+            if (i % 2 == 0) {
+                assertFalse(indice.tutti(chiave).contains(c));
+            } else {
+                assertTrue(indice.tutti(chiave).contains(c));
+                assertNotNull(indice.primo(chiave));
+            }
+        }
+        indice.svuota();
+        assertNull(indice.primo(NumeroTel.chiave("3330000001")));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ *
+ * @author vgoff
+ */
+public class IndicePrefissiTest {
+    private IndicePrefissi indice;
+    private Contatto rossi;
+    private Contatto rossini;
+    
+    public IndicePrefissiTest() {
+    }
+    
+    @BeforeEach
+    public void setUp() {
+        indice = new IndicePrefissi();
+        rossi = new Contatto("Mario", "Rossi", new NumeroTel(""), new NumeroTel(""), new NumeroTel(""),
+                new Email("m.rossi@unisa.it"), new Email(""), new Email(""));
+        rossini = new Contatto("Gioacchino", "Rossini", new NumeroTel(""), new NumeroTel(""), new NumeroTel(""),
+                new Email("gioacchino@pesaro.it"), new Email(""), new Email(""));
+        indice.aggiungi(rossi);
+        indice.aggiungi(rossini);
+    }
+
+    /**
+     * Test of completamenti method, of class IndicePrefissi.
+     */
+    @Test
+    public void testCompletamenti() {
+        this.setUp();
+        assertEquals(Arrays.asList("Rossi", "Rossini"), indice.completamenti("ROS", 8));
+        assertEquals(Arrays.asList("Rossi"), indice.completamenti("ros", 1));
+        assertEquals(Arrays.asList("m.rossi", "Mario"), indice.completamenti("m", 8));
+        assertTrue(indice.completamenti("unisa", 8).isEmpty());
+    }
+
+    /**
+     * Test of cerca method, of class IndicePrefissi.
+     */
+    @Test
+    public void testCerca() {
+        this.setUp();
+        assertEquals(2, indice.cerca("ross").size());
+        assertEquals(1, indice.cerca("gio").size());
+        assertTrue(indice.cerca("gio").contains(rossini));
+    }
+
+    /**
+     * Test of rimuovi method, of class IndicePrefissi.
+     */
+    @Test
+    public void testRimuovi() {
+        this.setUp();
+        indice.rimuovi(rossi);
+        assertEquals(Arrays.asList("Rossini"), indice.completamenti("ross", 8));
+        assertTrue(indice.cerca("mario").isEmpty());
+    }
+
+    /**
+     * Test of rimuovi method, of class IndicePrefissi, con la stessa chiave scritta in modi diversi.
+     */
+    @Test
+    public void testRimuoviScrittura() {
+        this.setUp();
+        Contatto maiuscolo = new Contatto("Anna", "ROSSI", new NumeroTel(""), new NumeroTel(""), new NumeroTel(""),
+                new Email(""), new Email(""), new Email(""));
+        Contatto altroRossi = new Contatto("Luca", "Rossi", new NumeroTel(""), new NumeroTel(""), new NumeroTel(""),
+                new Email(""), new Email(""), new Email(""));
+        indice.aggiungi(maiuscolo);
+        indice.aggiungi(altroRossi);
+        //un altro contatto scrive ancora la chiave come quello rimosso
+        indice.rimuovi(rossi);
+        assertEquals(Arrays.asList("Rossi", "Rossini"), indice.completamenti("ross", 8));
+        //nessuno la scrive più così: passa a quella di un contatto rimasto
+        indice.rimuovi(altroRossi);
+        assertEquals(Arrays.asList("ROSSI", "Rossini"), indice.completamenti("ross", 8));
+    }
+
+    /**
+     * Test of vicini method, of class IndicePrefissi.
+     */
+    @Test
+    public void testVicini() {
+        Map<Contatto, Integer> vicini = indice.vicini("rosi", 1, Integer.MAX_VALUE);
+        assertEquals(1, vicini.size());
+        assertEquals(Integer.valueOf(1), vicini.get(rossi));
+        assertEquals(Integer.valueOf(0), indice.vicini("mario", 2, Integer.MAX_VALUE).get(rossi));
+        //le parti locali delle email non contano
+        assertTrue(indice.vicini("gioachino", 0, Integer.MAX_VALUE).isEmpty());
+        assertEquals(Integer.valueOf(1), indice.vicini("gioachino", 1, Integer.MAX_VALUE).get(rossini));
+        assertEquals(2, indice.vicini("rossin", 1, Integer.MAX_VALUE).size());
+        //il limite ferma la raccolta dopo la distanza che lo raggiunge
+        assertEquals(1, indice.vicini("rossi", 1, 1).size());
+        assertEquals(1, indice.vicini("rossix", 2, 1).size());
+        assertEquals(2, indice.vicini("rossix", 2, 2).size());
+    }
+
+    /**
+     * Test of vicini method, of class IndicePrefissi, against a direct computation of the distance.
+     */
+    @Test
+    public void testViciniCasuali() {
+        Random caso = new Random(24);
+        List<Contatto> tutti = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Contatto c = new Contatto(parola(caso), parola(caso), NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                    Email.VUOTO, Email.VUOTO, Email.VUOTO);
+            tutti.add(c);
+            indice.aggiungi(c);
+        }
+        for (int q = 0; q < 50; q++) {
+            String parola = parola(caso).toLowerCase();
+            Map<Contatto, Integer> vicini = indice.vicini(parola, 2, Integer.MAX_VALUE);
+            for (Contatto c : tutti) {
+                int distanza = Math.min(levenshtein(parola, c.getNome().toLowerCase()),
+                        levenshtein(parola, c.getCognome().toLowerCase()));
+                assertEquals(distanza <= 2 ? Integer.valueOf(distanza) : null, vicini.get(c), parola + " " + c);
+                assertEquals(Math.min(distanza, 3), Math.min(IndicePrefissi.distanza(parola, c.getNome().toLowerCase(), 2),
+                        IndicePrefissi.distanza(parola, c.getCognome().toLowerCase(), 2)));
+            }
+        }
+    }
+
+    private static String parola(Random caso) {
+        char[] lettere = new char[2 + caso.nextInt(6)];
+        for (int i = 0; i < lettere.length; i++) {
+            lettere[i] = "abcdeR\u00f2".charAt(caso.nextInt(7));
+        }
+        return new String(lettere);
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                d[i][j] = i == 0 ? j : j == 0 ? i : Math.min(d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
+                        Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
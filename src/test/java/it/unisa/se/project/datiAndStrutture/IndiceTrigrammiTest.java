@@ -0,0 +1,68 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author vgoff
+ */
+public class IndiceTrigrammiTest {
+    private IndiceTrigrammi indice;
+    private Contatto rossi;
+    private Contatto verdi;
+    
+    public IndiceTrigrammiTest() {
+    }
+    
+    @BeforeEach
+    public void setUp() {
+        indice = new IndiceTrigrammi();
+        rossi = new Contatto("Mario", "Rossi", new NumeroTel("3331234567"), new NumeroTel(""), new NumeroTel(""),
+                new Email("mario.rossi@unisa.it"), new Email(""), new Email(""));
+        verdi = new Contatto("Luigi", "Verdi", new NumeroTel("0891234"), new NumeroTel(""), new NumeroTel(""),
+                new Email("luigi@unisa.it"), new Email(""), new Email(""));
+        indice.aggiungi(rossi);
+        indice.aggiungi(verdi);
+    }
+
+    /**
+     * Test of trigrammi method, of class IndiceTrigrammi.
+     */
+    @Test
+    public void testTrigrammi() {
+        this.setUp();
+        assertEquals(0, IndiceTrigrammi.trigrammi("ab").length);
+        assertEquals(3, IndiceTrigrammi.trigrammi("rossi").length);
+        assertEquals(1, IndiceTrigrammi.trigrammi("aaaa").length);
+    }
+
+    /**
+     * Test of candidati method, of class IndiceTrigrammi.
+     */
+    @Test
+    public void testCandidati() {
+        this.setUp();
+        assertArrayEquals(new int[]{rossi.getId()}, indice.candidati("ross"));
+        assertArrayEquals(new int[]{rossi.getId(), verdi.getId()}, indice.candidati("unisa"));
+        assertArrayEquals(new int[]{rossi.getId(), verdi.getId()}, indice.candidati("1234"));
+        assertEquals(0, indice.candidati("bianchi").length);
+    }
+
+    /**
+     * Test of rimuovi method, of class IndiceTrigrammi.
+     */
+    @Test
+    public void testRimuovi() {
+        this.setUp();
+        indice.rimuovi(rossi);
+        assertArrayEquals(new int[]{verdi.getId()}, indice.candidati("unisa"));
+        assertEquals(0, indice.candidati("ross").length);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * @author vgoff
+ */
+public class LettoreCsvTest {
+    
+    public LettoreCsvTest() {
+    }
+
+    private static LettoreCsv lettore(String testo) {
+        return lettore(testo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static LettoreCsv lettore(byte[] dati) {
+        return new LettoreCsv(Channels.newChannel(new ByteArrayInputStream(dati)));
+    }
+
+    /**
+     * Test of prossimaRiga method, of class LettoreCsv.
+     */
+    @Test
+    public void testProssimaRiga() throws IOException {
+        LettoreCsv lettore = lettore("Mario, Rossi ,123\nLuigi,Verdi\n");
+
+        assertTrue(lettore.prossimaRiga());
+        assertEquals(3, lettore.numeroCampi());
+        assertEquals("Mario", lettore.campo(0));
+        assertEquals("Rossi", lettore.campo(1));
+        assertEquals("123", lettore.campo(2));
+
+        assertTrue(lettore.prossimaRiga());
+        assertEquals("Verdi", lettore.campo(1));
+        assertEquals("", lettore.campo(2));
+
+        assertFalse(lettore.prossimaRiga());
+    }
+
+    /**
+     * Test of prossimaRiga method, of class LettoreCsv, con campi tra virgolette.
+     */
+    @Test
+    public void testVirgolette() throws IOException {
+        LettoreCsv lettore = lettore("\"Rossi, Mario\",\"Detto \"\"Il Grande\"\"\",\"riga1\r\nriga2\", \" spazi \"\r\nfine");
+
+        assertTrue(lettore.prossimaRiga());
+        assertEquals("Rossi, Mario", lettore.campo(0));
+        assertEquals("Detto \"Il Grande\"", lettore.campo(1));
+        assertEquals("riga1\r\nriga2", lettore.campo(2));
+        assertEquals(" spazi ", lettore.campo(3));
+
+        assertTrue(lettore.prossimaRiga());
+        assertEquals("fine", lettore.campo(0));
+        assertFalse(lettore.prossimaRiga());
+    }
+
+    /**
+     * Test of prossimaRiga method, of class LettoreCsv, con BOM e caratteri accentati.
+     */
+    @Test
+    public void testBomEUtf8() throws IOException {
+        byte[] testo = "Niccolò,Più\n".getBytes(StandardCharsets.UTF_8);
+        byte[] conBom = new byte[testo.length + 3];
+        conBom[0] = (byte) 0xEF;
+        conBom[1] = (byte) 0xBB;
+        conBom[2] = (byte) 0xBF;
+        System.arraycopy(testo, 0, conBom, 3, testo.length);
+
+        LettoreCsv lettore = lettore(conBom);
+        assertTrue(lettore.prossimaRiga());
+        assertEquals("Niccolò", lettore.campo(0));
+        assertEquals("Più", lettore.campo(1));
+        assertEquals(conBom.length, lettore.byteLetti());
+    }
+
+    /**
+     * Test of prossimaRiga method, of class LettoreCsv, con campi oltre il blocco di lettura.
+     */
+    @Test
+    public void testRigheLunghe() throws IOException {
+        StringBuilder lungo = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            lungo.append((char) ('a' + i % 26));
+        }
+        LettoreCsv lettore = lettore(lungo + "," + lungo + "\r\nx\r\n");
+        assertTrue(lettore.prossimaRiga());
+        assertEquals(lungo.toString(), lettore.campo(1));
+        assertTrue(lettore.prossimaRiga());
+        assertEquals("x", lettore.campo(0));
+        assertFalse(lettore.prossimaRiga());
+    }
+}
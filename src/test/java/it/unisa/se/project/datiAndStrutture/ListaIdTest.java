@@ -0,0 +1,113 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author vgoff
+ */
+public class ListaIdTest {
+
+    public ListaIdTest() {
+    }
+
+    private static int[] comeArray(TreeSet<Integer> attesi) {
+        return attesi.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Test of aggiungi and rimuovi methods, of class ListaId.
+     */
+    @Test
+    public void testAggiungiRimuovi() {
+        ListaId lista = new ListaId();
+        lista.aggiungi(7);
+        lista.aggiungi(3);
+        lista.aggiungi(7);
+        lista.aggiungi(70000);
+        assertEquals(3, lista.dimensione());
+        assertArrayEquals(new int[]{3, 7, 70000}, lista.comeArray());
+
+        assertTrue(lista.rimuovi(7));
+        assertFalse(lista.rimuovi(7));
+        assertFalse(lista.rimuovi(123456));
+        assertTrue(lista.contiene(70000));
+        assertFalse(lista.contiene(7));
+        assertArrayEquals(new int[]{3, 70000}, lista.comeArray());
+    }
+
+    /**
+     * Test of ListaId when a block switches between array and bitmap.
+     */
+    @Test
+    public void testBloccoDenso() {
+        ListaId lista = new ListaId();
+        TreeSet<Integer> attesi = new TreeSet<>();
+        //in ordine inverso, così ogni inserimento nell'array sposta gli altri
+        for (int id = 2 * ListaId.LIMITE_ARRAY; id > 0; id--) {
+            lista.aggiungi(id);
+            attesi.add(id);
+        }
+        assertArrayEquals(comeArray(attesi), lista.comeArray());
+
+        for (int id = 1; id <= 2 * ListaId.LIMITE_ARRAY; id += 2) {
+            assertTrue(lista.rimuovi(id));
+            attesi.remove(id);
+        }
+        for (int id = 2; id <= 2 * ListaId.LIMITE_ARRAY; id += 4) {
+            assertTrue(lista.rimuovi(id));
+            attesi.remove(id);
+        }
+        assertEquals(attesi.size(), lista.dimensione());
+        assertArrayEquals(comeArray(attesi), lista.comeArray());
+        for (int id = 0; id <= 2 * ListaId.LIMITE_ARRAY + 1; id++) {
+            assertEquals(attesi.contains(id), lista.contiene(id));
+        }
+    }
+
+    /**
+     * Test of ListaId against a TreeSet, with random operations.
+     */
+    @Test
+    public void testCasuale() {
+        Random caso = new Random(16);
+        ListaId lista = new ListaId();
+        TreeSet<Integer> attesi = new TreeSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            //pochi blocchi affollati e qualche id negativo, letto da un file
+            int id = caso.nextInt(300_000) - 1000;
+            if (caso.nextInt(3) == 0) {
+                assertEquals(attesi.remove(id), lista.rimuovi(id));
+            } else {
+                lista.aggiungi(id);
+                attesi.add(id);
+            }
+        }
+        assertEquals(attesi.size(), lista.dimensione());
+        assertArrayEquals(comeArray(attesi), lista.comeArray());
+    }
+
+    /**
+     * Test of filtra method, of class ListaId.
+     */
+    @Test
+    public void testFiltra() {
+        ListaId lista = new ListaId();
+        for (int id = 0; id < 200_000; id += 3) {
+            lista.aggiungi(id);
+        }
+        int[] candidati = {-5, 0, 1, 3, 65535, 65538, 131074, 199998, 250000};
+        int n = lista.filtra(candidati, candidati.length);
+        assertEquals(5, n);
+        assertArrayEquals(new int[]{0, 3, 65535, 65538, 199998}, Arrays.copyOf(candidati, n));
+    }
+}
@@ -42,5 +42,45 @@ public class NumeroTelTest {
         this.setUp();
         assertEquals(numero, num.toString());
     }
+
+    /**
+     * Test of equals method, of class NumeroTel.
+     */
+    @Test
+    public void testEquals() {
+        this.setUp();
+        assertEquals(num, new NumeroTel(numero));
+        assertEquals(num.hashCode(), new NumeroTel(numero).hashCode());
+        assertNotEquals(num, new NumeroTel("383383839"));
+    }
+
+    /**
+     * Test of comprimi and espandi methods, of class NumeroTel.
+     */
+    @Test
+    public void testComprimi() {
+        for (String testo : new String[] {"", "0", "383383838", "+39 333-1234567", "000000000000000"}) {
+            long compresso = NumeroTel.comprimi(testo);
+            assertNotEquals(NumeroTel.NON_COMPRESSO, compresso);
+            assertEquals(testo, NumeroTel.espandi(compresso));
+        }
+        assertEquals(0L, NumeroTel.comprimi(""));
+        assertEquals(NumeroTel.NON_COMPRESSO, NumeroTel.comprimi("0000000000000000"));
+        assertEquals(NumeroTel.NON_COMPRESSO, NumeroTel.comprimi("interno 12"));
+    }
     
+    /**
+     * Test of getNormalizzato method, of class NumeroTel.
+     */
+    @Test
+    public void testGetNormalizzato() {
+        assertEquals("089123456", new NumeroTel("+39 089 123456").getNormalizzato());
+        assertEquals("089123456", new NumeroTel("0039 089-123456").getNormalizzato());
+        assertEquals("089123456", new NumeroTel("(089) 12.34.56").getNormalizzato());
+        assertEquals("0044201234", new NumeroTel("+44 20 1234").getNormalizzato());
+        assertEquals("", new NumeroTel("interno 42").getNormalizzato());
+        assertEquals("", new NumeroTel("+").getNormalizzato());
+        assertEquals("", NumeroTel.VUOTO.getNormalizzato());
+        assertEquals(NumeroTel.chiave("3331234567"), NumeroTel.chiave("+39 333 123 4567"));
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author vgoff
+ */
+public class PoolStringheTest {
+
+    public PoolStringheTest() {
+    }
+
+    /**
+     * Test of canonica method, of class PoolStringhe.
+     */
+    @Test
+    public void testCanonica() {
+        PoolStringhe pool = new PoolStringhe(16);
+        pool.setStatistiche(true);
+        String primo = new String("Esposito");
+        String secondo = new String("Esposito");
+        assertSame(primo, pool.canonica(primo));
+        assertSame(primo, pool.canonica(secondo));
+        assertNull(pool.canonica(null));
+        assertEquals("", pool.canonica(""));
+
+        assertEquals(2, pool.getRichieste());
+        assertEquals(1, pool.getRiusi());
+        //String da 24 byte e array da 16 byte più 8 caratteri, da uno o due byte
+        assertEquals(24 + (PoolStringhe.STRINGHE_COMPATTE ? 24 : 32), pool.getByteRisparmiati());
+        pool.azzeraStatistiche();
+        assertEquals(0, pool.getRichieste());
+        assertSame(primo, pool.canonica(new String("Esposito")));
+    }
+
+    /**
+     * Test of canonica method with the statistics off, of class PoolStringhe.
+     */
+    @Test
+    public void testStatisticheSpente() {
+        PoolStringhe pool = new PoolStringhe(16);
+        String primo = new String("Esposito");
+        pool.canonica(primo);
+        assertSame(primo, pool.canonica(new String("Esposito")));
+        assertEquals(0, pool.getRichieste());
+        assertEquals(0, pool.getRiusi());
+        assertEquals(0, pool.getByteRisparmiati());
+    }
+
+    /**
+     * Test of canonica method with a full pool, of class PoolStringhe.
+     */
+    @Test
+    public void testCanonicaPoolPieno() {
+        PoolStringhe pool = new PoolStringhe(1);
+        String rossi = new String("Rossi");
+        String bianchi = new String("Bianchi");
+        pool.canonica(rossi);
+        //l'unico posto passa a bianchi: rossi non viene più condiviso
+        assertSame(bianchi, pool.canonica(bianchi));
+        String altroRossi = new String("Rossi");
+        assertSame(altroRossi, pool.canonica(altroRossi));
+        assertThrows(IllegalArgumentException.class, () -> new PoolStringhe(0));
+    }
+
+    /**
+     * Test of the shared pool used by Contatto.
+     */
+    @Test
+    public void testContattiCondividonoCognome() {
+        Contatto primo = new Contatto(new String("Anna"), new String("Ferrara"), NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                Email.VUOTO, Email.VUOTO, Email.VUOTO);
+        Contatto secondo = new Contatto(new String("Luca"), new String("Ferrara"), NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                Email.VUOTO, Email.VUOTO, Email.VUOTO);
+        assertSame(primo.getCognome(), secondo.getCognome());
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author vgoff
+ */
+public class RubricaConcorrenteTest {
+    private static final int SCRITTORI = 4;
+    private static final int CONTATTI_PER_SCRITTORE = 300;
+    private static final int LETTORI = 3;
+
+    private RubricaConcorrente rubrica;
+
+    @TempDir
+    Path cartella;
+
+    public RubricaConcorrenteTest() {
+    }
+
+    @BeforeEach
+    public void setUp() {
+        rubrica = new RubricaConcorrente();
+    }
+
+    private static Contatto contatto(String nome, String cognome) {
+        return new Contatto(nome, cognome, new NumeroTel("333" + cognome.hashCode()), NumeroTel.VUOTO, NumeroTel.VUOTO,
+                Email.VUOTO, Email.VUOTO, Email.VUOTO);
+    }
+
+    /**
+     * Every public method of Rubrica must go through the internal rubrica.
+     */
+    @Test
+    public void testRidefinisceTuttiIMetodi() throws NoSuchMethodException {
+        for (Method m : Rubrica.class.getDeclaredMethods()) {
+            if (Modifier.isPublic(m.getModifiers()) && !Modifier.isStatic(m.getModifiers())) {
+                Method ridefinito = RubricaConcorrente.class.getMethod(m.getName(), m.getParameterTypes());
+                assertEquals(RubricaConcorrente.class, ridefinito.getDeclaringClass(), m.getName());
+            }
+        }
+    }
+
+    /**
+     * Stress test: concurrent writers, bulk imports and readers.
+     * No update is lost and no reader ever sees an unsorted or duplicated list.
+     */
+    @Test
+    public void testNessunaModificaPersa() throws InterruptedException {
+        long inizio = rubrica.checkpoint();
+        AtomicBoolean fine = new AtomicBoolean();
+        ConcurrentLinkedQueue<Throwable> errori = new ConcurrentLinkedQueue<>();
+        AtomicInteger letture = new AtomicInteger();
+        CountDownLatch via = new CountDownLatch(1);
+        List<Thread> thread = new ArrayList<>();
+        List<Map<Integer, Contatto>> attesi = new ArrayList<>();
+
+        for (int s = 0; s < SCRITTORI; s++) {
+            final int scrittore = s;
+            Map<Integer, Contatto> miei = new HashMap<>();
+            attesi.add(miei);
+            thread.add(new Thread(() -> {
+                try {
+                    via.await();
+                    for (int i = 0; i < CONTATTI_PER_SCRITTORE; i++) {
+                        Contatto c = contatto("Nome" + i, "S" + scrittore + "C" + i);
+                        rubrica.aggiungiContatto(c);
+                        Contatto modificato = rubrica.modificaContatto(c, contatto("Modificato" + i, "S" + scrittore + "C" + i));
+                        if (i % 3 == 0) {
+                            rubrica.rimuoviContatto(modificato);
+                        } else {
+                            miei.put(modificato.getId(), modificato);
+                        }
+                    }
+                } catch (Throwable t) {
+                    errori.add(t);
+                }
+            }));
+        }
+        List<Contatto> importati = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            importati.add(contatto("Import" + i, "Lotto" + i));
+        }
+        thread.add(new Thread(() -> {
+            try {
+                via.await();
+                //abbastanza grande da passare per la costruzione di una nuova rubrica interna
+                rubrica.aggiungiContatti(importati);
+            } catch (Throwable t) {
+                errori.add(t);
+            }
+        }));
+        for (int l = 0; l < LETTORI; l++) {
+            thread.add(new Thread(() -> {
+                try {
+                    via.await();
+                    while (!fine.get()) {
+                        List<Contatto> tutti = rubrica.getContatti();
+                        Set<Integer> id = new HashSet<>();
+                        for (int i = 0; i < tutti.size(); i++) {
+                            Contatto c = tutti.get(i);
+                            assertNotNull(c);
+                            assertTrue(id.add(c.getId()), "contatto ripetuto");
+                            assertTrue(i == 0 || tutti.get(i - 1).compareTo(c) <= 0, "elenco non ordinato");
+                        }
+                        for (Contatto c : rubrica.cercaContatto("s1")) {
+                            assertTrue(c.getCognome().startsWith("S1"));
+                        }
+                        letture.incrementAndGet();
+                    }
+                } catch (Throwable t) {
+                    errori.add(t);
+                }
+            }));
+        }
+        for (Thread t : thread) {
+            t.start();
+        }
+        via.countDown();
+        for (int i = 0; i < SCRITTORI + 1; i++) {
+            thread.get(i).join();
+        }
+        fine.set(true);
+        for (Thread t : thread) {
+            t.join();
+        }
+
+        assertTrue(errori.isEmpty(), () -> errori.peek().toString());
+        assertTrue(letture.get() > 0);
+        int rimasti = importati.size();
+        for (Map<Integer, Contatto> miei : attesi) {
+            rimasti += miei.size();
+            for (Contatto c : miei.values()) {
+                assertSame(c, rubrica.trovaPerId(c.getId()));
+            }
+        }
+        assertEquals(rimasti, rubrica.getContatti().size());
+        //ogni inserimento, modifica e rimozione ha avanzato il checkpoint una volta
+        int rimozioni = SCRITTORI * ((CONTATTI_PER_SCRITTORE + 2) / 3);
+        assertEquals(2L * SCRITTORI * CONTATTI_PER_SCRITTORE + rimozioni + importati.size(), rubrica.checkpoint() - inizio);
+    }
+
+    /**
+     * Test of caricaFile method, of class RubricaConcorrente: listeners and checkpoints survive the swap.
+     */
+    @Test
+    public void testCaricaFile() throws IOException {
+        List<String> eventi = new ArrayList<>();
+        rubrica.aggiungiAscoltatore(new AscoltatoreRubrica() {
+            @Override
+            public void inserito(int posizione, Contatto contatto) {
+                //l'ascoltatore può leggere la rubrica: il lock è già stato rilasciato
+                eventi.add("inserito " + rubrica.getContatti().size());
+            }
+
+            @Override
+            public void rimosso(int posizione, Contatto contatto) {
+                eventi.add("rimosso");
+            }
+
+            @Override
+            public void aggiornato(int posizione, Contatto contatto) {
+                eventi.add("aggiornato");
+            }
+
+            @Override
+            public void ricaricato() {
+                eventi.add("ricaricato " + rubrica.getContatti().size());
+            }
+        });
+        rubrica.aggiungiContatto(contatto("Mario", "Rossi"));
+        rubrica.aggiungiContatto(contatto("Luigi", "Verdi"));
+        String percorso = cartella.resolve("rubrica.csv").toString();
+        rubrica.salvaFile(percorso);
+        long checkpoint = rubrica.checkpoint();
+
+        rubrica.caricaFile(percorso);
+        assertEquals(2, rubrica.getContatti().size());
+        assertTrue(rubrica.modificheDa(checkpoint).isCompleto());
+        rubrica.aggiungiContatto(contatto("Anna", "Bianchi"));
+        assertEquals(java.util.Arrays.asList("inserito 1", "inserito 2", "ricaricato 2", "inserito 3"), eventi);
+        assertTrue(Files.exists(cartella.resolve("rubrica.csv")));
+    }
+
+    /**
+     * Test of aggiungiContatti with a batch small compared to the book:
+     * it is inserted in pieces, and a search can run between two pieces.
+     */
+    @Test
+    public void testImportazioneAPezzi() throws InterruptedException {
+        List<Contatto> base = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) {
+            base.add(contatto("Base", "Cognome" + i));
+        }
+        rubrica.aggiungiContatti(base);
+        List<Contatto> lotto = new ArrayList<>();
+        for (int i = 0; i < 9_000; i++) {
+            lotto.add(contatto("Nuovo", "Importato" + i));
+        }
+        List<Integer> trovati = new ArrayList<>();
+        rubrica.aggiungiAscoltatore(new AscoltatoreRubrica() {
+            @Override
+            public void inserito(int posizione, Contatto contatto) {
+            }
+
+            @Override
+            public void rimosso(int posizione, Contatto contatto) {
+            }
+
+            @Override
+            public void aggiornato(int posizione, Contatto contatto) {
+            }
+
+            @Override
+            public void ricaricato() {
+                //tra due pezzi: una ricerca da un altro thread non resta bloccata
+                AtomicInteger risultati = new AtomicInteger(-1);
+                Thread lettore = new Thread(() -> risultati.set(rubrica.cercaContatto("nuovo").size()));
+                lettore.start();
+                try {
+                    lettore.join(10_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                trovati.add(risultati.get());
+            }
+        });
+        rubrica.aggiungiContatti(lotto);
+
+        assertTrue(trovati.size() > 1, trovati.toString());
+        assertTrue(trovati.get(0) > 0 && trovati.get(0) < lotto.size(), trovati.toString());
+        assertEquals(lotto.size(), (int) trovati.get(trovati.size() - 1));
+        assertEquals(base.size() + lotto.size(), rubrica.getContatti().size());
+    }
+}
@@ -12,6 +12,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.jupiter.api.DisplayName;
 
@@ -85,6 +86,22 @@ public class RubricaTest {
         });
     }
 
+    /**
+     * Test of aggiungiContatti method, of class Rubrica.
+     */
+    @Test
+    public void testAggiungiContatti() {
+        this.setUp();
+        Contatto contatto3 = new Contatto("Anna", "Bianchi", new NumeroTel(""), new NumeroTel(""), new NumeroTel(""),
+                new Email(""), new Email(""), new Email(""));
+        rubrica.aggiungiContatto(contatto1);
+        rubrica.aggiungiContatti(Arrays.asList(contatto2, contatto3));
+
+        List<Contatto> contatti = rubrica.getContatti();
+        assertEquals(Arrays.asList(contatto3, contatto1, contatto2), contatti);
+        assertThrows(IllegalArgumentException.class, () -> rubrica.aggiungiContatti(Arrays.asList(contatto1, null)));
+    }
+
     /**
      * Test of rimuoviContatto method, of class Rubrica.
      */
@@ -99,6 +116,47 @@ public class RubricaTest {
         
         assertEquals(1, contatti.size());
         assertEquals(contatto2, contatti.get(0));
+
+        //come prima degli indici, null viene ignorato
+        rubrica.rimuoviContatto(null);
+        assertEquals(1, rubrica.getContatti().size());
+    }
+
+    /**
+     * Test of modificaContatto method, of class Rubrica.
+     */
+    @Test
+    public void testModificaContatto() {
+        this.setUp();
+        rubrica.aggiungiContatto(contatto1);
+        rubrica.aggiungiContatto(contatto2);
+        Contatto nuoviDati = new Contatto("Mario", "Zeta", new NumeroTel("555"), new NumeroTel(""), new NumeroTel(""),
+                new Email(""), new Email(""), new Email(""));
+
+        Contatto aggiornato = rubrica.modificaContatto(contatto1, nuoviDati);
+
+        assertEquals(contatto1.getId(), aggiornato.getId());
+        assertSame(aggiornato, rubrica.trovaPerId(contatto1.getId()));
+        assertEquals(Arrays.asList(contatto2, aggiornato), rubrica.getContatti());
+        assertEquals("Zeta", rubrica.getContatti().get(1).getCognome());
+        assertTrue(rubrica.cercaContatto("Rossi").isEmpty());
+        assertEquals(Arrays.asList(aggiornato), rubrica.cercaContatto("zeta"));
+
+        rubrica.rimuoviContatto(contatto1);
+        assertEquals(Arrays.asList(contatto2), rubrica.getContatti());
+        assertThrows(IllegalArgumentException.class, () -> rubrica.modificaContatto(contatto1, nuoviDati));
+    }
+
+    /**
+     * Test of trovaPerId method, of class Rubrica.
+     */
+    @Test
+    public void testTrovaPerId() {
+        this.setUp();
+        rubrica.aggiungiContatto(contatto1);
+        assertSame(contatto1, rubrica.trovaPerId(contatto1.getId()));
+        assertNull(rubrica.trovaPerId(contatto2.getId()));
+        assertThrows(IllegalArgumentException.class, () -> rubrica.aggiungiContatto(contatto1));
     }
 
     /**
@@ -128,6 +186,63 @@ public class RubricaTest {
 
     }
 
+    /**
+     * Test of cercaContatto method, of class Rubrica, dopo rimozioni e con query corte.
+     */
+    @Test
+    public void testCercaContattoDopoRimozione() {
+        this.setUp();
+        rubrica.aggiungiContatto(contatto1);
+        rubrica.aggiungiContatto(contatto2);
+
+        assertEquals(Arrays.asList(contatto1, contatto2), rubrica.cercaContatto("email.com"));
+        assertEquals(Arrays.asList(contatto1, contatto2), rubrica.cercaContatto("i"));
+        assertEquals(Arrays.asList(contatto2), rubrica.cercaContatto("VERD"));
+
+        rubrica.rimuoviContatto(contatto1);
+        assertEquals(Arrays.asList(contatto2), rubrica.cercaContatto("email.com"));
+        assertTrue(rubrica.cercaContatto("rossi").isEmpty());
+    }
+
+    /**
+     * Test of cercaContatto method, of class Rubrica, con la scansione parallela.
+     */
+    @Test
+    public void testCercaContattoParallelo() {
+        java.util.List<Contatto> lotto = new java.util.ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            lotto.add(new Contatto("Nome" + i, "Cognome" + (i % 97), NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                    Email.VUOTO, Email.VUOTO, Email.VUOTO));
+        }
+        rubrica.aggiungiContatti(lotto);
+        java.util.List<Contatto> sequenziale = rubrica.cercaContatto("71");
+        rubrica.setSogliaScansioneParallela(1);
+        java.util.List<Contatto> parallela = rubrica.cercaContatto("71");
+
+        assertFalse(sequenziale.isEmpty());
+        assertEquals(sequenziale, parallela);
+        for (int i = 1; i < parallela.size(); i++) {
+            assertTrue(parallela.get(i - 1).compareTo(parallela.get(i)) <= 0);
+        }
+        assertThrows(IllegalArgumentException.class, () -> rubrica.setSogliaScansioneParallela(0));
+    }
+
+    /**
+     * Test of cercaPerPrefisso method, of class Rubrica.
+     */
+    @Test
+    public void testCercaPerPrefisso() {
+        this.setUp();
+        rubrica.aggiungiContatto(contatto1);
+        rubrica.aggiungiContatto(contatto2);
+
+        assertEquals(Arrays.asList(contatto1), rubrica.cercaPerPrefisso("ro"));
+        assertEquals(Arrays.asList(contatto1, contatto2), rubrica.cercaPerPrefisso(""));
+        assertEquals(Arrays.asList(contatto2), rubrica.cercaPerPrefisso("luigi.v"));
+        assertTrue(rubrica.cercaPerPrefisso("ossi").isEmpty());
+        assertEquals(Arrays.asList("Luigi", "luigi.verdi"), rubrica.completamenti("lu", 5));
+    }
+
     /**
      * Test of salvaFile method, of class Rubrica.
      */
@@ -153,6 +268,7 @@ public class RubricaTest {
             Contatto caricato = contattiCaricati.get(i);
             
             assertAll(
+                () -> assertEquals(originale.getId(), caricato.getId(), "Id deve corrispondere"),
                 () -> assertEquals(originale.getNome(), caricato.getNome(), "Nome deve corrispondere"),
                 () -> assertEquals(originale.getCognome(), caricato.getCognome(), "Cognome deve corrispondere"),
                 () -> assertEquals(originale.getNumeriTel().toString(), caricato.getNumeriTel().toString(), "Numeri di telefono devono corrispondere"),
@@ -161,6 +277,614 @@ public class RubricaTest {
         }
     }
 
+    /**
+     * Test of caricaFile method, of class Rubrica, con campi tra virgolette e file senza id.
+     */
+    @Test
+    public void testCaricaFileVirgoletteESenzaId() throws IOException {
+        this.setUp();
+        Contatto conVirgola = new Contatto("Mario, detto \"Super\"", "Rossi", new NumeroTel("1"), new NumeroTel(""), new NumeroTel(""),
+                new Email("a@b.it"), new Email(""), new Email(""));
+        rubrica.aggiungiContatto(conVirgola);
+        rubrica.aggiungiContatto(contatto2);
+        rubrica.salvaFile(TEST_FILE);
+
+        Rubrica nuovaRubrica = new Rubrica();
+        nuovaRubrica.caricaFile(TEST_FILE);
+        assertEquals("Mario, detto \"Super\"", nuovaRubrica.trovaPerId(conVirgola.getId()).getNome());
+        assertEquals("a@b.it", nuovaRubrica.trovaPerId(conVirgola.getId()).getIndirizziEmail().get(0).toString());
+
+        java.nio.file.Files.write(new File(TEST_FILE).toPath(), Arrays.asList(
+                "Nome,Cognome,Telefono1,Telefono2,Telefono3,Email1,Email2,Email3",
+                "Luigi,Verdi,2233445566,,,luigi.verdi@email.com,,",
+                ",,,,,,,",
+                "Mario,Rossi,1234567890,,,,,"));
+        nuovaRubrica.caricaFile(TEST_FILE);
+        List<Contatto> caricati = nuovaRubrica.getContatti();
+        assertEquals(2, caricati.size());
+        assertEquals("Rossi", caricati.get(0).getCognome());
+        assertTrue(caricati.get(0).getId() > 0);
+        assertNotEquals(caricati.get(0).getId(), caricati.get(1).getId());
+        assertSame(NumeroTel.VUOTO, caricati.get(0).getNumeriTel().get(1));
+    }
+
+    /**
+     * Test of salvaFile method overwriting an existing file, of class Rubrica.
+     */
+    @Test
+    public void testSalvaFileSovrascrive() throws IOException {
+        this.setUp();
+        rubrica.aggiungiContatto(contatto1);
+        rubrica.aggiungiContatto(contatto2);
+        rubrica.salvaFile(TEST_FILE);
+        rubrica.rimuoviContatto(contatto1);
+        rubrica.salvaFile(TEST_FILE);
+
+        Rubrica nuovaRubrica = new Rubrica();
+        nuovaRubrica.caricaFile(TEST_FILE);
+        assertEquals(1, nuovaRubrica.getContatti().size());
+        assertEquals("Verdi", nuovaRubrica.getContatti().get(0).getCognome());
+
+        File cartella = new File(TEST_FILE).getAbsoluteFile().getParentFile();
+        String[] temporanei = cartella.list((dir, nome) -> nome.startsWith(TEST_FILE) && nome.endsWith(".tmp"));
+        assertEquals(0, temporanei.length);
+    }
+
+    /**
+     * Test of salvaSnapshot and caricaSnapshot methods, of class Rubrica.
+     */
+    @Test
+    public void testSalvaCaricaSnapshot() throws IOException {
+        this.setUp();
+        rubrica.aggiungiContatto(contatto1);
+        rubrica.aggiungiContatto(contatto2);
+        rubrica.salvaSnapshot(TEST_FILE);
+
+        Rubrica nuovaRubrica = new Rubrica();
+        nuovaRubrica.caricaSnapshot(TEST_FILE);
+        List<Contatto> caricati = nuovaRubrica.getContatti();
+        assertEquals(2, caricati.size());
+        assertEquals("Rossi", caricati.get(0).getCognome());
+        assertEquals(contatto1.getId(), caricati.get(0).getId());
+        assertEquals("mario.work@email.com", caricati.get(0).getEmail(1).toString());
+        assertEquals("Verdi", caricati.get(1).getCognome());
+        assertEquals(1, nuovaRubrica.cercaContatto("luigi.verdi").size());
+        assertEquals(1, nuovaRubrica.cercaPerPrefisso("Ros").size());
+    }
+
+    /**
+     * Test of apriGiornale method, of class Rubrica.
+     */
+    @Test
+    public void testApriGiornale() throws IOException {
+        java.nio.file.Path cartella = java.nio.file.Files.createTempDirectory("rubrica");
+        String snapshot = cartella.resolve("rubrica.snap").toString();
+        try {
+            rubrica.apriGiornale(snapshot);
+            rubrica.aggiungiContatto(contatto1);
+            rubrica.aggiungiContatto(contatto2);
+            rubrica.modificaContatto(contatto1, new Contatto("Maria", "Rossi", new NumeroTel("1"), NumeroTel.VUOTO,
+                    NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO));
+            rubrica.rimuoviContatto(contatto2);
+            rubrica.chiudiGiornale();
+            assertFalse(new File(snapshot).exists());
+
+            Rubrica riaperta = new Rubrica();
+            riaperta.apriGiornale(snapshot);
+            assertEquals(1, riaperta.getContatti().size());
+            assertEquals("Maria", riaperta.trovaPerId(contatto1.getId()).getNome());
+            assertNull(riaperta.trovaPerId(contatto2.getId()));
+            riaperta.chiudiGiornale();
+        } finally {
+            for (File f : cartella.toFile().listFiles()) {
+                f.delete();
+            }
+            cartella.toFile().delete();
+        }
+    }
+
+    /**
+     * Test of compattaGiornale method, of class Rubrica.
+     */
+    @Test
+    public void testCompattazioneGiornale() throws IOException {
+        java.nio.file.Path cartella = java.nio.file.Files.createTempDirectory("rubrica");
+        String snapshot = cartella.resolve("rubrica.snap").toString();
+        try {
+            rubrica.setSogliaGiornale(1);
+            rubrica.apriGiornale(snapshot);
+            for (int i = 0; i < 20; i++) {
+                rubrica.aggiungiContatto(new Contatto("Nome" + i, "Cognome", NumeroTel.VUOTO, NumeroTel.VUOTO,
+                        NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO));
+            }
+            rubrica.rimuoviContatto(rubrica.getContatti().get(0));
+            rubrica.chiudiGiornale();
+            assertTrue(new File(snapshot).exists());
+            assertFalse(new File(snapshot + ".giornale.old").exists());
+
+            Rubrica riaperta = new Rubrica();
+            riaperta.apriGiornale(snapshot);
+            assertEquals(19, riaperta.getContatti().size());
+            riaperta.compattaGiornale();
+            assertEquals(0, new File(snapshot + ".giornale").length());
+            riaperta.chiudiGiornale();
+
+            Rubrica daSnapshot = new Rubrica();
+            daSnapshot.caricaSnapshot(snapshot);
+            assertEquals(19, daSnapshot.getContatti().size());
+        } finally {
+            for (File f : cartella.toFile().listFiles()) {
+                f.delete();
+            }
+            cartella.toFile().delete();
+        }
+    }
+
+    /**
+     * Test of compattaGiornale method, of class Rubrica, con uno snapshot che non si riesce a scrivere.
+     */
+    @Test
+    public void testCompattazioneFallita() throws IOException {
+        java.nio.file.Path cartella = java.nio.file.Files.createTempDirectory("rubrica");
+        java.nio.file.Path snapshot = cartella.resolve("rubrica.snap");
+        File giornale = new File(snapshot + ".giornale");
+        try {
+            rubrica.setSogliaGiornale(1);
+            rubrica.apriGiornale(snapshot.toString());
+            //una cartella non vuota al posto dello snapshot fa fallire ogni scrittura
+            java.nio.file.Files.createDirectories(snapshot.resolve("blocco"));
+            rubrica.aggiungiContatto(new Contatto("Nome0", "Cognome", NumeroTel.VUOTO, NumeroTel.VUOTO,
+                    NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO));
+            assertThrows(IOException.class, () -> rubrica.compattaGiornale());
+
+            //dopo l'errore il giornale non viene più ruotato a ogni modifica
+            for (int i = 1; i < 6; i++) {
+                rubrica.aggiungiContatto(new Contatto("Nome" + i, "Cognome", NumeroTel.VUOTO, NumeroTel.VUOTO,
+                        NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO));
+                assertTrue(giornale.length() > 0);
+            }
+            assertThrows(IOException.class, () -> rubrica.chiudiGiornale());
+
+            java.nio.file.Files.delete(snapshot.resolve("blocco"));
+            java.nio.file.Files.delete(snapshot);
+            Rubrica riaperta = new Rubrica();
+            riaperta.apriGiornale(snapshot.toString());
+            assertEquals(6, riaperta.getContatti().size());
+            riaperta.compattaGiornale();
+            assertFalse(new File(snapshot + ".giornale.old").exists());
+            riaperta.chiudiGiornale();
+        } finally {
+            for (File f : cartella.toFile().listFiles()) {
+                f.delete();
+            }
+            cartella.toFile().delete();
+        }
+    }
+
+    /**
+     * Test of modificheDa method, of class Rubrica.
+     */
+    @Test
+    public void testModificheDa() throws IOException {
+        rubrica.aggiungiContatto(contatto1);
+        long inizio = rubrica.checkpoint();
+        rubrica.aggiungiContatto(contatto2);
+        rubrica.modificaContatto(contatto1, new Contatto("Maria", "Rossi", NumeroTel.VUOTO, NumeroTel.VUOTO,
+                NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO));
+        rubrica.modificaContatto(contatto1, new Contatto("Marta", "Rossi", NumeroTel.VUOTO, NumeroTel.VUOTO,
+                NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO));
+
+        DeltaRubrica delta = rubrica.modificheDa(inizio);
+        assertFalse(delta.isCompleto());
+        assertEquals(2, delta.getAggiornati().size());
+        assertEquals("Marta", delta.getAggiornati().get(1).getNome());
+        assertTrue(delta.getRimossi().isEmpty());
+
+        rubrica.rimuoviContatto(contatto2);
+        DeltaRubrica successivo = rubrica.modificheDa(delta.getCheckpoint());
+        assertTrue(successivo.getAggiornati().isEmpty());
+        assertEquals(Arrays.asList(contatto2.getId()), successivo.getRimossi());
+        assertTrue(rubrica.modificheDa(rubrica.checkpoint()).getAggiornati().isEmpty());
+
+        rubrica.dimenticaModificheFinoA(delta.getCheckpoint());
+        assertTrue(rubrica.modificheDa(inizio).isCompleto());
+        assertEquals(1, rubrica.modificheDa(delta.getCheckpoint()).getRimossi().size());
+
+        rubrica.salvaFile(TEST_FILE);
+        long primaDelCaricamento = rubrica.checkpoint();
+        rubrica.caricaFile(TEST_FILE);
+        DeltaRubrica completo = rubrica.modificheDa(primaDelCaricamento);
+        assertTrue(completo.isCompleto());
+        assertEquals(1, completo.getAggiornati().size());
+        assertThrows(IllegalArgumentException.class, () -> rubrica.modificheDa(rubrica.checkpoint() + 1));
+    }
+
+    /**
+     * Test of esportaDelta and esportaDeltaBinario methods, of class Rubrica.
+     */
+    @Test
+    public void testEsportaDelta() throws IOException {
+        rubrica.aggiungiContatto(contatto1);
+        long inizio = rubrica.checkpoint();
+        rubrica.aggiungiContatto(contatto2);
+        rubrica.rimuoviContatto(contatto1);
+
+        rubrica.esportaDelta(inizio, TEST_FILE);
+        List<String> righe = java.nio.file.Files.readAllLines(new File(TEST_FILE).toPath());
+        assertEquals(3, righe.size());
+        assertEquals(Rubrica.INTESTAZIONE_CSV + ",Operazione", righe.get(0));
+        assertEquals("Luigi,Verdi,2233445566,,,luigi.verdi@email.com,,," + contatto2.getId() + ",aggiornato", righe.get(1));
+        assertEquals(",,,,,,,," + contatto1.getId() + ",rimosso", righe.get(2));
+
+        rubrica.esportaDeltaBinario(inizio, TEST_FILE);
+        List<Contatto> aggiornati = new java.util.ArrayList<>();
+        List<Integer> rimossi = new java.util.ArrayList<>();
+        Giornale.riproduci(new File(TEST_FILE).toPath(), aggiornati::add, rimossi::add);
+        assertEquals(1, aggiornati.size());
+        assertEquals("Verdi", aggiornati.get(0).getCognome());
+        assertEquals(Arrays.asList(contatto1.getId()), rimossi);
+    }
+
+    /**
+     * Test of caricaFile method with progress reporting, of class Rubrica.
+     */
+    @Test
+    public void testCaricaFileConAvanzamento() throws IOException {
+        for (int i = 0; i < 5000; i++) {
+            rubrica.aggiungiContatto(new Contatto("Nome" + i, "Cognome" + i, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                    NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO));
+        }
+        rubrica.salvaFile(TEST_FILE);
+        long dimensione = new File(TEST_FILE).length();
+
+        List<Contatto> ricevuti = new java.util.ArrayList<>();
+        long[] ultimo = new long[2];
+        Rubrica nuovaRubrica = new Rubrica();
+        nuovaRubrica.caricaFile(TEST_FILE, (lotto, byteLetti, byteTotali) -> {
+            assertTrue(byteLetti >= ultimo[0]);
+            ricevuti.addAll(lotto);
+            ultimo[0] = byteLetti;
+            ultimo[1] = byteTotali;
+        });
+        assertEquals(5000, ricevuti.size());
+        assertEquals(5000, nuovaRubrica.getContatti().size());
+        assertEquals(dimensione, ultimo[0]);
+        assertEquals(dimensione, ultimo[1]);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(java.io.InterruptedIOException.class,
+                    () -> new Rubrica().caricaFile(TEST_FILE, (lotto, byteLetti, byteTotali) -> { }));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Test of fotografia and salvaFotografia methods, of class Rubrica.
+     */
+    @Test
+    public void testSalvaFotografia() throws IOException {
+        rubrica.aggiungiContatto(contatto1);
+        rubrica.aggiungiContatto(contatto2);
+        List<Contatto> fotografia = rubrica.fotografia();
+        VersioneRubrica versione = rubrica.versione();
+        rubrica.rimuoviContatto(contatto2);
+        rubrica.modificaContatto(contatto1, new Contatto("Maria", "Rossi", NumeroTel.VUOTO, NumeroTel.VUOTO,
+                NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO));
+        assertThrows(UnsupportedOperationException.class, () -> fotografia.remove(0));
+
+        int[] ultimo = new int[2];
+        Rubrica.salvaFotografia(fotografia, TEST_FILE, (scritti, totali) -> {
+            ultimo[0] = scritti;
+            ultimo[1] = totali;
+        });
+        assertEquals(2, ultimo[0]);
+        assertEquals(2, ultimo[1]);
+
+        Rubrica nuovaRubrica = new Rubrica();
+        nuovaRubrica.caricaFile(TEST_FILE);
+        assertEquals(2, nuovaRubrica.getContatti().size());
+        assertEquals("Mario", nuovaRubrica.trovaPerId(contatto1.getId()).getNome());
+        assertEquals(1, rubrica.getContatti().size());
+
+        //una versione si salva allo stesso modo, senza copiare i contatti
+        Rubrica.salvaFotografia(versione, TEST_FILE, null);
+        nuovaRubrica.caricaFile(TEST_FILE);
+        assertEquals(fotografia, nuovaRubrica.getContatti());
+    }
+
+    /**
+     * Test of caricaFileParallelo method, of class Rubrica.
+     */
+    @Test
+    public void testCaricaFileParallelo() throws IOException {
+        StringBuilder testo = new StringBuilder(Rubrica.INTESTAZIONE_CSV).append('\n');
+        for (int i = 0; i < 80000; i++) {
+            int n = (i * 7919) % 80000;
+            testo.append("Nome").append(n % 97).append(",\"Cognome ").append(n % 1013).append("\",")
+                    .append(3000000000L + n).append(",,,utente").append(n).append("@esempio.it,,,")
+                    .append(i % 5 == 0 ? "" : String.valueOf(1 + i % 40000)).append('\n');
+            if (i % 10000 == 0) {
+                testo.append(",,,,,,,,\n");
+            }
+        }
+        java.nio.file.Files.write(new File(TEST_FILE).toPath(), testo.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        assertTrue(new File(TEST_FILE).length() >= CaricatoreParallelo.DIMENSIONE_MINIMA);
+
+        Rubrica sequenziale = new Rubrica();
+        sequenziale.caricaFile(TEST_FILE);
+        rubrica.caricaFileParallelo(TEST_FILE);
+
+        List<Contatto> attesi = sequenziale.getContatti();
+        List<Contatto> caricati = rubrica.getContatti();
+        assertEquals(80000, caricati.size());
+        for (int i = 0; i < attesi.size(); i++) {
+            assertEquals(attesi.get(i).getNome(), caricati.get(i).getNome());
+            assertEquals(attesi.get(i).getCognome(), caricati.get(i).getCognome());
+            assertEquals(attesi.get(i).getIndirizziEmail().get(0).toString(), caricati.get(i).getIndirizziEmail().get(0).toString());
+        }
+        assertEquals(sequenziale.cercaContatto("utente123").size(), rubrica.cercaContatto("utente123").size());
+        assertEquals(sequenziale.cercaPerPrefisso("cognome 10").size(), rubrica.cercaPerPrefisso("cognome 10").size());
+
+        //le righe senza id ricevono id crescenti nell'ordine del file, come in caricaFile
+        java.util.Map<String, Contatto> perEmail = new java.util.HashMap<>();
+        for (Contatto c : caricati) {
+            perEmail.put(c.getIndirizziEmail().get(0).toString(), c);
+        }
+        int ultimoId = 0;
+        for (int i = 0; i < 80000; i += 5) {
+            int id = perEmail.get("utente" + (i * 7919) % 80000 + "@esempio.it").getId();
+            assertTrue(id > ultimoId);
+            ultimoId = id;
+        }
+    }
+
+    /**
+     * Test of cercaPerDominio method, of class Rubrica.
+     */
+    @Test
+    public void testCercaPerDominio() {
+        rubrica.aggiungiContatto(contatto1);
+        rubrica.aggiungiContatto(contatto2);
+        Contatto docente = new Contatto("Anna", "Bianchi", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                new Email("abianchi@Unisa.it"), Email.VUOTO, Email.VUOTO);
+        rubrica.aggiungiContatto(docente);
+
+        assertEquals(Arrays.asList(contatto1, contatto2), rubrica.cercaPerDominio("email.com"));
+        assertEquals(Arrays.asList(docente), rubrica.cercaPerDominio("@unisa.it"));
+        assertTrue(rubrica.cercaPerDominio("altro.it").isEmpty());
+
+        rubrica.modificaContatto(contatto2, new Contatto("Luigi", "Verdi", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                new Email("luigi@unisa.it"), Email.VUOTO, Email.VUOTO));
+        assertEquals(Arrays.asList(contatto1), rubrica.cercaPerDominio("email.com"));
+        assertEquals(Arrays.asList(docente, contatto2), rubrica.cercaPerDominio("UNISA.IT"));
+        rubrica.rimuoviContatto(docente);
+        assertEquals(Arrays.asList(contatto2), rubrica.cercaPerDominio("unisa.it"));
+        assertThrows(IllegalArgumentException.class, () -> rubrica.cercaPerDominio(null));
+    }
+
+    /**
+     * Test of trovaPerNumero and cercaPerNumero methods, of class Rubrica.
+     */
+    @Test
+    public void testTrovaPerNumero() {
+        rubrica.aggiungiContatto(contatto1);
+        rubrica.aggiungiContatto(contatto2);
+        Contatto ufficio = new Contatto("Anna", "Bianchi", new NumeroTel("+39 223 344 5566"), NumeroTel.VUOTO, NumeroTel.VUOTO,
+                Email.VUOTO, Email.VUOTO, Email.VUOTO);
+        rubrica.aggiungiContatto(ufficio);
+
+        assertSame(contatto1, rubrica.trovaPerNumero("098-765-4321"));
+        assertEquals(Arrays.asList(ufficio, contatto2), rubrica.cercaPerNumero("2233445566"));
+        assertNull(rubrica.trovaPerNumero("000"));
+        assertNull(rubrica.trovaPerNumero("non è un numero"));
+        assertTrue(rubrica.cercaPerNumero("").isEmpty());
+
+        Contatto nuovo = new Contatto("Luigi", "Verdi", new NumeroTel("3331234567"), NumeroTel.VUOTO, NumeroTel.VUOTO,
+                Email.VUOTO, Email.VUOTO, Email.VUOTO);
+        rubrica.modificaContatto(contatto2, nuovo);
+        assertEquals(Arrays.asList(ufficio), rubrica.cercaPerNumero("2233445566"));
+        assertEquals("Verdi", rubrica.trovaPerNumero("+39 333 1234567").getCognome());
+        rubrica.rimuoviContatto(contatto1);
+        assertNull(rubrica.trovaPerNumero("0987654321"));
+        assertThrows(IllegalArgumentException.class, () -> rubrica.trovaPerNumero(null));
+    }
+
+    /**
+     * Test of cercaApprossimata method, of class Rubrica.
+     */
+    @Test
+    public void testCercaApprossimata() {
+        Contatto rossini = new Contatto("Maria", "Rossini", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                Email.VUOTO, Email.VUOTO, Email.VUOTO);
+        rubrica.aggiungiContatto(contatto1);
+        rubrica.aggiungiContatto(contatto2);
+        rubrica.aggiungiContatto(rossini);
+
+        assertTrue(rubrica.cercaContatto("Rosi").isEmpty());
+        assertEquals(Arrays.asList(contatto1), rubrica.cercaApprossimata("Rosi", 1, 10));
+        assertEquals(Arrays.asList(contatto1, rossini), rubrica.cercaApprossimata("rosi", 3, 10));
+        assertEquals(Arrays.asList(rossini, contatto1), rubrica.cercaApprossimata("Mara Rossin", 2, 10));
+        assertEquals(Arrays.asList(contatto1), rubrica.cercaApprossimata("rosi", 3, 1));
+        assertEquals(Arrays.asList(contatto2), rubrica.cercaApprossimata("  luigi  verdi ", 0, 10));
+        assertTrue(rubrica.cercaApprossimata("mario verdi", 1, 10).isEmpty());
+        assertTrue(rubrica.cercaApprossimata(" ", 1, 10).isEmpty());
+
+        rubrica.rimuoviContatto(contatto1);
+        assertEquals(Arrays.asList(rossini), rubrica.cercaApprossimata("rosi", 3, 10));
+        assertThrows(IllegalArgumentException.class, () -> rubrica.cercaApprossimata(null, 1, 10));
+        assertThrows(IllegalArgumentException.class, () -> rubrica.cercaApprossimata("rosi", -1, 10));
+        assertThrows(IllegalArgumentException.class, () -> rubrica.cercaApprossimata("rosi", 1, 0));
+    }
+
+    /**
+     * Test of cercaPerSuono method, of class Rubrica.
+     */
+    @Test
+    public void testCercaPerSuono() {
+        Contatto ciccone = new Contatto("Chiara", "Ciccone", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                Email.VUOTO, Email.VUOTO, Email.VUOTO);
+        rubrica.aggiungiContatto(contatto1);
+        rubrica.aggiungiContatto(contatto2);
+        rubrica.aggiungiContatto(ciccone);
+
+        assertEquals(Arrays.asList(ciccone), rubrica.cercaPerSuono("Cicone"));
+        assertEquals(Arrays.asList(ciccone), rubrica.cercaPerSuono("kiara"));
+        assertEquals(Arrays.asList(contatto1), rubrica.cercaPerSuono("mario rosi"));
+        assertTrue(rubrica.cercaPerSuono("mario verdi").isEmpty());
+        assertTrue(rubrica.cercaPerSuono("").isEmpty());
+
+        Contatto gallo = rubrica.modificaContatto(ciccone, new Contatto("Chiara", "Gallo", NumeroTel.VUOTO, NumeroTel.VUOTO,
+                NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO));
+        assertTrue(rubrica.cercaPerSuono("Cicone").isEmpty());
+        assertEquals(Arrays.asList(gallo), rubrica.cercaPerSuono("Galo"));
+        rubrica.rimuoviContatto(gallo);
+        assertTrue(rubrica.cercaPerSuono("Galo").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> rubrica.cercaPerSuono(null));
+    }
+
+    /**
+     * Test of versione and ripristina methods, of class Rubrica: undo and redo of every kind of change.
+     */
+    @Test
+    public void testRipristina() {
+        rubrica.aggiungiContatto(contatto1);
+        VersioneRubrica iniziale = rubrica.versione();
+        rubrica.aggiungiContatto(contatto2);
+        VersioneRubrica conDue = rubrica.versione();
+        Contatto modificato = rubrica.modificaContatto(contatto1, new Contatto("Zeno", "Zanetti", new NumeroTel("111"),
+                NumeroTel.VUOTO, NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO));
+        rubrica.rimuoviContatto(contatto2);
+        VersioneRubrica finale = rubrica.versione();
+        assertEquals(Arrays.asList(modificato), finale);
+        assertEquals(Arrays.asList(contatto1), iniziale);
+
+        long checkpoint = rubrica.checkpoint();
+        rubrica.ripristina(conDue);
+        assertEquals(rubrica.getContatti(), conDue);
+        assertSame(contatto1, rubrica.trovaPerId(contatto1.getId()));
+        assertSame(contatto1, rubrica.trovaPerNumero("0987654321"));
+        assertTrue(rubrica.cercaContatto("zanetti").isEmpty());
+        assertEquals(2, rubrica.modificheDa(checkpoint).getAggiornati().size());
+
+        rubrica.ripristina(finale);
+        assertEquals(Arrays.asList(modificato), rubrica.getContatti());
+        assertEquals(Arrays.asList(modificato), rubrica.cercaContatto("zanetti"));
+        rubrica.ripristina(iniziale);
+        assertEquals(Arrays.asList(contatto1), rubrica.getContatti());
+        rubrica.ripristina(VersioneRubrica.VUOTA);
+        assertTrue(rubrica.getContatti().isEmpty());
+        assertTrue(rubrica.versione().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> rubrica.ripristina(null));
+    }
+
+    /**
+     * Test of ripristina method with a version of another Rubrica, of class Rubrica.
+     */
+    @Test
+    public void testRipristinaDaAltraRubrica() {
+        rubrica.aggiungiContatto(contatto1);
+        rubrica.aggiungiContatto(contatto2);
+        Rubrica copia = new Rubrica();
+        copia.ripristina(rubrica.versione());
+        assertSame(rubrica.versione(), copia.versione());
+        assertEquals(Arrays.asList(contatto1), copia.cercaContatto("mario"));
+
+        Contatto modificato = rubrica.modificaContatto(contatto1, new Contatto("Zeno", "Zanetti", new NumeroTel("111"),
+                NumeroTel.VUOTO, NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO));
+        rubrica.rimuoviContatto(contatto2);
+        copia.ripristina(rubrica.versione());
+        assertEquals(rubrica.getContatti(), copia.getContatti());
+        assertEquals(Arrays.asList(modificato), copia.cercaContatto("zanetti"));
+        assertTrue(copia.cercaContatto("mario").isEmpty());
+        assertSame(modificato, copia.trovaPerNumero("111"));
+    }
+
+    /**
+     * Test of getContatti and versione methods with contacts with the same name, of class Rubrica.
+     */
+    @Test
+    public void testStessoNomeOrdinatiPerId() {
+        Contatto[] omonimi = new Contatto[4];
+        for (int i = 0; i < omonimi.length; i++) {
+            omonimi[i] = new Contatto("Mario", "Rossi", new NumeroTel("33300000" + i), NumeroTel.VUOTO, NumeroTel.VUOTO,
+                    Email.VUOTO, Email.VUOTO, Email.VUOTO);
+        }
+        //inseriti al contrario dell'ordine degli id, uno alla volta e a lotto
+        rubrica.aggiungiContatto(omonimi[3]);
+        rubrica.aggiungiContatto(omonimi[1]);
+        rubrica.aggiungiContatti(Arrays.asList(omonimi[2], omonimi[0]));
+        assertEquals(Arrays.asList(omonimi), rubrica.getContatti());
+        assertEquals(rubrica.getContatti(), rubrica.versione());
+
+        VersioneRubrica tutti = rubrica.versione();
+        rubrica.rimuoviContatto(omonimi[1]);
+        rubrica.modificaContatto(omonimi[2], omonimi[2]);
+        rubrica.ripristina(tutti);
+        assertEquals(Arrays.asList(omonimi), rubrica.getContatti());
+        assertEquals(rubrica.getContatti(), rubrica.versione());
+    }
+
+    /**
+     * Test of aggiungiAscoltatore method, of class Rubrica.
+     */
+    @Test
+    public void testAscoltatoreMantieneCopia() {
+        java.util.ArrayList<Contatto> copia = new java.util.ArrayList<>();
+        int[] ricaricamenti = {0};
+        rubrica.aggiungiAscoltatore(new AscoltatoreRubrica() {
+            @Override
+            public void inserito(int posizione, Contatto contatto) {
+                copia.add(posizione, contatto);
+            }
+
+            @Override
+            public void rimosso(int posizione, Contatto contatto) {
+                assertSame(copia.remove(posizione), contatto);
+            }
+
+            @Override
+            public void aggiornato(int posizione, Contatto contatto) {
+                copia.set(posizione, contatto);
+            }
+
+            @Override
+            public void ricaricato() {
+                ricaricamenti[0]++;
+                copia.clear();
+                copia.addAll(rubrica.getContatti());
+            }
+        });
+
+        rubrica.aggiungiContatto(contatto1);
+        rubrica.aggiungiContatto(contatto2);
+        rubrica.aggiungiContatti(Arrays.asList(
+            new Contatto("Anna", "Bianchi", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO),
+            new Contatto("Zeno", "Zanni", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO)));
+        //modifica sul posto e modifica che sposta il contatto
+        rubrica.modificaContatto(contatto1, new Contatto("Marco", "Rossi", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO));
+        rubrica.modificaContatto(contatto2, new Contatto("Luigi", "Abate", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO));
+        rubrica.rimuoviContatto(contatto1);
+        assertEquals(0, ricaricamenti[0]);
+        assertStessiContatti(rubrica.getContatti(), copia);
+
+        java.util.ArrayList<Contatto> lotto = new java.util.ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            lotto.add(new Contatto("Nome" + i, "Cognome" + i, NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO, Email.VUOTO, Email.VUOTO, Email.VUOTO));
+        }
+        rubrica.aggiungiContatti(lotto);
+        assertEquals(1, ricaricamenti[0]);
+        assertStessiContatti(rubrica.getContatti(), copia);
+    }
+
+    private static void assertStessiContatti(List<Contatto> attesi, List<Contatto> copia) {
+        assertEquals(attesi.size(), copia.size());
+        for (int i = 0; i < attesi.size(); i++) {
+            assertSame(attesi.get(i), copia.get(i));
+        }
+    }
+
     /**
      * Test of getContatti method, of class Rubrica.
      */
@@ -0,0 +1,65 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author vgoff
+ */
+public class ScansioneParallelaTest {
+    private List<Contatto> elenco;
+
+    public ScansioneParallelaTest() {
+    }
+
+    @BeforeEach
+    public void setUp() {
+        elenco = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            elenco.add(new Contatto("Nome" + i, "Cognome", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                    Email.VUOTO, Email.VUOTO, Email.VUOTO));
+        }
+    }
+
+    /**
+     * Test of compute method, of class ScansioneParallela, with many small pieces.
+     */
+    @Test
+    public void testOrdineConservato() {
+        List<Contatto> attesi = new ArrayList<>();
+        for (Contatto c : elenco) {
+            if (c.getNome().endsWith("3")) {
+                attesi.add(c);
+            }
+        }
+        List<Contatto> trovati = ForkJoinPool.commonPool().invoke(new ScansioneParallela(elenco,
+                c -> c.getNome().endsWith("3"), Thread.currentThread(), 16, 7, 0, elenco.size()));
+        assertEquals(attesi, trovati);
+        assertEquals(attesi, ScansioneParallela.cerca(elenco, c -> c.getNome().endsWith("3"), 16));
+    }
+
+    /**
+     * Test of compute method, of class ScansioneParallela, when the caller has been interrupted.
+     */
+    @Test
+    public void testInterruzione() {
+        Thread.currentThread().interrupt();
+        try {
+            List<Contatto> trovati = new ScansioneParallela(elenco, c -> true, Thread.currentThread(),
+                    16, 100, 0, elenco.size()).compute();
+            assertTrue(trovati.isEmpty());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
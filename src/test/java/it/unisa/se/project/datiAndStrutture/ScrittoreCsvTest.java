@@ -0,0 +1,86 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * @author vgoff
+ */
+public class ScrittoreCsvTest {
+    
+    public ScrittoreCsvTest() {
+    }
+
+    /**
+     * Test of campo method, of class ScrittoreCsv.
+     */
+    @Test
+    public void testCampo() throws IOException {
+        ByteArrayOutputStream uscita = new ByteArrayOutputStream();
+        ScrittoreCsv scrittore = new ScrittoreCsv(Channels.newChannel(uscita));
+        scrittore.campo("Mario");
+        scrittore.separatore();
+        scrittore.campo("Rossi, \"jr\"");
+        scrittore.separatore();
+        scrittore.campo(null);
+        scrittore.separatore();
+        scrittore.campo(" spazio");
+        scrittore.separatore();
+        scrittore.intero(0);
+        scrittore.separatore();
+        scrittore.intero(1234567890);
+        scrittore.svuota();
+
+        assertEquals("Mario,\"Rossi, \"\"jr\"\"\",,\" spazio\",0,1234567890", new String(uscita.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test of campo method with non ASCII text, of class ScrittoreCsv.
+     */
+    @Test
+    public void testCampoUtf8() throws IOException {
+        String testo = "Nicolò Ærø 日本 😀";
+        ByteArrayOutputStream uscita = new ByteArrayOutputStream();
+        ScrittoreCsv scrittore = new ScrittoreCsv(Channels.newChannel(uscita));
+        scrittore.campo(testo);
+        scrittore.svuota();
+
+        assertArrayEquals(testo.getBytes(StandardCharsets.UTF_8), uscita.toByteArray());
+    }
+
+    /**
+     * Test of svuota method with more data than the buffer, of class ScrittoreCsv.
+     */
+    @Test
+    public void testSvuota() throws IOException {
+        ByteArrayOutputStream uscita = new ByteArrayOutputStream();
+        ScrittoreCsv scrittore = new ScrittoreCsv(Channels.newChannel(uscita));
+        for (int i = 0; i < 200000; i++) {
+            scrittore.campo("riga è " + i);
+            scrittore.separatore();
+            scrittore.intero(i);
+            scrittore.fineRiga();
+        }
+        scrittore.svuota();
+
+        LettoreCsv lettore = new LettoreCsv(Channels.newChannel(new ByteArrayInputStream(uscita.toByteArray())));
+        for (int i = 0; i < 200000; i++) {
+            assertTrue(lettore.prossimaRiga());
+            assertEquals("riga è " + i, lettore.campo(0));
+            assertEquals(Integer.toString(i), lettore.campo(1));
+        }
+        assertFalse(lettore.prossimaRiga());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * @author vgoff
+ */
+public class SnapshotBinarioTest {
+    
+    public SnapshotBinarioTest() {
+    }
+
+    private static Path scrivi(List<Contatto> contatti) throws IOException {
+        Path file = Files.createTempFile("rubrica", ".snap");
+        try (FileChannel canale = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            SnapshotBinario.scrivi(contatti, canale);
+        }
+        return file;
+    }
+
+    /**
+     * Test of scrivi and leggi methods, of class SnapshotBinario.
+     */
+    @Test
+    public void testScriviLeggi() throws IOException {
+        Contatto c1 = new Contatto("Nicolò", "D'Àmico", new NumeroTel("+39 333"), NumeroTel.VUOTO, null,
+                new Email("nicolo@esempio.it"), new Email("senza-chiocciola"), new Email("vuoto@"));
+        Contatto c2 = new Contatto("Anna", "D'Àmico", new NumeroTel("+39 333"), NumeroTel.VUOTO, NumeroTel.VUOTO,
+                new Email("anna@esempio.it"), Email.VUOTO, Email.VUOTO);
+        Path file = scrivi(Arrays.asList(c1, c2));
+        try {
+            List<Contatto> letti = SnapshotBinario.leggi(file);
+
+            assertEquals(2, letti.size());
+            Contatto l1 = letti.get(0);
+            assertEquals(c1.getId(), l1.getId());
+            assertEquals("Nicolò", l1.getNome());
+            assertEquals("D'Àmico", l1.getCognome());
+            assertEquals("+39 333", l1.getNumeroTel(0).toString());
+            assertSame(NumeroTel.VUOTO, l1.getNumeroTel(2));
+            assertEquals("nicolo@esempio.it", l1.getEmail(0).toString());
+            assertEquals("senza-chiocciola", l1.getEmail(1).toString());
+            assertEquals("vuoto@", l1.getEmail(2).toString());
+            assertEquals("anna@esempio.it", letti.get(1).getEmail(0).toString());
+            assertSame(Email.VUOTO, letti.get(1).getEmail(1));
+            assertEquals(l1.getNumeroTel(0), letti.get(1).getNumeroTel(0));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test of leggi method with a damaged file, of class SnapshotBinario.
+     */
+    @Test
+    public void testLeggiDanneggiato() throws IOException {
+        Contatto c = new Contatto("Mario", "Rossi", NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                Email.VUOTO, Email.VUOTO, Email.VUOTO);
+        Path file = scrivi(Arrays.asList(c));
+        try {
+            byte[] dati = Files.readAllBytes(file);
+            dati[dati.length - 3] ^= 0x10;
+            Files.write(file, dati);
+            assertThrows(IOException.class, () -> SnapshotBinario.leggi(file));
+
+            Files.write(file, Arrays.asList("Nome,Cognome", "Mario,Rossi"));
+            assertThrows(IOException.class, () -> SnapshotBinario.leggi(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package it.unisa.se.project.datiAndStrutture;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author vgoff
+ */
+public class VersioneRubricaTest {
+
+    public VersioneRubricaTest() {
+    }
+
+    private static Contatto contatto(String nome, String cognome) {
+        Contatto c = new Contatto(nome, cognome, NumeroTel.VUOTO, NumeroTel.VUOTO, NumeroTel.VUOTO,
+                Email.VUOTO, Email.VUOTO, Email.VUOTO);
+        c.setId(Contatto.nuovoId());
+        return c;
+    }
+
+    /**
+     * Test of con, senza and get methods, of class VersioneRubrica: every version stays ordered and unchanged.
+     */
+    @Test
+    public void testConSenza() {
+        Random caso = new Random(16);
+        List<Contatto> attesi = new ArrayList<>();
+        List<VersioneRubrica> versioni = new ArrayList<>();
+        List<List<Contatto>> contenuti = new ArrayList<>();
+        VersioneRubrica v = VersioneRubrica.VUOTA;
+        for (int i = 0; i < 2000; i++) {
+            if (!attesi.isEmpty() && caso.nextInt(3) == 0) {
+                Contatto tolto = attesi.remove(caso.nextInt(attesi.size()));
+                v = v.senza(tolto);
+            } else {
+                //cognomi ripetuti: a parità di nome decide l'id
+                Contatto c = contatto("N" + caso.nextInt(5), "C" + caso.nextInt(50));
+                attesi.add(c);
+                v = v.con(c);
+            }
+            if (i % 100 == 0) {
+                versioni.add(v);
+                List<Contatto> ordinati = new ArrayList<>(attesi);
+                Collections.sort(ordinati);
+                contenuti.add(ordinati);
+            }
+        }
+        for (int i = 0; i < versioni.size(); i++) {
+            VersioneRubrica versione = versioni.get(i);
+            assertEquals(contenuti.get(i).size(), versione.size());
+            for (int j = 1; j < versione.size(); j++) {
+                assertTrue(versione.get(j - 1).compareTo(versione.get(j)) <= 0);
+            }
+            assertTrue(versione.containsAll(contenuti.get(i)));
+            assertEquals(new ArrayList<>(versione), Arrays.asList(versione.toArray()));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> VersioneRubrica.VUOTA.get(0));
+        assertThrows(UnsupportedOperationException.class, () -> versioni.get(1).add(contatto("A", "B")));
+    }
+
+    /**
+     * Test of daOrdinati method, of class VersioneRubrica: same contents as inserting one by one.
+     */
+    @Test
+    public void testDaOrdinati() {
+        List<Contatto> tutti = new ArrayList<>();
+        VersioneRubrica unoAllaVolta = VersioneRubrica.VUOTA;
+        for (int i = 0; i < 500; i++) {
+            Contatto c = contatto("Mario", "Rossi" + (i % 7));
+            tutti.add(c);
+            unoAllaVolta = unoAllaVolta.con(c);
+        }
+        //ordinati per nome ma non per id a parità di nome
+        Collections.shuffle(tutti, new Random(3));
+        Collections.sort(tutti);
+        VersioneRubrica costruita = VersioneRubrica.daOrdinati(tutti);
+        assertEquals(unoAllaVolta, costruita);
+        List<Contatto> tolti = new ArrayList<>();
+        List<Contatto> messi = new ArrayList<>();
+        VersioneRubrica.differenze(unoAllaVolta, costruita, tolti, messi);
+        assertTrue(tolti.isEmpty());
+        assertTrue(messi.isEmpty());
+        assertSame(VersioneRubrica.VUOTA, VersioneRubrica.daOrdinati(new ArrayList<>()));
+    }
+
+    /**
+     * Test of differenze method, of class VersioneRubrica.
+     */
+    @Test
+    public void testDifferenze() {
+        List<Contatto> tutti = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            tutti.add(contatto("Nome" + i, "Cognome" + i));
+        }
+        Collections.sort(tutti);
+        VersioneRubrica prima = VersioneRubrica.daOrdinati(tutti);
+        Contatto rimosso = tutti.get(42);
+        Contatto vecchio = tutti.get(4242);
+        Contatto modificato = new Contatto(contatto("Zeta", "Zeta"), vecchio.getId());
+        Contatto nuovo = contatto("Anna", "Bianchi");
+        VersioneRubrica dopo = prima.senza(rimosso).senza(vecchio).con(modificato).con(nuovo);
+
+        List<Contatto> tolti = new ArrayList<>();
+        List<Contatto> messi = new ArrayList<>();
+        VersioneRubrica.differenze(prima, dopo, tolti, messi);
+        assertEquals(2, tolti.size());
+        assertTrue(tolti.containsAll(Arrays.asList(rimosso, vecchio)));
+        assertEquals(2, messi.size());
+        assertTrue(messi.containsAll(Arrays.asList(modificato, nuovo)));
+
+        tolti.clear();
+        messi.clear();
+        VersioneRubrica.differenze(dopo, prima, tolti, messi);
+        assertTrue(tolti.containsAll(Arrays.asList(modificato, nuovo)));
+        assertTrue(messi.containsAll(Arrays.asList(rimosso, vecchio)));
+        assertEquals(tutti.size(), dopo.size());
+        assertEquals(tutti, prima);
+    }
+}